@@ -36,6 +36,7 @@ import heronarts.lx.scheduler.LXScheduler;
 import heronarts.lx.structure.LXFixture;
 import heronarts.lx.structure.LXStructure;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileReader;
@@ -44,6 +45,9 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -54,6 +58,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -101,6 +110,12 @@ public class LX {
     public int engineThreadPriority = Thread.MAX_PRIORITY;
     public String mediaPath = ".";
     public LXPlugin initialize = null;
+
+    /**
+     * Base seed for the random number generators of all components, fix this
+     * value to get identical output from one run to the next.
+     */
+    public long randomSeed = System.nanoTime();
   }
 
   public static enum Media {
@@ -243,6 +258,33 @@ public class LX {
 
   private final List<ProjectListener> projectListeners = new ArrayList<ProjectListener>();
 
+  /**
+   * Timing of the most recent project save
+   */
+  public static class SaveProfiler {
+
+    /**
+     * Time spent serializing project state, on the saving thread
+     */
+    public volatile long snapshotNanos;
+
+    /**
+     * Time spent writing the file to disk
+     */
+    public volatile long writeNanos;
+
+    /**
+     * Size of the saved file
+     */
+    public volatile long bytes;
+
+  }
+
+  /**
+   * Save timing metrics
+   */
+  public final SaveProfiler saveProfiler = new SaveProfiler();
+
   final LXComponent.Registry componentRegistry = new LXComponent.Registry();
 
   /**
@@ -568,6 +610,18 @@ public class LX {
    */
   public void dispose() {
     this.engine.dispose();
+    synchronized (this.saveLock) {
+      if (this.saveExecutor != null) {
+        // Let queued project writes finish rather than dropping them
+        this.saveExecutor.shutdown();
+        try {
+          this.saveExecutor.awaitTermination(SAVE_SHUTDOWN_TIMEOUT_SECS, TimeUnit.SECONDS);
+        } catch (InterruptedException ix) {
+          Thread.currentThread().interrupt();
+        }
+        this.saveExecutor = null;
+      }
+    }
   }
 
   /**
@@ -820,7 +874,34 @@ public class LX {
 
   private File file;
 
+  private static final int SAVE_SHUTDOWN_TIMEOUT_SECS = 10;
+
+  private final Object saveLock = new Object();
+
+  // Single thread on which all project files are written, in order
+  private ExecutorService saveExecutor = null;
+
+  // Bumped by every save and every project change, so that completions of
+  // background saves that have since been superseded are dropped
+  private final AtomicInteger saveGeneration = new AtomicInteger();
+
+  private ExecutorService getSaveExecutor() {
+    synchronized (this.saveLock) {
+      if (this.saveExecutor == null) {
+        this.saveExecutor = Executors.newSingleThreadExecutor(runnable -> {
+          final Thread thread = new Thread(runnable, "LX Project Save");
+          thread.setDaemon(true);
+          return thread;
+        });
+      }
+      return this.saveExecutor;
+    }
+  }
+
   protected void setProject(File file, ProjectListener.Change change) {
+    if (change != ProjectListener.Change.SAVE) {
+      this.saveGeneration.incrementAndGet();
+    }
     this.file = file;
     for (ProjectListener projectListener : this.projectListeners) {
       projectListener.projectChanged(file, change);
@@ -843,6 +924,76 @@ public class LX {
       return;
     }
 
+    final long snapshotStart = System.nanoTime();
+    JsonObject obj = serializeProject();
+    this.saveProfiler.snapshotNanos = System.nanoTime() - snapshotStart;
+    this.saveGeneration.incrementAndGet();
+    try {
+      // Written on the save thread, so that it lands after any pending
+      // background saves rather than being overwritten by them
+      getSaveExecutor().submit(() -> {
+        writeProject(file, obj);
+        return null;
+      }).get();
+      LX.log("Project saved successfully to " + file.toString());
+      this.componentRegistry.resetProject();
+      setProject(file, ProjectListener.Change.SAVE);
+      this.command.setDirty(false);
+    } catch (ExecutionException eex) {
+      LX.error(eex.getCause(), "Could not write project to output file: " + file.toString());
+    } catch (InterruptedException ix) {
+      Thread.currentThread().interrupt();
+      LX.error(ix, "Interrupted writing project to output file: " + file.toString());
+    }
+  }
+
+  /**
+   * Saves the project without blocking the calling thread or the engine. The
+   * project state is serialized on the engine thread between frames, so that
+   * it is consistent, and the file is then written on a background thread.
+   * Saves are written in the order they were made. Project listeners are
+   * notified on the engine thread once the file has been written, unless
+   * another save has started or a different project has been opened since.
+   *
+   * @param file File to save to
+   */
+  public void saveProjectAsync(final File file) {
+    if (!this.permissions.canSave()) {
+      return;
+    }
+    this.engine.addTask(() -> {
+      final long snapshotStart = System.nanoTime();
+      final JsonObject obj = serializeProject();
+      this.saveProfiler.snapshotNanos = System.nanoTime() - snapshotStart;
+      final int generation = this.saveGeneration.incrementAndGet();
+
+      // Anything modified from here on in is not in this save
+      this.componentRegistry.resetProject();
+      this.command.setDirty(false);
+
+      getSaveExecutor().execute(() -> {
+        try {
+          writeProject(file, obj);
+          LX.log("Project saved successfully to " + file.toString());
+          engine.addTask(() -> {
+            if (generation == this.saveGeneration.get()) {
+              setProject(file, ProjectListener.Change.SAVE);
+            }
+          });
+        } catch (IOException iox) {
+          LX.error(iox, "Could not write project to output file: " + file.toString());
+          engine.addTask(() -> {
+            if (generation == this.saveGeneration.get()) {
+              command.setDirty(true);
+            }
+            pushError(iox, "Could not write project to output file: " + file.toString());
+          });
+        }
+      });
+    });
+  }
+
+  private JsonObject serializeProject() {
     JsonObject obj = new JsonObject();
     obj.addProperty(KEY_VERSION, LX.VERSION);
     obj.addProperty(KEY_TIMESTAMP, System.currentTimeMillis());
@@ -853,15 +1004,36 @@ public class LX {
       externalsObj.add(key, LXSerializable.Utils.toObject(this, this.externals.get(key)));
     }
     obj.add(KEY_EXTERNALS, externalsObj);
-    try (JsonWriter writer = new JsonWriter(new FileWriter(file))) {
-      writer.setIndent("  ");
-      new GsonBuilder().create().toJson(obj, writer);
-      LX.log("Project saved successfully to " + file.toString());
-      this.componentRegistry.resetProject();
-      setProject(file, ProjectListener.Change.SAVE);
-      this.command.setDirty(false);
-    } catch (IOException iox) {
-      LX.error(iox, "Could not write project to output file: " + file.toString());
+    return obj;
+  }
+
+  private final Object writeLock = new Object();
+
+  /**
+   * Streams serialized project contents to a temporary file next to the
+   * destination and then renames it into place, so that the project file on
+   * disk is never left partially written.
+   */
+  private void writeProject(File file, JsonObject obj) throws IOException {
+    synchronized (this.writeLock) {
+      final long writeStart = System.nanoTime();
+      final File dir = file.getAbsoluteFile().getParentFile();
+      final File tmp = File.createTempFile("." + file.getName(), ".tmp", dir);
+      try {
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(new FileWriter(tmp)))) {
+          writer.setIndent("  ");
+          new GsonBuilder().create().toJson(obj, writer);
+        }
+        try {
+          Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException amnsx) {
+          Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        tmp.delete();
+      }
+      this.saveProfiler.bytes = file.length();
+      this.saveProfiler.writeNanos = System.nanoTime() - writeStart;
     }
   }
 
@@ -909,11 +1081,27 @@ public class LX {
   }
 
   public void openProject(File file) {
+    openProject(file, null);
+  }
+
+  /**
+   * Opens a project from contents that may already have been read by
+   * readProject(), e.g. on a background thread. This must be invoked on the
+   * engine thread.
+   *
+   * @param file Project file
+   * @param obj Parsed project contents, or null to read the file now
+   */
+  public void openProject(File file, JsonObject obj) {
     for (ProjectListener projectListener : this.projectListeners) {
       projectListener.projectChanged(file, ProjectListener.Change.TRY);
     }
-    try (FileReader fr = new FileReader(file)) {
-      JsonObject obj = new Gson().fromJson(fr, JsonObject.class);
+    try {
+      if (obj == null) {
+        try (FileReader fr = new FileReader(file)) {
+          obj = new Gson().fromJson(fr, JsonObject.class);
+        }
+      }
       closeProject();
       this.componentRegistry.projectLoading = true;
       this.componentRegistry.setIdCounter(getMaxId(obj, this.componentRegistry.getIdCounter()) + 1);
@@ -943,6 +1131,48 @@ public class LX {
     }
   }
 
+  /**
+   * Reads and parses a project file, and pre-loads every component class that
+   * it references so that opening it later does not pay for class loading and
+   * static initialization. Touches no engine state, safe to call from any
+   * thread.
+   *
+   * @param file Project file
+   * @return Parsed project contents
+   * @throws IOException if the file could not be read
+   */
+  public JsonObject readProject(File file) throws IOException {
+    try (FileReader fr = new FileReader(file)) {
+      JsonObject obj = new Gson().fromJson(fr, JsonObject.class);
+      if (obj == null) {
+        throw new IOException("Project file is empty: " + file);
+      }
+      preloadClasses(obj);
+      return obj;
+    }
+  }
+
+  private void preloadClasses(JsonObject obj) {
+    for (Entry<String, JsonElement> entry : obj.entrySet()) {
+      JsonElement value = entry.getValue();
+      if (entry.getKey().equals(LXComponent.KEY_CLASS) && value.isJsonPrimitive()) {
+        try {
+          Class.forName(value.getAsString(), true, this.registry.classLoader);
+        } catch (Throwable x) {
+          // Will be reported properly when the project is opened
+        }
+      } else if (value.isJsonArray()) {
+        for (JsonElement arrElement : value.getAsJsonArray()) {
+          if (arrElement.isJsonObject()) {
+            preloadClasses(arrElement.getAsJsonObject());
+          }
+        }
+      } else if (value.isJsonObject()) {
+        preloadClasses(value.getAsJsonObject());
+      }
+    }
+  }
+
   private void closeProject() {
     this.command.clear();
     this.command.setDirty(false);
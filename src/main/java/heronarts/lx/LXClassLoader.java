@@ -18,17 +18,41 @@
 
 package heronarts.lx;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Modifier;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+
+import heronarts.lx.effect.LXEffect;
+import heronarts.lx.modulator.LXModulator;
+import heronarts.lx.pattern.LXPattern;
+import heronarts.lx.structure.LXFixture;
 
 /**
  * The LX class loader parses JAR files in the LX content directory. Any
@@ -66,6 +90,12 @@ public class LXClassLoader extends URLClassLoader {
       this.error = error;
     }
 
+    /**
+     * Number of public, concrete classes contained in the package. This
+     * includes helper classes which are not themselves registered components.
+     *
+     * @return Number of public concrete classes in the JAR file
+     */
     public int getNumClasses() {
       return this.numClasses;
     }
@@ -136,8 +166,28 @@ public class LXClassLoader extends URLClassLoader {
   }
 
   protected void load() {
-    for (File jarFile : this.jarFiles) {
-      loadJarFile(jarFile);
+    final ContentIndex index = new ContentIndex(this.lx.getMediaFile(CONTENT_INDEX_FILE_NAME));
+
+    // Scan the JAR files that have changed since the index was written, in parallel.
+    // Class files are inspected by header only, nothing is loaded or initialized here.
+    final List<ScanResult> results = this.jarFiles.parallelStream()
+      .map(jarFile -> {
+        ScanResult cached = index.get(jarFile);
+        return (cached != null) ? cached : scanJarFile(jarFile);
+      })
+      .collect(Collectors.toList());
+
+    // Then register in a deterministic order on this thread
+    boolean indexChanged = index.retain(this.jarFiles);
+    for (ScanResult result : results) {
+      loadJarFile(result);
+      if (!result.cached && (result.error == null)) {
+        index.put(result);
+        indexChanged = true;
+      }
+    }
+    if (indexChanged) {
+      index.save();
     }
   }
 
@@ -148,10 +198,25 @@ public class LXClassLoader extends URLClassLoader {
     this.classes.clear();
   }
 
-  private void loadJarFile(File file) {
-    LX.log("Loading package content from: " + file);
-    Package pack = new Package(file);
+  private static class ScanResult {
+    private final File jarFile;
+    private final List<String> classNames;
+    private final boolean cached;
+    private int numClasses = 0;
+    private Throwable error = null;
+
+    private ScanResult(File jarFile, List<String> classNames, boolean cached) {
+      this.jarFile = jarFile;
+      this.classNames = classNames;
+      this.cached = cached;
+    }
+  }
+
+  private ScanResult scanJarFile(File file) {
+    final ScanResult result = new ScanResult(file, new ArrayList<String>(), false);
     try (JarFile jarFile = new JarFile(file)) {
+      final Map<String, ClassHeader> headers = new HashMap<String, ClassHeader>();
+      final List<String> unreadable = new ArrayList<String>();
       Enumeration<JarEntry> entries = jarFile.entries();
       while (entries.hasMoreElements()) {
         JarEntry entry = entries.nextElement();
@@ -163,17 +228,51 @@ public class LXClassLoader extends URLClassLoader {
         } else if (fileName.endsWith(".lxp")) {
           // TODO(mcslee): load projects from a JAR!
         } if (fileName.endsWith(".class")) {
-          loadClassEntry(pack, jarFile, className(fileName).replaceAll("/", "\\."));
+          String className = className(fileName);
+          try (InputStream is = jarFile.getInputStream(entry)) {
+            headers.put(className, new ClassHeader(is));
+          } catch (IOException iox) {
+            // Let the class loader have a look at it instead
+            unreadable.add(className);
+          }
         }
       }
-    } catch (IOException iox) {
-      LX.error(iox, "IOException unpacking JAR file " + file + " - " + iox.getLocalizedMessage());
-      pack.setError(iox);
+      for (Map.Entry<String, ClassHeader> entry : headers.entrySet()) {
+        if (entry.getValue().isConcrete()) {
+          ++result.numClasses;
+          if (isComponent(entry.getKey(), headers)) {
+            result.classNames.add(entry.getKey().replace('/', '.'));
+          }
+        }
+      }
+      for (String className : unreadable) {
+        ++result.numClasses;
+        result.classNames.add(className.replace('/', '.'));
+      }
+      Collections.sort(result.classNames);
     } catch (Exception | Error e) {
-      LX.error(e, "Unhandled exception loading JAR file " + file + " - " + e.getLocalizedMessage());
-      pack.setError(e);
+      result.error = e;
     }
+    return result;
+  }
 
+  private void loadJarFile(ScanResult result) {
+    final File file = result.jarFile;
+    LX.log("Loading package content from: " + file + (result.cached ? " (indexed)" : ""));
+    Package pack = new Package(file);
+    if (result.error != null) {
+      if (result.error instanceof IOException) {
+        LX.error(result.error, "IOException unpacking JAR file " + file + " - " + result.error.getLocalizedMessage());
+      } else {
+        LX.error(result.error, "Unhandled exception loading JAR file " + file + " - " + result.error.getLocalizedMessage());
+      }
+      pack.setError(result.error);
+    } else {
+      pack.numClasses = result.numClasses;
+      for (String className : result.classNames) {
+        loadClassEntry(pack, file, className);
+      }
+    }
     this.lx.registry.addPackage(pack);
   }
 
@@ -181,7 +280,7 @@ public class LXClassLoader extends URLClassLoader {
     return fileName.substring(0, fileName.length() - ".class".length());
   }
 
-  private void loadClassEntry(Package pack, JarFile jarFile, String className) {
+  private void loadClassEntry(Package pack, File jarFile, String className) {
     try {
       // This might be slightly slower, but just let URL loader find it...
       // Let's not re-invent the wheel on parsing JAR files and all that.
@@ -198,7 +297,6 @@ public class LXClassLoader extends URLClassLoader {
       // Register all public, non-abstract components that we discover
       int modifiers = clz.getModifiers();
       if (Modifier.isPublic(modifiers) && !Modifier.isAbstract(modifiers)) {
-        ++pack.numClasses;
         this.classes.add(clz);
         this.lx.registry.addClass(clz);
       }
@@ -210,4 +308,255 @@ public class LXClassLoader extends URLClassLoader {
     }
   }
 
+  /**
+   * Base types which make a class eligible for registration
+   */
+  private static final Class<?>[] COMPONENT_TYPES = {
+    LXPattern.class,
+    LXEffect.class,
+    LXModulator.class,
+    LXFixture.class,
+    LXPlugin.class
+  };
+
+  private final Map<String, Boolean> externalComponentTypes = new ConcurrentHashMap<String, Boolean>();
+
+  /**
+   * Determines from class headers alone whether a class extends or implements
+   * one of the component types. Supertypes that live outside of this JAR file
+   * are resolved, without initialization, against the parent class loader.
+   * Anything that can't be resolved is conservatively assumed to be a component,
+   * the registry will discard it once loaded if it is not.
+   */
+  private boolean isComponent(String className, Map<String, ClassHeader> headers) {
+    ClassHeader header = headers.get(className);
+    if (header == null) {
+      return isExternalComponent(className);
+    }
+    if ((header.superName != null) && isComponent(header.superName, headers)) {
+      return true;
+    }
+    for (String interfaceName : header.interfaceNames) {
+      if (isComponent(interfaceName, headers)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isExternalComponent(String className) {
+    return this.externalComponentTypes.computeIfAbsent(className, name -> {
+      if (name.startsWith("java/")) {
+        return false;
+      }
+      try {
+        Class<?> clz = Class.forName(name.replace('/', '.'), false, getParent());
+        for (Class<?> type : COMPONENT_TYPES) {
+          if (type.isAssignableFrom(clz)) {
+            return true;
+          }
+        }
+        return false;
+      } catch (ClassNotFoundException | LinkageError x) {
+        // Probably defined in another content package
+        return true;
+      }
+    });
+  }
+
+  /**
+   * Minimal reader for the header of a class file: access flags, name, super
+   * class and interfaces. The constant pool is walked only as far as needed
+   * to resolve those names.
+   */
+  private static class ClassHeader {
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ABSTRACT = 0x0400;
+
+    private final int accessFlags;
+    private final String superName;
+    private final String[] interfaceNames;
+
+    private ClassHeader(InputStream is) throws IOException {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+      if (in.readInt() != 0xCAFEBABE) {
+        throw new IOException("Invalid class file magic number");
+      }
+      in.readUnsignedShort(); // minor version
+      in.readUnsignedShort(); // major version
+
+      final int poolSize = in.readUnsignedShort();
+      final String[] utf8 = new String[poolSize];
+      final int[] classNameIndex = new int[poolSize];
+      for (int i = 1; i < poolSize; ++i) {
+        final int tag = in.readUnsignedByte();
+        switch (tag) {
+        case 1: // Utf8
+          utf8[i] = in.readUTF();
+          break;
+        case 7: // Class
+          classNameIndex[i] = in.readUnsignedShort();
+          break;
+        case 8: // String
+        case 16: // MethodType
+        case 19: // Module
+        case 20: // Package
+          in.skipBytes(2);
+          break;
+        case 15: // MethodHandle
+          in.skipBytes(3);
+          break;
+        case 3: // Integer
+        case 4: // Float
+        case 9: // Fieldref
+        case 10: // Methodref
+        case 11: // InterfaceMethodref
+        case 12: // NameAndType
+        case 17: // Dynamic
+        case 18: // InvokeDynamic
+          in.skipBytes(4);
+          break;
+        case 5: // Long
+        case 6: // Double
+          in.skipBytes(8);
+          ++i; // Takes two slots
+          break;
+        default:
+          throw new IOException("Unknown constant pool tag: " + tag);
+        }
+      }
+
+      this.accessFlags = in.readUnsignedShort();
+      in.readUnsignedShort(); // this_class
+      final int superIndex = in.readUnsignedShort();
+      this.superName = (superIndex == 0) ? null : utf8[classNameIndex[superIndex]];
+      this.interfaceNames = new String[in.readUnsignedShort()];
+      for (int i = 0; i < this.interfaceNames.length; ++i) {
+        this.interfaceNames[i] = utf8[classNameIndex[in.readUnsignedShort()]];
+      }
+    }
+
+    private boolean isConcrete() {
+      return
+        ((this.accessFlags & ACC_PUBLIC) != 0) &&
+        ((this.accessFlags & (ACC_INTERFACE | ACC_ABSTRACT)) == 0);
+    }
+  }
+
+  private static final String CONTENT_INDEX_FILE_NAME = ".lxcontentindex";
+
+  /**
+   * Persistent record of the component classes found in each JAR file, keyed
+   * by path and validated against size and modification time, so that unchanged
+   * packages need not be scanned at all. The whole index is discarded when
+   * either its format or the LX version changes, since the component types that
+   * packages are checked against may have moved.
+   */
+  private static class ContentIndex {
+
+    private static final int VERSION = 2;
+
+    private static final String KEY_VERSION = "version";
+    private static final String KEY_LX_VERSION = "lxVersion";
+    private static final String KEY_PACKAGES = "packages";
+    private static final String KEY_SIZE = "size";
+    private static final String KEY_MODIFIED = "modified";
+    private static final String KEY_CLASSES = "classes";
+    private static final String KEY_NUM_CLASSES = "numClasses";
+
+    private final File file;
+    private final JsonObject packages;
+
+    private ContentIndex(File file) {
+      this.file = file;
+      JsonObject packages = null;
+      if (file.exists()) {
+        try (FileReader fr = new FileReader(file)) {
+          JsonObject obj = new Gson().fromJson(fr, JsonObject.class);
+          if ((obj != null) &&
+              obj.has(KEY_VERSION) && (obj.get(KEY_VERSION).getAsInt() == VERSION) &&
+              obj.has(KEY_LX_VERSION) && LX.VERSION.equals(obj.get(KEY_LX_VERSION).getAsString())) {
+            packages = obj.getAsJsonObject(KEY_PACKAGES);
+          }
+        } catch (Exception x) {
+          LX.error(x, "Could not read content index, packages will be rescanned: " + file);
+        }
+      }
+      this.packages = (packages != null) ? packages : new JsonObject();
+    }
+
+    private static String key(File jarFile) {
+      return jarFile.getAbsolutePath();
+    }
+
+    private ScanResult get(File jarFile) {
+      JsonElement element = this.packages.get(key(jarFile));
+      if ((element == null) || !element.isJsonObject()) {
+        return null;
+      }
+      JsonObject entry = element.getAsJsonObject();
+      try {
+        if ((entry.get(KEY_SIZE).getAsLong() != jarFile.length()) ||
+            (entry.get(KEY_MODIFIED).getAsLong() != jarFile.lastModified())) {
+          return null;
+        }
+        ScanResult result = new ScanResult(jarFile, new ArrayList<String>(), true);
+        for (JsonElement className : entry.getAsJsonArray(KEY_CLASSES)) {
+          result.classNames.add(className.getAsString());
+        }
+        result.numClasses = entry.get(KEY_NUM_CLASSES).getAsInt();
+        return result;
+      } catch (Exception x) {
+        return null;
+      }
+    }
+
+    private void put(ScanResult result) {
+      JsonObject entry = new JsonObject();
+      entry.addProperty(KEY_SIZE, result.jarFile.length());
+      entry.addProperty(KEY_MODIFIED, result.jarFile.lastModified());
+      JsonArray classes = new JsonArray();
+      for (String className : result.classNames) {
+        classes.add(className);
+      }
+      entry.add(KEY_CLASSES, classes);
+      entry.addProperty(KEY_NUM_CLASSES, result.numClasses);
+      this.packages.add(key(result.jarFile), entry);
+    }
+
+    /**
+     * Drops entries for JAR files that are no longer present
+     *
+     * @return Whether any entries were removed
+     */
+    private boolean retain(List<File> jarFiles) {
+      Set<String> keys = new HashSet<String>();
+      for (File jarFile : jarFiles) {
+        keys.add(key(jarFile));
+      }
+      boolean removed = false;
+      for (String key : new ArrayList<String>(this.packages.keySet())) {
+        if (!keys.contains(key)) {
+          this.packages.remove(key);
+          removed = true;
+        }
+      }
+      return removed;
+    }
+
+    private void save() {
+      JsonObject obj = new JsonObject();
+      obj.addProperty(KEY_VERSION, VERSION);
+      obj.addProperty(KEY_LX_VERSION, LX.VERSION);
+      obj.add(KEY_PACKAGES, this.packages);
+      try (JsonWriter writer = new JsonWriter(new FileWriter(this.file))) {
+        new GsonBuilder().create().toJson(obj, writer);
+      } catch (Exception x) {
+        LX.error(x, "Could not write content index: " + this.file);
+      }
+    }
+  }
+
 }
@@ -21,7 +21,6 @@ package heronarts.lx;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +36,7 @@ import heronarts.lx.osc.OscInt;
 import heronarts.lx.osc.OscMessage;
 import heronarts.lx.parameter.AggregateParameter;
 import heronarts.lx.parameter.BooleanParameter;
+import heronarts.lx.parameter.BoundedParameter;
 import heronarts.lx.parameter.CompoundParameter;
 import heronarts.lx.parameter.DiscreteParameter;
 import heronarts.lx.parameter.LXListenableParameter;
@@ -44,6 +44,7 @@ import heronarts.lx.parameter.LXNormalizedParameter;
 import heronarts.lx.parameter.LXParameter;
 import heronarts.lx.parameter.LXParameterListener;
 import heronarts.lx.parameter.StringParameter;
+import heronarts.lx.utils.LXRandom;
 
 /**
  * Core base class for any component in the LX tree. This class supports the
@@ -108,6 +109,8 @@ public abstract class LXComponent implements LXPath, LXParameterListener, LXSeri
 
   private String description = null;
 
+  private LXRandom random = null;
+
   /**
    * The user-facing label of this component. May be editable if this LXComponent
    * class implements the {@link Renamable} interface.
@@ -144,15 +147,130 @@ public abstract class LXComponent implements LXPath, LXParameterListener, LXSeri
     boolean modelImporting = false;
     boolean scheduleLoading = false;
 
+    /**
+     * Open-addressed map from component id to component. Lookups neither box
+     * the id nor allocate, and removal uses backward-shift deletion so the table
+     * never accumulates tombstones as components come and go. Storage shrinks
+     * again once a large project has been unloaded.
+     */
+    static final class ComponentMap {
+
+      private static final int MIN_CAPACITY = 256;
+
+      private int[] keys = new int[MIN_CAPACITY];
+      private LXComponent[] values = new LXComponent[MIN_CAPACITY];
+      private int shift = Integer.SIZE - Integer.numberOfTrailingZeros(MIN_CAPACITY);
+      private int size = 0;
+
+      private int slot(int key) {
+        // Fibonacci hashing, spreads sequential ids evenly
+        return (key * 0x9E3779B9) >>> this.shift;
+      }
+
+      LXComponent get(int key) {
+        final int mask = this.keys.length - 1;
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+          final LXComponent value = this.values[i];
+          if (value == null) {
+            return null;
+          }
+          if (this.keys[i] == key) {
+            return value;
+          }
+        }
+      }
+
+      boolean containsKey(int key) {
+        return get(key) != null;
+      }
+
+      void put(int key, LXComponent value) {
+        if (value == null) {
+          throw new IllegalArgumentException("ComponentMap may not store null values");
+        }
+        if (2 * (this.size + 1) > this.keys.length) {
+          resize(this.keys.length * 2);
+        }
+        final int mask = this.keys.length - 1;
+        int i = slot(key);
+        while (this.values[i] != null) {
+          if (this.keys[i] == key) {
+            this.values[i] = value;
+            return;
+          }
+          i = (i + 1) & mask;
+        }
+        this.keys[i] = key;
+        this.values[i] = value;
+        ++this.size;
+      }
+
+      void remove(int key) {
+        final int mask = this.keys.length - 1;
+        int i = slot(key);
+        while (true) {
+          if (this.values[i] == null) {
+            return;
+          }
+          if (this.keys[i] == key) {
+            break;
+          }
+          i = (i + 1) & mask;
+        }
+        // Shift back any following entries that probed past this slot
+        int hole = i;
+        for (int j = (hole + 1) & mask; this.values[j] != null; j = (j + 1) & mask) {
+          final int home = slot(this.keys[j]);
+          if (((j - home) & mask) >= ((j - hole) & mask)) {
+            this.keys[hole] = this.keys[j];
+            this.values[hole] = this.values[j];
+            hole = j;
+          }
+        }
+        this.values[hole] = null;
+        --this.size;
+        if ((this.keys.length > MIN_CAPACITY) && (8 * this.size < this.keys.length)) {
+          resize(this.keys.length / 2);
+        }
+      }
+
+      void clear() {
+        if (this.size > 0) {
+          this.keys = new int[MIN_CAPACITY];
+          this.values = new LXComponent[MIN_CAPACITY];
+          this.shift = Integer.SIZE - Integer.numberOfTrailingZeros(MIN_CAPACITY);
+          this.size = 0;
+        }
+      }
+
+      int size() {
+        return this.size;
+      }
+
+      private void resize(int capacity) {
+        final int[] oldKeys = this.keys;
+        final LXComponent[] oldValues = this.values;
+        this.keys = new int[capacity];
+        this.values = new LXComponent[capacity];
+        this.shift = Integer.SIZE - Integer.numberOfTrailingZeros(capacity);
+        this.size = 0;
+        for (int i = 0; i < oldValues.length; ++i) {
+          if (oldValues[i] != null) {
+            put(oldKeys[i], oldValues[i]);
+          }
+        }
+      }
+    }
+
     // Global map of ID to component
-    private final Map<Integer, LXComponent> components = new HashMap<Integer, LXComponent>();
+    private final ComponentMap components = new ComponentMap();
 
     // Utility map that is used to manage ID collisions. If we load an old project file, the
     // IDs that is specifies for its objects may collide with existing IDs due to changes in the
     // core components of the LX framework. In this case, we reassign new IDs to those components
     // loaded from the project file, and keep track of a mapping between the ID from the project
     // file to their new globally unique ID in the LX id-space
-    private final Map<Integer, LXComponent> projectIdMap = new HashMap<Integer, LXComponent>();
+    private final ComponentMap projectIdMap = new ComponentMap();
 
     /**
      * Retrieves the component with this globally unique id
@@ -515,6 +633,22 @@ public abstract class LXComponent implements LXPath, LXParameterListener, LXSeri
     return this.id;
   }
 
+  /**
+   * Random number generator owned by this component. It is seeded from
+   * {@link LX.Flags#randomSeed} and the component id, so output is reproducible
+   * for a fixed seed. Not thread-safe, it should only be used from the thread
+   * that runs this component.
+   *
+   * @return Random number generator for this component
+   */
+  public final LXRandom getRandom() {
+    if (this.random == null) {
+      final long seed = (this.lx != null) ? this.lx.flags.randomSeed : System.nanoTime();
+      this.random = new LXRandom(seed ^ LXRandom.mix(this.id));
+    }
+    return this.random;
+  }
+
   /**
    * Accessor for this component's OSC path relative to its parent. This by default
    * is no different from {@link #getPath()}, but certain subclasses may modify this
@@ -985,7 +1119,11 @@ public abstract class LXComponent implements LXPath, LXParameterListener, LXSeri
     if (parameter instanceof LXListenableParameter) {
       ((LXListenableParameter) parameter).addListener(this);
       if (this instanceof LXOscComponent) {
-        ((LXListenableParameter) parameter).addListener(this.oscListener);
+        if (isDeferredOsc(parameter)) {
+          ((LXListenableParameter) parameter).addDeferredListener(this.oscListener);
+        } else {
+          ((LXListenableParameter) parameter).addListener(this.oscListener);
+        }
       }
     }
     if (parameter instanceof AggregateParameter) {
@@ -1041,7 +1179,11 @@ public abstract class LXComponent implements LXPath, LXParameterListener, LXSeri
     if (parameter instanceof LXListenableParameter) {
       ((LXListenableParameter) parameter).removeListener(this);
       if (this instanceof LXOscComponent) {
-        ((LXListenableParameter) parameter).removeListener(this.oscListener);
+        if (isDeferredOsc(parameter)) {
+          ((LXListenableParameter) parameter).removeDeferredListener(this.oscListener);
+        } else {
+          ((LXListenableParameter) parameter).removeListener(this.oscListener);
+        }
       }
     }
     this.parameters.remove(parameter.getPath());
@@ -1071,7 +1213,14 @@ public abstract class LXComponent implements LXPath, LXParameterListener, LXSeri
     return this.parameters.get(path);
   }
 
-  // OSC internal implementation, catches parameter value changes and sends OSC messages
+  // Continuous parameters send OSC from a deferred listener, so that a sweep sends at
+  // most one message per frame. Everything else, notably momentary triggers that may go
+  // on and off within a single frame, must send every change synchronously.
+  private static boolean isDeferredOsc(LXParameter parameter) {
+    return parameter instanceof BoundedParameter;
+  }
+
+  // OSC internal implementation, catches parameter value changes and sends OSC messages.
   private final LXParameterListener oscListener = (p) -> {
     // These checks are necessary for bootstrapping, before the OSC engine is spun up
     if ((this.lx != null) && (this.lx.engine != null) && (this.lx.engine.osc != null)) {
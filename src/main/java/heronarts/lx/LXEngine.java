@@ -37,10 +37,12 @@ import heronarts.lx.output.LXOutput;
 import heronarts.lx.output.LXOutputGroup;
 import heronarts.lx.parameter.BooleanParameter;
 import heronarts.lx.parameter.BoundedParameter;
+import heronarts.lx.parameter.DeferredListenerQueue;
 import heronarts.lx.parameter.LXParameter;
 import heronarts.lx.pattern.LXPattern;
 import heronarts.lx.snapshot.LXSnapshotEngine;
 import heronarts.lx.structure.LXFixture;
+import heronarts.lx.utils.LXUtils;
 import java.net.SocketException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -88,6 +90,9 @@ public class LXEngine extends LXComponent implements LXOscComponent, LXModulatio
   private final List<Runnable> threadSafeTaskQueue = Collections.synchronizedList(new ArrayList<Runnable>());
   private final List<Runnable> engineThreadTaskQueue = new ArrayList<Runnable>();
 
+  private Frame holdFrame = null;
+  private double holdAmount = 0;
+
   public final Output output;
 
   public final BoundedParameter framesPerSecond = (BoundedParameter)
@@ -105,6 +110,12 @@ public class LXEngine extends LXComponent implements LXOscComponent, LXModulatio
 
   public final LXModulationEngine modulation;
 
+  /**
+   * Coalesced notifications for deferred parameter listeners, dispatched once
+   * per pass of input processing
+   */
+  public final DeferredListenerQueue deferredListeners = new DeferredListenerQueue();
+
   public final LXSnapshotEngine snapshots;
 
   private boolean logProfiler = false;
@@ -345,6 +356,13 @@ public class LXEngine extends LXComponent implements LXOscComponent, LXModulatio
    */
   public long nowMillis = System.currentTimeMillis();
 
+  /**
+   * System.nanoTime() sampled at the start of the current frame
+   */
+  public long nowNanos = System.nanoTime();
+
+  private long inputEventNanos = -1;
+
   LXEngine(final LX lx) {
     super(lx, LXComponent.ID_ENGINE, "Engine");
     LX.initProfiler.log("Engine: Init");
@@ -474,6 +492,59 @@ public class LXEngine extends LXComponent implements LXOscComponent, LXModulatio
     return this;
   }
 
+  /**
+   * Fixed deltaMs between frames, if one has been set
+   *
+   * @return Fixed deltaMs, or 0 if frames run in real-time
+   */
+  public double getFixedDeltaMs() {
+    return this.fixedDeltaMs;
+  }
+
+  /**
+   * Invoked by input dispatchers (MIDI, OSC) on the engine thread to mark the
+   * receive time of the event that is currently being dispatched. Pass -1 once
+   * dispatch of the event is complete.
+   *
+   * @param nanoTime System.nanoTime() at which the event was received, or -1
+   * @return this
+   */
+  public LXEngine setInputEventNanos(long nanoTime) {
+    this.inputEventNanos = nanoTime;
+    return this;
+  }
+
+  /**
+   * Gets the receive time of the input event currently being dispatched. Components
+   * that are triggered by input may use this to compute their phase from the true
+   * event time rather than the frame boundary.
+   *
+   * @return System.nanoTime() of the current input event, or -1 if not dispatching input
+   */
+  public long getInputEventNanos() {
+    return this.inputEventNanos;
+  }
+
+  /**
+   * Computes how much of the upcoming frame's deltaMs has actually elapsed since
+   * an input event was received. Events are dispatched before the frame that
+   * follows them, so a component triggered by an event should only advance by
+   * the time from the event to the frame start, not the whole frame interval.
+   * The frame deltaMs is expected to already be scaled by the engine speed, so
+   * the wall-clock time since the event is scaled by the same factor.
+   *
+   * @param eventNanos System.nanoTime() at which the event was received, or -1
+   * @param deltaMs Frame deltaMs, scaled by engine speed
+   * @return Elapsed milliseconds since the event, clamped to [0, deltaMs]
+   */
+  public double getElapsedSinceInputMs(long eventNanos, double deltaMs) {
+    if ((eventNanos < 0) || (this.fixedDeltaMs > 0)) {
+      return deltaMs;
+    }
+    final double elapsedMs = (this.nowNanos - eventNanos) / (double) NANOS_PER_MS;
+    return LXUtils.constrain(elapsedMs * this.speed.getValue(), 0, deltaMs);
+  }
+
   /**
    * Starts the engine thread.
    */
@@ -975,6 +1046,10 @@ public class LXEngine extends LXComponent implements LXOscComponent, LXModulatio
       this.inputDispatch.dispatch();
       this.profiler.inputNanos = System.nanoTime() - inputStart;
     }
+
+    // Notify deferred parameter listeners, coalescing all the changes
+    // since the last pass
+    this.deferredListeners.dispatch();
   }
 
   private void _run(boolean fromEngineThread) {
@@ -984,6 +1059,7 @@ public class LXEngine extends LXComponent implements LXOscComponent, LXModulatio
     long runStart = System.nanoTime();
 
     // Compute elapsed time
+    this.nowNanos = runStart;
     this.nowMillis = System.currentTimeMillis();
     if (this.lastMillis == INIT_RUN) {
       // Initial frame is set to be the framerate
@@ -1110,6 +1186,19 @@ public class LXEngine extends LXComponent implements LXOscComponent, LXModulatio
       }
     }
 
+    // Crossfade out of a held frame, e.g. the last frame of a previous project
+    final Frame holdFrame = this.holdFrame;
+    if (holdFrame != null) {
+      final int[] hold = holdFrame.main;
+      final int[] main = this.buffer.render.main;
+      final int alpha = (int) (this.holdAmount * 0x100);
+      if ((alpha > 0) && (hold.length == main.length)) {
+        for (int i = 0; i < main.length; ++i) {
+          main[i] = LXColor.lerp(main[i], hold[i], alpha);
+        }
+      }
+    }
+
     // Step 5: our cue and render frames are ready! Let's get them output
     boolean isNetworkMultithreaded = this.isNetworkMultithreaded.isOn();
     boolean isDoubleBuffering = isThreaded()|| isNetworkMultithreaded;
@@ -1229,6 +1318,22 @@ public class LXEngine extends LXComponent implements LXOscComponent, LXModulatio
     }
   }
 
+  /**
+   * Blends a static frame over the main render output. This is used to
+   * crossfade from the final frame of a previous project into a newly loaded
+   * one. The frame is ignored if its size does not match the current model.
+   * Must be called from the engine thread.
+   *
+   * @param frame Frame to hold, or null to clear
+   * @param amount Amount of the held frame to mix in, from 0-1
+   * @return this
+   */
+  public LXEngine setHoldFrame(Frame frame, double amount) {
+    this.holdFrame = frame;
+    this.holdAmount = amount;
+    return this;
+  }
+
   /**
    * This should be used when in threaded mode. It synchronizes on the
    * double-buffer and duplicates the internal copy buffer into the provided
@@ -169,10 +169,24 @@ public abstract class LXModulatorComponent extends LXComponent implements LXLoop
   @Override
   public void loop(double deltaMs) {
     for (LXModulator modulator : this.mutableModulators) {
-      this.loopingModulator = modulator;
+      loopModulator(modulator, deltaMs);
+    }
+  }
+
+  /**
+   * Runs a single modulator of this component, for subclasses that need to
+   * control the order in which modulators are run.
+   *
+   * @param modulator Modulator to run
+   * @param deltaMs Milliseconds elapsed
+   */
+  protected final void loopModulator(LXModulator modulator, double deltaMs) {
+    this.loopingModulator = modulator;
+    try {
       modulator.loop(deltaMs);
+    } finally {
+      this.loopingModulator = null;
     }
-    this.loopingModulator = null;
   }
 
 }
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.lx;
+
+import heronarts.lx.audio.LXAudioEngine;
+import heronarts.lx.audio.LXAudioFileSource;
+
+/**
+ * Renders the engine offline at a fixed frame step, as fast as frames can be
+ * computed. When an audio file source is supplied, audio is delivered in
+ * lockstep with the frames, so audio-reactive content renders the same way on
+ * every run. Per-frame render cost and a checksum of the rendered colors are
+ * collected, which makes this suitable for regression and performance testing.
+ *
+ * The engine must not be running on its own thread while rendering offline.
+ * The engine's fixed deltaMs, and the audio file source, mode and meter state,
+ * are restored to what they were once each render finishes.
+ */
+public class LXOfflineRender {
+
+  public interface Listener {
+    /**
+     * Invoked after each frame is rendered
+     *
+     * @param frameIndex Index of the frame, from 0
+     * @param frame Rendered frame
+     */
+    public void onFrame(int frameIndex, LXEngine.Frame frame);
+  }
+
+  public static class Stats {
+
+    /**
+     * Number of frames rendered
+     */
+    public int frames = 0;
+
+    /**
+     * Total time spent rendering, in nanoseconds
+     */
+    public long totalNanos = 0;
+
+    /**
+     * Longest time spent rendering a single frame, in nanoseconds
+     */
+    public long maxNanos = 0;
+
+    /**
+     * Running hash of the main colors of every rendered frame, identical
+     * renders produce identical checksums
+     */
+    public long checksum = 0;
+
+    public double getAverageMs() {
+      return (this.frames > 0) ? this.totalNanos / (1000000. * this.frames) : 0;
+    }
+
+    public double getMaxMs() {
+      return this.maxNanos / 1000000.;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d frames, avg %.3fms, max %.3fms, checksum %016x", this.frames, getAverageMs(), getMaxMs(), this.checksum);
+    }
+  }
+
+  private final LX lx;
+  private final double deltaMs;
+  private final LXEngine.Frame frame;
+
+  private LXAudioFileSource audio = null;
+
+  /**
+   * Creates an offline renderer
+   *
+   * @param lx LX instance
+   * @param deltaMs Fixed time step between frames
+   */
+  public LXOfflineRender(LX lx, double deltaMs) {
+    if (deltaMs <= 0) {
+      throw new IllegalArgumentException("LXOfflineRender deltaMs must be positive: " + deltaMs);
+    }
+    this.lx = lx;
+    this.deltaMs = deltaMs;
+    this.frame = new LXEngine.Frame(lx);
+  }
+
+  /**
+   * Sets the audio file that drives the audio engine during the render
+   *
+   * @param audio Audio file source, or null for none
+   * @return this
+   */
+  public LXOfflineRender setAudio(LXAudioFileSource audio) {
+    this.audio = audio;
+    return this;
+  }
+
+  /**
+   * Renders until the audio file source is exhausted
+   *
+   * @param listener Listener for rendered frames, may be null
+   * @return Render statistics
+   */
+  public Stats renderAudio(Listener listener) {
+    if (this.audio == null) {
+      throw new IllegalStateException("LXOfflineRender.renderAudio() requires an audio file source");
+    }
+    return render(Integer.MAX_VALUE, listener);
+  }
+
+  /**
+   * Renders a number of frames. If an audio file source is set, rendering also
+   * stops when it has been exhausted.
+   *
+   * @param numFrames Number of frames to render
+   * @param listener Listener for rendered frames, may be null
+   * @return Render statistics
+   */
+  public Stats render(int numFrames, Listener listener) {
+    if (this.lx.engine.isThreaded()) {
+      throw new IllegalStateException("LXOfflineRender may not be used while the engine is threaded");
+    }
+    final Stats stats = new Stats();
+
+    // Whatever the host had set up is put back once the render is done
+    final LXAudioEngine audioEngine = this.lx.engine.audio;
+    final double previousDeltaMs = this.lx.engine.getFixedDeltaMs();
+    final LXAudioFileSource previousSource = audioEngine.getFileSource();
+    final LXAudioEngine.Mode previousMode = audioEngine.mode.getEnum();
+    final boolean previousMeterRunning = audioEngine.meter.running.isOn();
+
+    this.lx.engine.setFixedDeltaMs(this.deltaMs);
+    if (this.audio != null) {
+      audioEngine.setFileSource(this.audio);
+    }
+    try {
+      for (int i = 0; i < numFrames; ++i) {
+        if (this.audio != null && this.audio.isFinished()) {
+          break;
+        }
+        long start = System.nanoTime();
+        this.lx.engine.run();
+        long nanos = System.nanoTime() - start;
+        stats.totalNanos += nanos;
+        stats.maxNanos = Math.max(stats.maxNanos, nanos);
+        ++stats.frames;
+
+        this.lx.engine.getFrameNonThreadSafe(this.frame);
+        long checksum = stats.checksum;
+        for (int color : this.frame.getMain()) {
+          checksum = 31 * checksum + color;
+        }
+        stats.checksum = checksum;
+
+        if (listener != null) {
+          listener.onFrame(i, this.frame);
+        }
+      }
+    } finally {
+      if (this.audio != null) {
+        audioEngine.setFileSource(previousSource);
+        audioEngine.mode.setValue(previousMode);
+        audioEngine.meter.running.setValue(previousMeterRunning);
+      }
+      this.lx.engine.setFixedDeltaMs(previousDeltaMs);
+    }
+    return stats;
+  }
+
+}
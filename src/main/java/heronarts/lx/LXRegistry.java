@@ -38,6 +38,9 @@ import heronarts.lx.blend.DifferenceBlend;
 import heronarts.lx.blend.DissolveBlend;
 import heronarts.lx.blend.LXBlend;
 import heronarts.lx.blend.LightestBlend;
+import heronarts.lx.blend.LinearAddBlend;
+import heronarts.lx.blend.LinearDissolveBlend;
+import heronarts.lx.blend.LinearNormalBlend;
 import heronarts.lx.blend.MultiplyBlend;
 import heronarts.lx.blend.NormalBlend;
 import heronarts.lx.blend.SubtractBlend;
@@ -124,6 +127,7 @@ public class LXRegistry implements LXSerializable {
   static {
     DEFAULT_EFFECTS = new ArrayList<Class<? extends LXEffect>>();
     DEFAULT_EFFECTS.add(heronarts.lx.effect.BlurEffect.class);
+    DEFAULT_EFFECTS.add(heronarts.lx.effect.SpatialBlurEffect.class);
     DEFAULT_EFFECTS.add(heronarts.lx.effect.color.ColorizeEffect.class);
     DEFAULT_EFFECTS.add(heronarts.lx.effect.DynamicsEffect.class);
     DEFAULT_EFFECTS.add(heronarts.lx.effect.InvertEffect.class);
@@ -141,6 +145,7 @@ public class LXRegistry implements LXSerializable {
     DEFAULT_MODULATORS.add(heronarts.lx.modulator.MultiModeEnvelope.class);
     DEFAULT_MODULATORS.add(heronarts.lx.modulator.Randomizer.class);
     DEFAULT_MODULATORS.add(heronarts.lx.audio.BandGate.class);
+    DEFAULT_MODULATORS.add(heronarts.lx.audio.OnsetDetect.class);
     DEFAULT_MODULATORS.add(heronarts.lx.modulator.Timer.class);
     DEFAULT_MODULATORS.add(heronarts.lx.modulator.MacroKnobs.class);
   };
@@ -153,6 +158,8 @@ public class LXRegistry implements LXSerializable {
     DEFAULT_CHANNEL_BLENDS.add(SubtractBlend.class);
     DEFAULT_CHANNEL_BLENDS.add(DifferenceBlend.class);
     DEFAULT_CHANNEL_BLENDS.add(NormalBlend.class);
+    DEFAULT_CHANNEL_BLENDS.add(LinearAddBlend.class);
+    DEFAULT_CHANNEL_BLENDS.add(LinearNormalBlend.class);
   }
 
   private static final List<Class<? extends LXBlend>> DEFAULT_TRANSITION_BLENDS;
@@ -164,6 +171,7 @@ public class LXRegistry implements LXSerializable {
     DEFAULT_TRANSITION_BLENDS.add(LightestBlend.class);
     DEFAULT_TRANSITION_BLENDS.add(DarkestBlend.class);
     DEFAULT_TRANSITION_BLENDS.add(DifferenceBlend.class);
+    DEFAULT_TRANSITION_BLENDS.add(LinearDissolveBlend.class);
   }
 
   private static final List<Class<? extends LXBlend>> DEFAULT_CROSSFADER_BLENDS;
@@ -175,6 +183,7 @@ public class LXRegistry implements LXSerializable {
     DEFAULT_CROSSFADER_BLENDS.add(LightestBlend.class);
     DEFAULT_CROSSFADER_BLENDS.add(DarkestBlend.class);
     DEFAULT_CROSSFADER_BLENDS.add(DifferenceBlend.class);
+    DEFAULT_CROSSFADER_BLENDS.add(LinearDissolveBlend.class);
   }
 
   private static final List<Class<? extends LXFixture>> DEFAULT_FIXTURES;
@@ -25,6 +25,8 @@ public abstract class LXRunnableComponent extends LXComponent implements LXLoopT
 
   protected double runMs = 0;
 
+  private long inputEventNanos = -1;
+
   /**
    * Whether this modulator is currently running.
    */
@@ -60,12 +62,14 @@ public abstract class LXRunnableComponent extends LXComponent implements LXLoopT
     super.onParameterChanged(parameter);
     if (parameter == this.running) {
       if (this.running.isOn()) {
+        syncToInputEvent();
         onStart();
       } else {
         onStop();
       }
     } else if (parameter == this.trigger) {
       if (this.trigger.isOn()) {
+        syncToInputEvent();
         onTrigger();
         onReset();
         start();
@@ -161,8 +165,25 @@ public abstract class LXRunnableComponent extends LXComponent implements LXLoopT
   }
 
 
+  /**
+   * Subclasses should invoke this method whenever their phase is reset in
+   * response to a state change. If that change was caused by a timestamped
+   * MIDI or OSC input event, the next loop will only advance by the time
+   * that has actually elapsed since the event, rather than a full frame.
+   */
+  protected final void syncToInputEvent() {
+    // Components may be started while the engine itself is being constructed
+    if (this.lx != null && this.lx.engine != null) {
+      this.inputEventNanos = this.lx.engine.getInputEventNanos();
+    }
+  }
+
   @Override
   public void loop(double deltaMs) {
+    if (this.inputEventNanos >= 0) {
+      deltaMs = this.lx.engine.getElapsedSinceInputMs(this.inputEventNanos, deltaMs);
+      this.inputEventNanos = -1;
+    }
     if (this.running.isOn()) {
       this.runMs += deltaMs;
       run(deltaMs);
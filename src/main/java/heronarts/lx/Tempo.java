@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
+import heronarts.lx.audio.BeatTracker;
 import heronarts.lx.modulator.LinearEnvelope;
 import heronarts.lx.osc.LXOscComponent;
 import heronarts.lx.osc.OscMessage;
@@ -34,8 +35,8 @@ import heronarts.lx.parameter.MutableParameter;
 
 /**
  * Class to represent a musical tempo at which patterns are operating. This can
- * be updated in real-time via invoking the {@link #tap()} method. Note there is no automatic beat detection -
- * the Tempo object must be explicitly {@link #tap()}'d to learn the tempo.
+ * be updated in real-time via invoking the {@link #tap()} method, synced to an external MIDI or OSC clock,
+ * or follow the beat tracker of the audio engine by selecting the AUDIO clock source.
  *
  * "Beats" are indicated by the return value of {@link #beat()}. {@link #ramp()} returns the current beat phase
  * from 0 to 1
@@ -91,7 +92,8 @@ public class Tempo extends LXModulatorComponent implements LXOscComponent {
   public enum ClockSource {
     INTERNAL,
     MIDI,
-    OSC;
+    OSC,
+    AUDIO;
 
     public boolean isLooping() {
       switch (this) {
@@ -99,6 +101,7 @@ public class Tempo extends LXModulatorComponent implements LXOscComponent {
         return true;
       case MIDI:
       case OSC:
+      case AUDIO:
       default:
         return false;
       }
@@ -113,6 +116,7 @@ public class Tempo extends LXModulatorComponent implements LXOscComponent {
       switch (this) {
       case MIDI: return "Midi";
       case OSC: return "Osc";
+      case AUDIO: return "Audio";
       default: case INTERNAL: return "Int";
       }
     }
@@ -181,6 +185,8 @@ public class Tempo extends LXModulatorComponent implements LXOscComponent {
 
   private int beatCount = 0;
 
+  private int audioBeatCount = 0;
+
   private boolean parameterUpdate = false;
 
   public Tempo(LX lx) {
@@ -272,6 +278,9 @@ public class Tempo extends LXModulatorComponent implements LXOscComponent {
         this.trigger.setValue(false);
       }
     } else if (p == this.clockSource) {
+      if (this.clockSource.getEnum() == ClockSource.AUDIO) {
+        this.audioBeatCount = this.lx.engine.audio.beatTracker.getBeatCount();
+      }
       if (this.clockSource.getEnum().isExternal()) {
         // Reset and stop clock, wait for trigger
         this.running = false;
@@ -532,11 +541,32 @@ public class Tempo extends LXModulatorComponent implements LXOscComponent {
     trigger();
   }
 
+  /**
+   * Follows beats from the audio engine's beat tracker when the clock source
+   * is set to AUDIO
+   */
+  private void syncAudioClock() {
+    final BeatTracker tracker = this.lx.engine.audio.beatTracker;
+    final int trackedBeats = tracker.getBeatCount();
+    if (trackedBeats != this.audioBeatCount) {
+      this.audioBeatCount = trackedBeats;
+      double periodMs = tracker.getPeriodMs();
+      if (periodMs > 0) {
+        setPeriod(periodMs);
+      }
+      trigger(false);
+    }
+  }
+
   @Override
   public void loop(double deltaMs) {
     // Run modulators
     super.loop(deltaMs);
 
+    if (this.clockSource.getEnum() == ClockSource.AUDIO) {
+      syncAudioClock();
+    }
+
     boolean isBeat = false;
 
     // Explicit beat trigger, back to the start of the beat
@@ -173,9 +173,9 @@ public class BandGate extends LXModulator implements LXNormalizedParameter, LXTr
    */
   public BandGate(String label, GraphicMeter meter) {
     super(label);
-    this.impl = new LXMeterImpl(meter.numBands, meter.fft.getBandOctaveRatio());
+    this.impl = new LXMeterImpl(meter.numBands, meter.getBandOctaveRatio());
     this.meter = meter;
-    int nyquist = meter.fft.getSampleRate() / 2;
+    int nyquist = meter.getSampleRate() / 2;
     this.minFreq = (BoundedParameter) new BoundedParameter("Min Freq", 60, 0, nyquist)
       .setDescription("Minimum frequency the gate responds to")
       .setExponent(4)
@@ -282,8 +282,9 @@ public class BandGate extends LXModulator implements LXNormalizedParameter, LXTr
     double slopeValue = this.slope.getValue();
 
     // Computes all the underlying bands
+    final LXAudioAnalyzer.Result result = this.meter.getResult();
     this.impl.compute(
-      this.meter.fft,
+      result,
       attackGain,
       releaseGain,
       gainValue,
@@ -291,7 +292,7 @@ public class BandGate extends LXModulator implements LXNormalizedParameter, LXTr
       slopeValue
     );
 
-    float newAverage = this.meter.fft.getAverage(this.minFreq.getValuef(), this.maxFreq.getValuef()) / this.meter.fft.getSize();
+    float newAverage = result.getAverage(this.minFreq.getValuef(), this.maxFreq.getValuef()) / result.getSize();
     float averageGain = (newAverage >= this.averageRaw) ? attackGain : releaseGain;
     this.averageRaw = newAverage + averageGain * (this.averageRaw - newAverage);
     double averageDb = 20 * Math.log(this.averageRaw) / DecibelMeter.LOG_10 + gainValue + slopeValue * this.averageOctave;
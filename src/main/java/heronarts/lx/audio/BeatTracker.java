@@ -0,0 +1,641 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.lx.audio;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import heronarts.lx.utils.LXUtils;
+
+/**
+ * Onset detection and beat tracking over the output of an LXAudioAnalyzer.
+ *
+ * Each analysis block produces one frame of an onset detection function, the
+ * log-compressed positive spectral flux between successive spectra. Onsets are
+ * picked as local peaks of this function above an adaptive threshold. Tempo is
+ * estimated periodically by autocorrelating the recent onset function and
+ * scoring candidate beat periods with a comb over their multiples, weighted
+ * toward moderate tempos. Beat phase is then chosen as the offset at which an
+ * impulse train of that period best lines up with recent onsets, and beats are
+ * emitted by extrapolating from that phase.
+ *
+ * The work per block is bounded, the flux is one pass over the spectrum and
+ * the tempo search runs only every few blocks over a fixed length history.
+ *
+ * The tracker may be attached to an audio buffer, in which case it runs on the
+ * audio thread, or driven directly by calling process() with analysis results,
+ * e.g. when analyzing an audio file offline. Listeners are invoked on whichever
+ * thread calls process(), the published state may be read from any thread.
+ *
+ * Every onset candidate is also published along with the sensitivity needed to
+ * detect it, so that several consumers may share the analysis of one tracker
+ * while applying their own sensitivity, see OnsetCursor.
+ */
+public class BeatTracker implements LXAudioAnalyzer.Listener {
+
+  public interface Listener {
+    /**
+     * Invoked when an onset is detected
+     *
+     * @param tracker Beat tracker
+     * @param position Audio sample position of the onset
+     */
+    public default void onOnset(BeatTracker tracker, long position) {}
+
+    /**
+     * Invoked when a tracked beat occurs
+     *
+     * @param tracker Beat tracker
+     * @param position Audio sample position of the beat
+     */
+    public default void onBeat(BeatTracker tracker, long position) {}
+  }
+
+  /**
+   * Follows the onset candidates published by a tracker, applying its own
+   * sensitivity. A cursor is not thread-safe, but may be polled from a
+   * different thread than the one processing the audio.
+   */
+  public static class OnsetCursor {
+
+    private final BeatTracker tracker;
+    private final double minIntervalSamples;
+
+    private int peak;
+    private long onsetPosition = -1;
+    private long lastOnsetPosition = Long.MIN_VALUE / 2;
+
+    public OnsetCursor(BeatTracker tracker) {
+      this.tracker = tracker;
+      this.minIntervalSamples = MIN_ONSET_INTERVAL_MS * tracker.sampleRate / 1000.;
+      this.peak = tracker.peakCount;
+    }
+
+    public BeatTracker getTracker() {
+      return this.tracker;
+    }
+
+    /**
+     * Consumes all onset candidates published since the last poll
+     *
+     * @param sensitivity Onset detection sensitivity from 0 to 1
+     * @return Number of onsets detected at this sensitivity
+     */
+    public int poll(double sensitivity) {
+      final int peakCount = this.tracker.peakCount;
+      if ((peakCount - this.peak > PEAK_HISTORY) || (this.peak > peakCount)) {
+        // Fell too far behind, or the tracker was reset
+        this.peak = Math.max(0, peakCount - PEAK_HISTORY);
+      }
+      int onsets = 0;
+      for (; this.peak < peakCount; ++this.peak) {
+        final int index = this.peak & PEAK_MASK;
+        final long position = this.tracker.peakPosition[index];
+        final float required = this.tracker.peakSensitivity[index];
+        if (this.tracker.peakCount - this.peak > PEAK_HISTORY) {
+          // Overwritten by the processing thread while reading
+          continue;
+        }
+        if ((sensitivity > required) && (position - this.lastOnsetPosition >= this.minIntervalSamples)) {
+          this.lastOnsetPosition = position;
+          this.onsetPosition = position;
+          ++onsets;
+        }
+      }
+      return onsets;
+    }
+
+    /**
+     * @return Audio sample position of the most recent onset detected by this cursor, or -1
+     */
+    public long getOnsetPosition() {
+      return this.onsetPosition;
+    }
+  }
+
+  public static final double DEFAULT_MIN_BPM = 70;
+  public static final double DEFAULT_MAX_BPM = 180;
+
+  // Number of onset function frames retained for tempo estimation
+  private static final int HISTORY_SIZE = 512;
+  private static final int HISTORY_MASK = HISTORY_SIZE - 1;
+
+  // Tempo is re-estimated every this many frames
+  private static final int TEMPO_INTERVAL = 8;
+
+  // Number of period multiples scored by the comb filter
+  private static final int COMB_SIZE = 4;
+
+  // Number of beats of history used to choose the beat phase
+  private static final int PHASE_BEATS = 4;
+
+  // Number of onset candidates retained for cursors, power of two
+  private static final int PEAK_HISTORY = 64;
+  private static final int PEAK_MASK = PEAK_HISTORY - 1;
+
+  // Number of frames in the adaptive onset threshold window
+  private static final int THRESHOLD_WINDOW = 16;
+
+  // Minimum time between two onsets
+  private static final double MIN_ONSET_INTERVAL_MS = 60;
+
+  // Tempo prior, log-gaussian centered on 120BPM with one octave deviation
+  private static final double PRIOR_BPM = 120;
+  private static final double PRIOR_OCTAVES = 1;
+
+  // Time constant of the long-term onset function average, in frames
+  private static final float LONG_TERM_FRAMES = 200;
+
+  // Compression applied to the spectrum before taking flux
+  private static final float LOG_COMPRESSION = 1000;
+
+  private static final double MS_PER_MINUTE = 60000;
+
+  // Iterated by the processing thread, modified from any thread
+  private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+  private LXAudioAnalyzer analyzer = null;
+
+  private final int sampleRate;
+
+  private volatile double minBpm = DEFAULT_MIN_BPM;
+  private volatile double maxBpm = DEFAULT_MAX_BPM;
+  private volatile double sensitivity = .5;
+
+  // Analysis state, only touched by the processing thread
+  private float[] previousSpectrum = null;
+  private long previousPosition = -1;
+  private long hop = 0;
+  private long frame = 0;
+
+  private final float[] odf = new float[HISTORY_SIZE];
+  private final float[] novelty = new float[HISTORY_SIZE];
+  private final long[] framePosition = new long[HISTORY_SIZE];
+  private final double[] acf = new double[HISTORY_SIZE];
+  private final double[] score = new double[HISTORY_SIZE];
+  private final float[] linear = new float[HISTORY_SIZE];
+
+  private long lastOnsetFrame = Long.MIN_VALUE / 2;
+  private float longTermMean = 0;
+
+  // Onset candidates, written by the processing thread and published by peakCount
+  private final long[] peakPosition = new long[PEAK_HISTORY];
+  private final float[] peakSensitivity = new float[PEAK_HISTORY];
+  private volatile int peakCount = 0;
+
+  // Beat period and phase in frames, 0 when no tempo is established
+  private double periodFrames = 0;
+  private double candidateFrames = 0;
+  private double nextBeatFrame = 0;
+  private double lastBeatFrame = Double.NEGATIVE_INFINITY;
+
+  // Published state
+  private volatile double bpm = 0;
+  private volatile double confidence = 0;
+  private volatile int onsetCount = 0;
+  private volatile long onsetPosition = -1;
+  private volatile int beatCount = 0;
+  private volatile long beatPosition = -1;
+
+  /**
+   * Creates a detached beat tracker, which must be fed by calling process()
+   *
+   * @param sampleRate Sample rate of the analyzed audio
+   */
+  public BeatTracker(int sampleRate) {
+    this.sampleRate = sampleRate;
+  }
+
+  /**
+   * Creates a beat tracker that runs on the audio thread of the given buffer,
+   * sharing the buffer's default analyzer
+   *
+   * @param buffer Audio buffer
+   */
+  public BeatTracker(LXAudioBuffer buffer) {
+    this(buffer.sampleRate());
+    setBuffer(buffer);
+  }
+
+  /**
+   * Attaches this tracker to an audio buffer, detaching from any previous one.
+   * Tracking state is reset.
+   *
+   * @param buffer Audio buffer, or null to detach
+   * @return this
+   */
+  public BeatTracker setBuffer(LXAudioBuffer buffer) {
+    if (buffer != null && buffer.sampleRate() != this.sampleRate) {
+      throw new IllegalArgumentException("BeatTracker sample rate " + this.sampleRate + " does not match buffer sample rate " + buffer.sampleRate());
+    }
+    synchronized (this) {
+      if (this.analyzer != null) {
+        if (this.analyzer.buffer == buffer) {
+          return this;
+        }
+        this.analyzer.removeListener(this);
+        this.analyzer.buffer.releaseAnalyzer(this.analyzer);
+        this.analyzer = null;
+      }
+      reset();
+      if (buffer != null) {
+        this.analyzer = buffer.acquireAnalyzer(buffer.bufferSize(), FourierTransform.DEFAULT_NUM_BANDS);
+        this.analyzer.addListener(this);
+      }
+    }
+    return this;
+  }
+
+  public LXAudioBuffer getBuffer() {
+    final LXAudioAnalyzer analyzer = this.analyzer;
+    return (analyzer != null) ? analyzer.buffer : null;
+  }
+
+  /**
+   * Detaches from the audio buffer, if any
+   */
+  public void dispose() {
+    setBuffer(null);
+    this.listeners.clear();
+  }
+
+  public BeatTracker addListener(Listener listener) {
+    Objects.requireNonNull(listener, "May not add null BeatTracker.Listener");
+    if (this.listeners.contains(listener)) {
+      throw new IllegalStateException("Cannot add duplicate BeatTracker.Listener: " + listener);
+    }
+    this.listeners.add(listener);
+    return this;
+  }
+
+  public BeatTracker removeListener(Listener listener) {
+    if (!this.listeners.contains(listener)) {
+      throw new IllegalStateException("Cannot remove non-existent BeatTracker.Listener: " + listener);
+    }
+    this.listeners.remove(listener);
+    return this;
+  }
+
+  /**
+   * Sets the range of tempos that the tracker will consider
+   *
+   * @param minBpm Minimum tempo
+   * @param maxBpm Maximum tempo
+   * @return this
+   */
+  public BeatTracker setBpmRange(double minBpm, double maxBpm) {
+    if (minBpm <= 0 || minBpm >= maxBpm) {
+      throw new IllegalArgumentException("Invalid BeatTracker BPM range: " + minBpm + "-" + maxBpm);
+    }
+    this.minBpm = minBpm;
+    this.maxBpm = maxBpm;
+    return this;
+  }
+
+  public double getMinBpm() {
+    return this.minBpm;
+  }
+
+  public double getMaxBpm() {
+    return this.maxBpm;
+  }
+
+  /**
+   * Sets the onset detection sensitivity, higher values detect quieter onsets
+   *
+   * @param sensitivity Sensitivity from 0 to 1
+   * @return this
+   */
+  public BeatTracker setSensitivity(double sensitivity) {
+    this.sensitivity = LXUtils.constrain(sensitivity, 0, 1);
+    return this;
+  }
+
+  /**
+   * Tracked tempo
+   *
+   * @return Tempo in BPM, or 0 if no tempo has been established
+   */
+  public double getBpm() {
+    return this.bpm;
+  }
+
+  /**
+   * Tracked beat period
+   *
+   * @return Beat period in milliseconds, or 0 if no tempo has been established
+   */
+  public double getPeriodMs() {
+    final double bpm = this.bpm;
+    return (bpm > 0) ? MS_PER_MINUTE / bpm : 0;
+  }
+
+  /**
+   * Strength of the winning tempo candidate relative to the average candidate
+   *
+   * @return Tempo confidence, 1 or less means no clear periodicity
+   */
+  public double getConfidence() {
+    return this.confidence;
+  }
+
+  /**
+   * Number of onsets detected, consumers can poll this for changes
+   *
+   * @return Onset count
+   */
+  public int getOnsetCount() {
+    return this.onsetCount;
+  }
+
+  /**
+   * @return Audio sample position of the most recent onset, or -1
+   */
+  public long getOnsetPosition() {
+    return this.onsetPosition;
+  }
+
+  /**
+   * Number of beats emitted, consumers can poll this for changes
+   *
+   * @return Beat count
+   */
+  public int getBeatCount() {
+    return this.beatCount;
+  }
+
+  /**
+   * @return Audio sample position of the most recent beat, or -1
+   */
+  public long getBeatPosition() {
+    return this.beatPosition;
+  }
+
+  @Override
+  public void onAnalysis(LXAudioAnalyzer analyzer, LXAudioAnalyzer.Result result) {
+    process(result);
+  }
+
+  /**
+   * Resets all tracking state
+   */
+  public synchronized void reset() {
+    this.previousSpectrum = null;
+    this.previousPosition = -1;
+    this.hop = 0;
+    this.frame = 0;
+    this.lastOnsetFrame = Long.MIN_VALUE / 2;
+    this.longTermMean = 0;
+    this.periodFrames = 0;
+    this.candidateFrames = 0;
+    this.nextBeatFrame = 0;
+    this.lastBeatFrame = Double.NEGATIVE_INFINITY;
+    this.bpm = 0;
+    this.confidence = 0;
+  }
+
+  /**
+   * Processes one frame of analysis. Results must be supplied in order, at a
+   * constant hop size.
+   *
+   * @param result Analysis result
+   */
+  public synchronized void process(LXAudioAnalyzer.Result result) {
+    if (result.position <= this.previousPosition) {
+      return;
+    }
+    final int numBins = result.getNumBins();
+    if (this.previousSpectrum == null || this.previousSpectrum.length != numBins) {
+      this.previousSpectrum = new float[numBins];
+      for (int i = 0; i < numBins; ++i) {
+        this.previousSpectrum[i] = compress(result.getSpectrum(i), result.getSize());
+      }
+      this.previousPosition = result.position;
+      return;
+    }
+    if (this.hop == 0) {
+      this.hop = result.position - this.previousPosition;
+    }
+    this.previousPosition = result.position;
+
+    // Positive spectral flux
+    float flux = 0;
+    for (int i = 1; i < numBins; ++i) {
+      float value = compress(result.getSpectrum(i), result.getSize());
+      float diff = value - this.previousSpectrum[i];
+      if (diff > 0) {
+        flux += diff;
+      }
+      this.previousSpectrum[i] = value;
+    }
+
+    final long frame = this.frame++;
+    final int index = (int) (frame & HISTORY_MASK);
+    this.odf[index] = flux;
+    this.framePosition[index] = result.position;
+
+    // Adaptive threshold over the preceding window
+    final int window = (int) Math.min(frame + 1, THRESHOLD_WINDOW);
+    float mean = 0, meanSquare = 0;
+    for (int i = 0; i < window; ++i) {
+      float v = this.odf[(int) ((frame - i) & HISTORY_MASK)];
+      mean += v;
+      meanSquare += v * v;
+    }
+    mean /= window;
+    float deviation = (float) Math.sqrt(Math.max(0, meanSquare / window - mean * mean));
+    this.novelty[index] = Math.max(0, flux - mean);
+    this.longTermMean += (flux - this.longTermMean) / Math.min(frame + 1, LONG_TERM_FRAMES);
+
+    // The previous frame is an onset candidate if it's a local peak that stands
+    // out both locally and against the long-term level, so that fluctuations in
+    // quiet passages between onsets are not picked. The threshold depends upon
+    // sensitivity, so publish the sensitivity that would detect this peak.
+    if (frame >= 2) {
+      long peak = frame - 1;
+      float prev = this.odf[(int) ((frame - 2) & HISTORY_MASK)];
+      float candidate = this.odf[(int) (peak & HISTORY_MASK)];
+      if (candidate > prev && candidate >= flux && candidate > mean && candidate > this.longTermMean) {
+        final float required = getRequiredSensitivity(candidate, mean, deviation, this.longTermMean);
+        final long position = this.framePosition[(int) (peak & HISTORY_MASK)];
+        final int peakIndex = this.peakCount & PEAK_MASK;
+        this.peakPosition[peakIndex] = position;
+        this.peakSensitivity[peakIndex] = required;
+        ++this.peakCount;
+
+        double minInterval = MIN_ONSET_INTERVAL_MS * this.sampleRate / (1000. * this.hop);
+        if ((this.sensitivity > required) && (peak - this.lastOnsetFrame) >= minInterval) {
+          this.lastOnsetFrame = peak;
+          this.onsetPosition = position;
+          ++this.onsetCount;
+          for (Listener listener : this.listeners) {
+            listener.onOnset(this, position);
+          }
+        }
+      }
+    }
+
+    if ((frame % TEMPO_INTERVAL) == TEMPO_INTERVAL - 1) {
+      estimateTempo(frame);
+    }
+
+    // Emit beats by extrapolating the tracked phase
+    if (this.periodFrames > 0 && frame >= this.nextBeatFrame) {
+      final long position = result.position - Math.round((frame - this.nextBeatFrame) * this.hop);
+      this.lastBeatFrame = this.nextBeatFrame;
+      this.nextBeatFrame += this.periodFrames;
+      this.beatPosition = position;
+      ++this.beatCount;
+      for (Listener listener : this.listeners) {
+        listener.onBeat(this, position);
+      }
+    }
+  }
+
+  /**
+   * An onset must exceed a threshold of max(mean + 3 * scale * deviation,
+   * (1 + 2 * scale) * longTermMean), where scale is (1 - sensitivity). Solves
+   * for the sensitivity above which the candidate passes.
+   */
+  private static float getRequiredSensitivity(float candidate, float mean, float deviation, float longTermMean) {
+    float maxScale = Float.POSITIVE_INFINITY;
+    if (deviation > 0) {
+      maxScale = (candidate - mean) / (3 * deviation);
+    }
+    if (longTermMean > 0) {
+      maxScale = Math.min(maxScale, .5f * (candidate / longTermMean - 1));
+    }
+    return Math.max(-1, 1 - maxScale);
+  }
+
+  private static float compress(float magnitude, int size) {
+    return (float) Math.log(1 + LOG_COMPRESSION * magnitude / size);
+  }
+
+  private void estimateTempo(long frame) {
+    final double framesPerMinute = MS_PER_MINUTE * this.sampleRate / (1000. * this.hop);
+    final int minLag = Math.max(1, (int) Math.floor(framesPerMinute / this.maxBpm));
+    final int maxLag = (int) Math.ceil(framesPerMinute / this.minBpm);
+    final int length = (int) Math.min(frame + 1, HISTORY_SIZE);
+    if (length < 2 * maxLag + 1) {
+      return;
+    }
+
+    // Unroll the novelty ring, oldest first
+    for (int i = 0; i < length; ++i) {
+      this.linear[i] = this.novelty[(int) ((frame - length + 1 + i) & HISTORY_MASK)];
+    }
+
+    // Autocorrelation, normalized by overlap
+    final int maxAcfLag = Math.min(length - 1, COMB_SIZE * (maxLag + 1));
+    for (int lag = 0; lag <= maxAcfLag; ++lag) {
+      double sum = 0;
+      for (int i = lag; i < length; ++i) {
+        sum += this.linear[i] * this.linear[i - lag];
+      }
+      this.acf[lag] = sum / (length - lag);
+    }
+    if (this.acf[0] <= 0) {
+      return;
+    }
+
+    // Comb over period multiples, tolerating jitter that grows with the multiple
+    final double priorLag = framesPerMinute / PRIOR_BPM;
+    double best = 0, total = 0;
+    int bestLag = -1;
+    for (int lag = minLag; lag <= maxLag; ++lag) {
+      double sum = 0;
+      for (int k = 1; k <= COMB_SIZE; ++k) {
+        double peak = 0;
+        for (int j = k * lag - k + 1; j <= k * lag + k - 1; ++j) {
+          if (j <= maxAcfLag) {
+            peak = Math.max(peak, this.acf[j]);
+          }
+        }
+        sum += peak / k;
+      }
+      double octaves = Math.log(lag / priorLag) / Math.log(2);
+      sum *= Math.exp(-.5 * octaves * octaves / (PRIOR_OCTAVES * PRIOR_OCTAVES));
+      this.score[lag] = sum;
+      total += sum;
+      if (sum > best) {
+        best = sum;
+        bestLag = lag;
+      }
+    }
+    if (bestLag < 0) {
+      return;
+    }
+    this.confidence = best * (maxLag - minLag + 1) / total;
+
+    // Refine to a fractional lag
+    double period = bestLag;
+    if (bestLag > minLag && bestLag < maxLag) {
+      double a = this.score[bestLag - 1], b = this.score[bestLag], c = this.score[bestLag + 1];
+      double denom = a - 2 * b + c;
+      if (denom < 0) {
+        period += LXUtils.constrain(.5 * (a - c) / denom, -.5, .5);
+      }
+    }
+
+    // Only follow a tempo change once it has been seen twice in a row
+    if (this.periodFrames > 0 && Math.abs(period - this.periodFrames) < .05 * this.periodFrames) {
+      this.periodFrames += .25 * (period - this.periodFrames);
+      this.candidateFrames = 0;
+    } else if (this.candidateFrames > 0 && Math.abs(period - this.candidateFrames) < .05 * this.candidateFrames) {
+      this.periodFrames = period;
+      this.candidateFrames = 0;
+    } else {
+      this.candidateFrames = period;
+    }
+    if (this.periodFrames <= 0) {
+      return;
+    }
+    this.bpm = framesPerMinute / this.periodFrames;
+
+    // Choose the phase whose impulse train best matches recent onsets
+    double bestPhaseScore = -1;
+    int bestPhase = 0;
+    final int maxPhase = (int) Math.ceil(this.periodFrames);
+    for (int phase = 0; phase < maxPhase; ++phase) {
+      double sum = 0;
+      for (int k = 0; k < PHASE_BEATS; ++k) {
+        int i = length - 1 - phase - (int) Math.round(k * this.periodFrames);
+        if (i >= 0) {
+          sum += this.linear[i];
+        }
+      }
+      if (sum > bestPhaseScore) {
+        bestPhaseScore = sum;
+        bestPhase = phase;
+      }
+    }
+    double next = frame - bestPhase + this.periodFrames;
+    while (next <= frame) {
+      next += this.periodFrames;
+    }
+    // Don't emit a beat hot on the heels of the last one
+    if (next - this.lastBeatFrame < .5 * this.periodFrames) {
+      next += this.periodFrames;
+    }
+    this.nextBeatFrame = next;
+  }
+
+}
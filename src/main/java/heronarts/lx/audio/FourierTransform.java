@@ -18,12 +18,25 @@
 
 package heronarts.lx.audio;
 
+/**
+ * Fast Fourier transform of real-valued audio samples. The transform of an
+ * N-point real signal is computed with a half-size N/2-point complex FFT, the
+ * even and odd samples are packed into the real and imaginary parts and the
+ * two interleaved spectra are separated afterwards. All twiddle factors,
+ * window coefficients and band weights are precomputed, so that compute()
+ * performs no allocation and no trigonometry.
+ */
 public class FourierTransform {
 
   public static final float LOG_2 = (float) Math.log(2);
   public final static float BASE_BAND_HZ = 65.41f; // C2
   public static final int DEFAULT_NUM_BANDS = 16;
 
+  private static final float LOG_10 = (float) Math.log(10);
+
+  // Floor applied to power values before taking the log, -200dB
+  private static final float LOG_POWER_FLOOR = 1e-20f;
+
   enum Window {
     RECTANGULAR,
     HAMMING;
@@ -37,68 +50,132 @@ public class FourierTransform {
     }
   };
 
+  /**
+   * Which spectral quantity is stored for each bin by compute(). Band values
+   * and averages are computed over the same quantity.
+   */
+  public enum Spectrum {
+    /**
+     * Magnitude of each bin, |X|
+     */
+    MAGNITUDE,
+
+    /**
+     * Squared magnitude of each bin, |X|^2, avoids a square root per bin
+     */
+    POWER,
+
+    /**
+     * Power of each bin in decibels, 10 * log10(|X|^2)
+     */
+    LOG_POWER;
+  }
+
+  /**
+   * How the spectrum is divided into bands
+   */
+  public enum BandScale {
+    /**
+     * Bands are logarithmically spaced from C2 up to the Nyquist frequency,
+     * with each bin weighted equally within its band
+     */
+    OCTAVE,
+
+    /**
+     * Contiguous bands one third of an octave wide, starting at C2. Bands
+     * that would lie above the Nyquist frequency are clamped to the top bin.
+     */
+    THIRD_OCTAVE,
+
+    /**
+     * Overlapping triangular filters evenly spaced on the mel scale, from C2
+     * up to the Nyquist frequency
+     */
+    MEL;
+  }
+
   private Window window = Window.HAMMING;
+  private Spectrum spectrum = Spectrum.MAGNITUDE;
 
   private final int bufferSize;
+  private final int halfSize;
   private final int sampleRate;
   private final float bandWidthInv;
 
-  private final int logN;
-  private final float[] sinN;
-  private final float[] cosN;
+  // Twiddle factors for the half-size complex FFT, e^(-2*PI*i*k / halfSize)
+  private final float[] twiddleCos;
+  private final float[] twiddleSin;
+
+  // Twiddle factors for splitting the packed spectrum, e^(-2*PI*i*k / bufferSize)
+  private final float[] splitCos;
+  private final float[] splitSin;
+
   private final float[] windowCoefficients;
 
   private final int[] bitReverseIndex;
   private final float[] real;
   private final float[] imaginary;
+  private final float[] power;
   private final float[] amplitude;
 
+  private BandScale bandScale = BandScale.OCTAVE;
   private int numBands = 0;
   private float[] bands;
-  private int[] bandOffset;
   private float bandOctaveRatio;
 
+  // Flattened band weight table, band i covers bins
+  // [bandStart[i], bandStart[i] + bandOffset[i+1] - bandOffset[i])
+  // with weights in bandWeight[bandOffset[i]...]
+  private int[] bandStart;
+  private int[] bandOffset;
+  private float[] bandWeight;
+
   public FourierTransform(int bufferSize, int sampleRate) {
-    if ((bufferSize & (bufferSize - 1)) != 0) {
+    if ((bufferSize & (bufferSize - 1)) != 0 || bufferSize < 2) {
       throw new IllegalArgumentException("bufferSize must be a power of two: " + bufferSize);
     }
 
     this.bufferSize = bufferSize;
+    this.halfSize = bufferSize / 2;
     this.sampleRate = sampleRate;
     this.bandWidthInv = this.bufferSize / (float) this.sampleRate;
 
-    this.logN = (int) (Math.log(bufferSize) / Math.log(2));
-
-    this.sinN = new float[this.logN];
-    this.cosN = new float[this.logN];
-    computePhaseTables();
+    this.twiddleCos = new float[this.halfSize / 2];
+    this.twiddleSin = new float[this.halfSize / 2];
+    this.splitCos = new float[this.halfSize + 1];
+    this.splitSin = new float[this.halfSize + 1];
+    computeTwiddleTables();
 
     this.windowCoefficients = new float[this.bufferSize];
     computeWindowCoefficients();
 
-    this.bitReverseIndex = new int[this.bufferSize];
+    this.bitReverseIndex = new int[this.halfSize];
     computeBitReverseIndices();
 
-    this.real = new float[this.bufferSize];
-    this.imaginary = new float[this.bufferSize];
-    this.amplitude = new float[this.bufferSize/2 + 1];
+    this.real = new float[this.halfSize];
+    this.imaginary = new float[this.halfSize];
+    this.power = new float[this.halfSize + 1];
+    this.amplitude = new float[this.halfSize + 1];
 
     setNumBands(DEFAULT_NUM_BANDS);
   }
 
-  private void computePhaseTables() {
-    // given i, N = 2^i
-    // sin[i] = sin(-PI / N);
-    // cos[i] = cos(-PI / N);
-    for (int i = 0, N = 1; i < this.logN; ++i, N <<= 1) {
-      this.sinN[i] = (float) Math.sin(-Math.PI / N);
-      this.cosN[i] = (float) Math.cos(-Math.PI / N);
+  private void computeTwiddleTables() {
+    for (int k = 0; k < this.twiddleCos.length; ++k) {
+      double phase = -2 * Math.PI * k / this.halfSize;
+      this.twiddleCos[k] = (float) Math.cos(phase);
+      this.twiddleSin[k] = (float) Math.sin(phase);
+    }
+    for (int k = 0; k < this.splitCos.length; ++k) {
+      double phase = -2 * Math.PI * k / this.bufferSize;
+      this.splitCos[k] = (float) Math.cos(phase);
+      this.splitSin[k] = (float) Math.sin(phase);
     }
   }
 
   private void computeBitReverseIndices() {
     this.bitReverseIndex[0] = 0;
-    for (int limit = 1, bit = this.bufferSize/2; limit < this.bufferSize; limit <<= 1, bit >>= 1) {
+    for (int limit = 1, bit = this.halfSize/2; limit < this.halfSize; limit <<= 1, bit >>= 1) {
       for (int i = 0; i < limit; ++i) {
         this.bitReverseIndex[i + limit] = this.bitReverseIndex[i] + bit;
       }
@@ -127,24 +204,40 @@ public class FourierTransform {
     }
   }
 
+  /**
+   * Sets which spectral quantity is returned by get() and used to compute bands.
+   * Defaults to MAGNITUDE.
+   *
+   * @param spectrum Spectrum output type
+   * @return this
+   */
+  public FourierTransform setSpectrum(Spectrum spectrum) {
+    this.spectrum = spectrum;
+    return this;
+  }
+
+  public Spectrum getSpectrum() {
+    return this.spectrum;
+  }
+
   public FourierTransform compute(float[] samples) {
     if (samples.length != this.bufferSize) {
       throw new IllegalArgumentException("Samples must have same length as FourierTransform size: " + samples.length);
     }
-    // Apply window function, initialize bit-reverse-indexed values
-    for (int i = 0; i < this.bufferSize; ++i) {
-      int bri = this.bitReverseIndex[i];
+    // Apply window function, pack even samples into real and odd samples into
+    // imaginary, in bit-reversed order
+    for (int i = 0; i < this.halfSize; ++i) {
+      int bri = this.bitReverseIndex[i] << 1;
       this.real[i] = samples[bri] * this.windowCoefficients[bri];
-      this.imaginary[i] = 0f;
-    }
-    // Iterate through l = [0, logN-1], N = 2^l
-    for (int l = 0, n = 1; l < this.logN; ++l, n <<= 1) {
-      float cosN = this.cosN[l];
-      float sinN = this.sinN[l];
-      float phaseR = 1f;
-      float phaseI = 0f;
+      this.imaginary[i] = samples[bri+1] * this.windowCoefficients[bri+1];
+    }
+
+    // Half-size complex FFT, n is the butterfly span at each stage
+    for (int n = 1, step = this.halfSize >> 1; n < this.halfSize; n <<= 1, step >>= 1) {
       for (int f = 0; f < n; ++f) {
-        for (int i = f; i < this.bufferSize; i += 2*n) {
+        float phaseR = this.twiddleCos[f * step];
+        float phaseI = this.twiddleSin[f * step];
+        for (int i = f; i < this.halfSize; i += 2*n) {
           int n2 = i + n;
           float tR = phaseR * this.real[n2] - phaseI * this.imaginary[n2];
           float tI = phaseR * this.imaginary[n2] + phaseI * this.real[n2];
@@ -153,58 +246,227 @@ public class FourierTransform {
           this.real[i] += tR;
           this.imaginary[i] += tI;
         }
-        float tmpR = phaseR;
-        phaseR = (phaseR * cosN) - (phaseI * sinN);
-        phaseI = (tmpR * sinN) + (phaseI * cosN);
       }
     }
-    // Amplitude
-    for (int i = 0; i < this.amplitude.length; ++i) {
-      this.amplitude[i] = (float) Math.sqrt(this.real[i]*this.real[i] + this.imaginary[i]*this.imaginary[i]);
+
+    // Separate the even and odd spectra, X[k] = E[k] + W^k * O[k], where
+    // E[k] = (Z[k] + conj(Z[N/2-k])) / 2 and O[k] = -i * (Z[k] - conj(Z[N/2-k])) / 2
+    for (int k = 0; k <= this.halfSize; ++k) {
+      int a = (k == this.halfSize) ? 0 : k;
+      int b = (k == 0) ? 0 : this.halfSize - k;
+      float aR = this.real[a], aI = this.imaginary[a];
+      float bR = this.real[b], bI = -this.imaginary[b];
+      float eR = .5f * (aR + bR);
+      float eI = .5f * (aI + bI);
+      float oR = .5f * (aI - bI);
+      float oI = -.5f * (aR - bR);
+      float wR = this.splitCos[k];
+      float wI = this.splitSin[k];
+      float xR = eR + wR * oR - wI * oI;
+      float xI = eI + wR * oI + wI * oR;
+      this.power[k] = xR*xR + xI*xI;
+    }
+
+    switch (this.spectrum) {
+    case MAGNITUDE:
+      for (int i = 0; i < this.amplitude.length; ++i) {
+        this.amplitude[i] = (float) Math.sqrt(this.power[i]);
+      }
+      break;
+    case POWER:
+      System.arraycopy(this.power, 0, this.amplitude, 0, this.amplitude.length);
+      break;
+    case LOG_POWER:
+      for (int i = 0; i < this.amplitude.length; ++i) {
+        this.amplitude[i] = 10 * (float) Math.log(Math.max(LOG_POWER_FLOOR, this.power[i])) / LOG_10;
+      }
+      break;
     }
 
-    // Compute octave averages
-    if (this.numBands > 0) {
-      for (int band = 0; band < this.numBands; ++band) {
-        float avg = 0;
-        for (int i = this.bandOffset[band]; i <= this.bandOffset[band+1]; ++i) {
-          avg += this.amplitude[i];
-        }
-        this.bands[band] = avg / (this.bandOffset[band+1] - this.bandOffset[band] + 1);
+    // Weighted band sums from the precomputed tables
+    for (int band = 0; band < this.numBands; ++band) {
+      float sum = 0;
+      int bin = this.bandStart[band];
+      for (int w = this.bandOffset[band]; w < this.bandOffset[band+1]; ++w, ++bin) {
+        sum += this.bandWeight[w] * this.amplitude[bin];
       }
+      this.bands[band] = sum;
     }
 
     return this;
   }
 
+  /**
+   * Gets the value of a frequency bin, in the units of the selected spectrum
+   *
+   * @param i Bin index, from 0 to getSize() / 2
+   * @return Spectrum value of the bin
+   */
   public float get(int i) {
     return this.amplitude[i];
   }
 
+  /**
+   * Gets the squared magnitude of a frequency bin, regardless of the spectrum
+   * output selected
+   *
+   * @param i Bin index, from 0 to getSize() / 2
+   * @return Squared magnitude of the bin
+   */
+  public float getPower(int i) {
+    return this.power[i];
+  }
+
   public FourierTransform setNumBands(int numBands) {
-    if (this.numBands != numBands) {
-      this.numBands = numBands;
-      this.bands = new float[this.numBands];
-      this.bandOffset = new int[this.numBands + 1];
-      this.bandOffset[0] = 0;
-
-      float nyquist = this.sampleRate / 2;
-      float nyquistRatio = nyquist / BASE_BAND_HZ;
-      float bandExpRange = (float) Math.log(nyquistRatio) / LOG_2;
-      this.bandOctaveRatio = bandExpRange / (this.numBands - 1);
-
-      for (int i = 0; i < this.numBands; ++i) {
-        float bandLimitHz = (float) Math.pow(2, i * this.bandOctaveRatio) * BASE_BAND_HZ;
-        this.bandOffset[i+1] = Math.round(this.bandWidthInv * bandLimitHz);
-      }
+    return setBands(this.bandScale, numBands);
+  }
+
+  /**
+   * Sets the number of bands and the scale used to divide the spectrum. The
+   * per-band bin weights are computed once here.
+   *
+   * @param bandScale Band scale
+   * @param numBands Number of bands
+   * @return this
+   */
+  public FourierTransform setBands(BandScale bandScale, int numBands) {
+    if (numBands < 0) {
+      throw new IllegalArgumentException("FourierTransform numBands may not be negative: " + numBands);
+    }
+    if (this.bandScale == bandScale && this.numBands == numBands) {
+      return this;
+    }
+    this.bandScale = bandScale;
+    this.numBands = numBands;
+    this.bands = new float[numBands];
+    this.bandStart = new int[numBands];
+    this.bandOffset = new int[numBands + 1];
+
+    final float nyquist = this.sampleRate / 2;
+    switch (bandScale) {
+    case THIRD_OCTAVE:
+      computeThirdOctaveBands();
+      break;
+    case MEL:
+      computeMelBands(nyquist);
+      break;
+    default:
+    case OCTAVE:
+      computeOctaveBands(nyquist);
+      break;
     }
     return this;
   }
 
+  private void computeOctaveBands(float nyquist) {
+    float nyquistRatio = nyquist / BASE_BAND_HZ;
+    float bandExpRange = (float) Math.log(nyquistRatio) / LOG_2;
+    this.bandOctaveRatio = bandExpRange / (this.numBands - 1);
+
+    int[] bandLimit = new int[this.numBands + 1];
+    for (int i = 0; i < this.numBands; ++i) {
+      float bandLimitHz = (float) Math.pow(2, i * this.bandOctaveRatio) * BASE_BAND_HZ;
+      bandLimit[i+1] = Math.min(this.halfSize, Math.round(this.bandWidthInv * bandLimitHz));
+    }
+    // Bands are inclusive of both limits, neighbors share their boundary bin
+    computeFlatBands(bandLimit);
+  }
+
+  private void computeThirdOctaveBands() {
+    this.bandOctaveRatio = 1/3f;
+    int[] bandLimit = new int[this.numBands + 1];
+    bandLimit[0] = Math.min(this.halfSize, Math.round(this.bandWidthInv * BASE_BAND_HZ));
+    for (int i = 0; i < this.numBands; ++i) {
+      float bandLimitHz = (float) Math.pow(2, (i+1) / 3.) * BASE_BAND_HZ;
+      bandLimit[i+1] = Math.min(this.halfSize, Math.round(this.bandWidthInv * bandLimitHz));
+    }
+    computeFlatBands(bandLimit);
+  }
+
+  private void computeFlatBands(int[] bandLimit) {
+    int numWeights = 0;
+    for (int i = 0; i < this.numBands; ++i) {
+      numWeights += bandLimit[i+1] - bandLimit[i] + 1;
+    }
+    this.bandWeight = new float[numWeights];
+    int w = 0;
+    for (int i = 0; i < this.numBands; ++i) {
+      int count = bandLimit[i+1] - bandLimit[i] + 1;
+      this.bandStart[i] = bandLimit[i];
+      this.bandOffset[i] = w;
+      for (int j = 0; j < count; ++j) {
+        this.bandWeight[w++] = 1f / count;
+      }
+    }
+    this.bandOffset[this.numBands] = w;
+  }
+
+  private static double hzToMel(double hz) {
+    return 2595 * Math.log10(1 + hz / 700);
+  }
+
+  private static double melToHz(double mel) {
+    return 700 * (Math.pow(10, mel / 2595) - 1);
+  }
+
+  private void computeMelBands(float nyquist) {
+    // numBands triangular filters over numBands + 2 evenly spaced mel points
+    double melLow = hzToMel(BASE_BAND_HZ);
+    double melHigh = hzToMel(nyquist);
+    double[] edgeBin = new double[this.numBands + 2];
+    for (int i = 0; i < edgeBin.length; ++i) {
+      edgeBin[i] = this.bandWidthInv * melToHz(melLow + (melHigh - melLow) * i / (this.numBands + 1));
+    }
+    this.bandOctaveRatio = (this.numBands > 1) ?
+      (float) (Math.log(edgeBin[this.numBands] / edgeBin[1]) / LOG_2 / (this.numBands - 1)) :
+      0;
+
+    float[][] weights = new float[this.numBands][];
+    int numWeights = 0;
+    for (int i = 0; i < this.numBands; ++i) {
+      double left = edgeBin[i], center = edgeBin[i+1], right = edgeBin[i+2];
+      int first = Math.min(this.halfSize, (int) Math.ceil(left));
+      int last = Math.min(this.halfSize, (int) Math.floor(right));
+      float sum = 0;
+      weights[i] = new float[Math.max(0, last - first + 1)];
+      for (int bin = first; bin <= last; ++bin) {
+        double weight = (bin <= center) ?
+          (bin - left) / (center - left) :
+          (right - bin) / (right - center);
+        weights[i][bin - first] = (float) Math.max(0, weight);
+        sum += weights[i][bin - first];
+      }
+      if (sum > 0) {
+        for (int j = 0; j < weights[i].length; ++j) {
+          weights[i][j] /= sum;
+        }
+      } else {
+        // Filter is narrower than a bin, use the bin nearest its center
+        first = Math.min(this.halfSize, (int) Math.round(center));
+        weights[i] = new float[] { 1 };
+      }
+      this.bandStart[i] = first;
+      numWeights += weights[i].length;
+    }
+
+    this.bandWeight = new float[numWeights];
+    int w = 0;
+    for (int i = 0; i < this.numBands; ++i) {
+      this.bandOffset[i] = w;
+      System.arraycopy(weights[i], 0, this.bandWeight, w, weights[i].length);
+      w += weights[i].length;
+    }
+    this.bandOffset[this.numBands] = w;
+  }
+
   public int getNumBands() {
     return this.numBands;
   }
 
+  public BandScale getBandScale() {
+    return this.bandScale;
+  }
+
   public float getBandOctaveRatio() {
     return this.bandOctaveRatio;
   }
@@ -214,8 +476,8 @@ public class FourierTransform {
   }
 
   public float getAverage(float minHz, float maxHz) {
-    int low = Math.round(minHz * this.bandWidthInv);
-    int high = Math.round(maxHz * this.bandWidthInv);
+    int low = Math.min(this.halfSize, Math.round(minHz * this.bandWidthInv));
+    int high = Math.min(this.halfSize, Math.round(maxHz * this.bandWidthInv));
     float avg = 0;
     for (int i = low; i <= high; ++i) {
       avg += this.amplitude[i];
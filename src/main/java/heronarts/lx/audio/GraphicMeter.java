@@ -48,8 +48,19 @@ public class GraphicMeter extends DecibelMeter {
    */
   public final int numBands;
 
+  /**
+   * Configuration of the transform used by this meter.
+   *
+   * @deprecated Spectral values are now computed on the audio thread by a shared
+   *   analyzer and are never written to this transform, so its band and spectrum
+   *   values are always zero. Use getResult() to access the analysis, and
+   *   getBandOctaveRatio() or getSampleRate() for the configuration.
+   */
+  @Deprecated
   public final FourierTransform fft;
 
+  private LXAudioAnalyzer analyzer;
+
   private final float[] sampleBuffer;
 
   public final NormalizedParameter[] bands;
@@ -95,11 +106,29 @@ public class GraphicMeter extends DecibelMeter {
    * @param numBands Number of bands
    */
   public GraphicMeter(String label, LXAudioBuffer buffer, int numBands) {
+    this(label, buffer, numBands, buffer.bufferSize());
+  }
+
+  /**
+   * Makes a graphic equalizer with a default slope of 4.5 dB/octave, analyzing
+   * a window of the given size. Windows larger than the audio block size are
+   * filled from the buffer's sample history, giving finer frequency resolution.
+   *
+   * @param label Label
+   * @param buffer Audio buffer to monitor
+   * @param numBands Number of bands
+   * @param fftSize FFT window size, a power of two no larger than the buffer history
+   */
+  public GraphicMeter(String label, LXAudioBuffer buffer, int numBands, int fftSize) {
     super(label, buffer);
+    if (fftSize > buffer.historySize()) {
+      throw new IllegalArgumentException("GraphicMeter fftSize " + fftSize + " exceeds audio buffer history " + buffer.historySize());
+    }
     addParameter("slope", this.slope);
-    this.sampleBuffer = new float[buffer.bufferSize()];
-    this.fft = new FourierTransform(buffer.bufferSize(), buffer.sampleRate());
+    this.sampleBuffer = new float[fftSize];
+    this.fft = new FourierTransform(fftSize, buffer.sampleRate());
     this.fft.setNumBands(this.numBands = numBands);
+    this.analyzer = buffer.acquireAnalyzer(fftSize, numBands);
     this.impl = new LXMeterImpl(this.numBands, this.fft.getBandOctaveRatio());
     this.bands = this.impl.bands;
     int i = 1;
@@ -108,14 +137,51 @@ public class GraphicMeter extends DecibelMeter {
     }
   }
 
+  @Override
+  public GraphicMeter setBuffer(LXAudioBuffer buffer) {
+    if (this.analyzer != null && this.analyzer.buffer != buffer) {
+      LXAudioAnalyzer analyzer = buffer.acquireAnalyzer(this.fft.getSize(), this.numBands);
+      this.analyzer.buffer.releaseAnalyzer(this.analyzer);
+      this.analyzer = analyzer;
+    }
+    super.setBuffer(buffer);
+    return this;
+  }
+
+  /**
+   * Ratio between the center frequencies of successive bands
+   *
+   * @return Band octave ratio
+   */
+  public float getBandOctaveRatio() {
+    return this.fft.getBandOctaveRatio();
+  }
+
+  /**
+   * Sample rate of the analyzed audio
+   *
+   * @return Sample rate in Hz
+   */
+  public int getSampleRate() {
+    return this.fft.getSampleRate();
+  }
+
+  /**
+   * Gets the most recent spectral analysis of the audio buffer, published by
+   * the audio thread. The result is immutable and safe to hold on to.
+   *
+   * @return Latest analysis result
+   */
+  public LXAudioAnalyzer.Result getResult() {
+    return this.analyzer.getResult();
+  }
+
   @Override
   protected double computeValue(double deltaMs) {
     double result = super.computeValue(deltaMs);
-    this.buffer.getSamples(this.sampleBuffer);
-    this.fft.compute(this.sampleBuffer);
 
     this.impl.compute(
-      this.fft,
+      this.analyzer.getResult(),
       this.attackGain,
       this.releaseGain,
       this.gain.getValue(),
@@ -127,13 +193,14 @@ public class GraphicMeter extends DecibelMeter {
   }
 
   /**
-   * Returns a snapshot of the last raw audio sample buffer frame that was used to compute
-   * this meter. Note that this is copy of the audio buffer local to the LX thread and this particular
-   * meter. The buffer is only updated when the meter is running, once per LX engine loop.
+   * Returns a snapshot of the most recent window of raw audio samples. Note that this is
+   * a copy of the audio buffer local to this particular meter, which is refreshed each
+   * time this method is called.
    *
-   * @return Raw audio sample buffer used to compute this meter
+   * @return Raw audio sample buffer
    */
   public float[] getSamples() {
+    this.buffer.getSamples(this.sampleBuffer);
     return this.sampleBuffer;
   }
 
@@ -231,4 +298,10 @@ public class GraphicMeter extends DecibelMeter {
     return (float) getAverage(minBand, avgBands);
   }
 
+  @Override
+  public void dispose() {
+    this.analyzer.buffer.releaseAnalyzer(this.analyzer);
+    super.dispose();
+  }
+
 }
@@ -0,0 +1,227 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.lx.audio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import heronarts.lx.LX;
+
+/**
+ * Spectral analysis of an audio buffer that runs on the audio thread. Each time
+ * a block of samples is written to the buffer, the analyzer transforms the most
+ * recent window of samples and publishes an immutable Result. Any number of
+ * meters with the same configuration share one analyzer, and consumers on the
+ * engine or UI threads simply pick up the latest result with no analysis work
+ * of their own.
+ *
+ * Analyzers are obtained from LXAudioBuffer.acquireAnalyzer() and must be
+ * handed back with LXAudioBuffer.releaseAnalyzer() when no longer needed.
+ */
+public class LXAudioAnalyzer {
+
+  /**
+   * Listener notified on the audio thread each time a new result is published.
+   * Implementations must be fast and must not block.
+   */
+  public interface Listener {
+    public void onAnalysis(LXAudioAnalyzer analyzer, Result result);
+  }
+
+  /**
+   * Immutable output of one analysis pass
+   */
+  public static class Result {
+
+    /**
+     * Buffer write position of the last sample in the analyzed window
+     */
+    public final long position;
+
+    /**
+     * RMS level of the most recent block of samples
+     */
+    public final float rms;
+
+    private final int size;
+    private final float bandWidthInv;
+    private final float[] spectrum;
+    private final float[] bands;
+
+    private Result(long position, float rms, int size, int sampleRate, float[] spectrum, float[] bands) {
+      this.position = position;
+      this.rms = rms;
+      this.size = size;
+      this.bandWidthInv = size / (float) sampleRate;
+      this.spectrum = spectrum;
+      this.bands = bands;
+    }
+
+    /**
+     * Size of the FFT window that produced this result. Spectrum and band
+     * values are unnormalized and may be divided by this to obtain RMS values.
+     *
+     * @return FFT size in samples
+     */
+    public int getSize() {
+      return this.size;
+    }
+
+    public int getNumBins() {
+      return this.spectrum.length;
+    }
+
+    /**
+     * Gets the magnitude of a frequency bin
+     *
+     * @param i Bin index
+     * @return Magnitude of the bin
+     */
+    public float getSpectrum(int i) {
+      return this.spectrum[i];
+    }
+
+    public int getNumBands() {
+      return this.bands.length;
+    }
+
+    /**
+     * Gets the average magnitude of a band
+     *
+     * @param i Band index
+     * @return Band magnitude
+     */
+    public float getBand(int i) {
+      return this.bands[i];
+    }
+
+    /**
+     * Average magnitude of all bins in a frequency range
+     *
+     * @param minHz Minimum frequency
+     * @param maxHz Maximum frequency
+     * @return Average bin magnitude in the range
+     */
+    public float getAverage(float minHz, float maxHz) {
+      int top = this.spectrum.length - 1;
+      int low = Math.min(top, Math.round(minHz * this.bandWidthInv));
+      int high = Math.min(top, Math.round(maxHz * this.bandWidthInv));
+      float avg = 0;
+      for (int i = low; i <= high; ++i) {
+        avg += this.spectrum[i];
+      }
+      return avg / (high - low + 1);
+    }
+  }
+
+  public final LXAudioBuffer buffer;
+
+  private final FourierTransform fft;
+  private final float[] samples;
+  private final int numBands;
+
+  private volatile Result result;
+
+  private volatile Listener[] listeners = new Listener[0];
+
+  // Guarded by the buffer's analyzer lock
+  int refCount = 0;
+
+  LXAudioAnalyzer(LXAudioBuffer buffer, int fftSize, int numBands) {
+    this.buffer = buffer;
+    this.fft = new FourierTransform(fftSize, buffer.sampleRate());
+    this.fft.setNumBands(numBands);
+    this.numBands = numBands;
+    this.samples = new float[fftSize];
+    this.result = new Result(0, 0, fftSize, buffer.sampleRate(), new float[fftSize/2 + 1], new float[numBands]);
+  }
+
+  boolean matches(int fftSize, int numBands) {
+    return (this.fft.getSize() == fftSize) && (this.numBands == numBands);
+  }
+
+  public int getSize() {
+    return this.fft.getSize();
+  }
+
+  public int getNumBands() {
+    return this.numBands;
+  }
+
+  /**
+   * Invoked on the audio thread after a block of samples has been published
+   */
+  void analyze() {
+    long position = this.buffer.getSamples(this.samples);
+    this.fft.compute(this.samples);
+    float[] spectrum = new float[this.fft.getSize() / 2 + 1];
+    for (int i = 0; i < spectrum.length; ++i) {
+      spectrum[i] = this.fft.get(i);
+    }
+    float[] bands = new float[this.numBands];
+    for (int i = 0; i < bands.length; ++i) {
+      bands[i] = this.fft.getBand(i);
+    }
+    final Result result = this.result = new Result(position, this.buffer.getRms(), this.fft.getSize(), this.fft.getSampleRate(), spectrum, bands);
+    for (Listener listener : this.listeners) {
+      try {
+        listener.onAnalysis(this, result);
+      } catch (Exception x) {
+        LX.error(x, "Exception in LXAudioAnalyzer listener: " + listener);
+      }
+    }
+  }
+
+  public LXAudioAnalyzer addListener(Listener listener) {
+    Objects.requireNonNull(listener, "May not add null LXAudioAnalyzer.Listener");
+    synchronized (this) {
+      if (Arrays.asList(this.listeners).contains(listener)) {
+        throw new IllegalStateException("Cannot add duplicate LXAudioAnalyzer.Listener: " + listener);
+      }
+      Listener[] listeners = Arrays.copyOf(this.listeners, this.listeners.length + 1);
+      listeners[listeners.length - 1] = listener;
+      this.listeners = listeners;
+    }
+    return this;
+  }
+
+  public LXAudioAnalyzer removeListener(Listener listener) {
+    synchronized (this) {
+      List<Listener> listeners = new ArrayList<Listener>(Arrays.asList(this.listeners));
+      if (!listeners.remove(listener)) {
+        throw new IllegalStateException("Cannot remove non-existent LXAudioAnalyzer.Listener: " + listener);
+      }
+      this.listeners = listeners.toArray(new Listener[0]);
+    }
+    return this;
+  }
+
+  /**
+   * Gets the most recently published analysis result. This never returns null,
+   * an empty result is available before any audio has been received.
+   *
+   * @return Latest analysis result
+   */
+  public Result getResult() {
+    return this.result;
+  }
+
+}
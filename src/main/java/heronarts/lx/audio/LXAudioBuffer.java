@@ -18,22 +18,112 @@
 
 package heronarts.lx.audio;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A buffer of audio samples. Samples are written in blocks by a single audio
+ * thread into a ring that retains several blocks of history, and may be read
+ * by any number of other threads without locking. Readers may ask for the most
+ * recent N samples at any time, up to the history size, which allows analysis
+ * with overlapping windows at whatever hop size the reader chooses.
+ */
 public class LXAudioBuffer {
 
   protected static final float INV_16_BIT = 1 / 32768.0f;
 
+  /**
+   * Default number of blocks of sample history retained by the ring
+   */
+  public static final int DEFAULT_HISTORY_BLOCKS = 8;
+
   private final int sampleRate;
+  private final int bufferSize;
+
+  // Ring of sample history, length is a power of two
+  private final float[] ring;
+  private final int ringMask;
+
+  // Total number of samples ever written. Only the audio thread writes this,
+  // the volatile write publishes the ring contents to readers.
+  private volatile long writePosition = 0;
 
-  final float[] samples;
-  float rms;
+  private volatile float rms;
+
+  private final AtomicLong overruns = new AtomicLong(0);
+  private final AtomicLong dropouts = new AtomicLong(0);
+
+  // Keeps the plain reads of the ring from being reordered after the re-check
+  // of writePosition in getSamples(). VarHandle.acquireFence() where available,
+  // Unsafe.loadFence() on Java 8, null if neither can be found.
+  private static final MethodHandle LOAD_FENCE = findLoadFence();
+
+  private static MethodHandle findLoadFence() {
+    final MethodType type = MethodType.methodType(void.class);
+    try {
+      return MethodHandles.publicLookup().findStatic(Class.forName("java.lang.invoke.VarHandle"), "acquireFence", type);
+    } catch (Throwable x) {
+      // Not available before Java 9
+    }
+    try {
+      final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      return MethodHandles.lookup().findVirtual(unsafeClass, "loadFence", type).bindTo(theUnsafe.get(null));
+    } catch (Throwable x) {
+      return null;
+    }
+  }
+
+  private static void loadFence() {
+    if (LOAD_FENCE != null) {
+      try {
+        LOAD_FENCE.invokeExact();
+      } catch (Throwable x) {
+        // Fences don't throw
+      }
+    }
+  }
+
+  // Analyzers run on the audio thread after each block, replaced wholesale
+  // under the lock so the audio thread iterates without allocation
+  private volatile LXAudioAnalyzer[] analyzers = new LXAudioAnalyzer[0];
 
   LXAudioBuffer(int bufferSize, int sampleRate) {
-    this.samples = new float[bufferSize];
+    this(bufferSize, sampleRate, DEFAULT_HISTORY_BLOCKS);
+  }
+
+  LXAudioBuffer(int bufferSize, int sampleRate, int historyBlocks) {
+    this.bufferSize = bufferSize;
     this.sampleRate = sampleRate;
+    // One extra block of space for the block that may be in flight while reading
+    int ringSize = Integer.highestOneBit(bufferSize * (historyBlocks + 1) - 1) << 1;
+    this.ring = new float[ringSize];
+    this.ringMask = ringSize - 1;
   }
 
+  /**
+   * Size of the blocks in which samples are delivered by the audio thread
+   *
+   * @return Block size in samples
+   */
   public int bufferSize() {
-    return this.samples.length;
+    return this.bufferSize;
+  }
+
+  /**
+   * Maximum number of recent samples that may be retrieved
+   *
+   * @return History size in samples
+   */
+  public int historySize() {
+    return this.ring.length - this.bufferSize;
   }
 
   public int sampleRate() {
@@ -44,31 +134,169 @@ public class LXAudioBuffer {
     return this.rms;
   }
 
-  protected synchronized void computeMix(LXAudioBuffer left, LXAudioBuffer right) {
+  /**
+   * Total number of samples that have ever been written to this buffer. Readers
+   * can compare successive values to determine how many new samples arrived,
+   * e.g. to run analysis at a fixed hop size.
+   *
+   * @return Total samples written
+   */
+  public long getWritePosition() {
+    return this.writePosition;
+  }
+
+  /**
+   * Number of times a reader was lapped by the audio thread while copying
+   * samples and had to retry.
+   *
+   * @return Overrun count
+   */
+  public long getOverruns() {
+    return this.overruns.get();
+  }
+
+  /**
+   * Number of blocks for which the audio source failed to deliver a full
+   * block of samples.
+   *
+   * @return Dropout count
+   */
+  public long getDropouts() {
+    return this.dropouts.get();
+  }
+
+  /**
+   * Silences the sample history, e.g. before switching to a different source.
+   * Must only be called when no audio thread is writing to the buffer.
+   */
+  void clear() {
+    Arrays.fill(this.ring, 0);
+    this.rms = 0;
+  }
+
+  void markDropout() {
+    this.dropouts.incrementAndGet();
+  }
+
+  protected void computeMix(LXAudioBuffer left, LXAudioBuffer right) {
+    final long leftEnd = left.writePosition;
+    final long rightEnd = right.writePosition;
+    final long start = this.writePosition;
     float sumSquares = 0;
-    for (int i = 0; i < samples.length; ++i) {
-      this.samples[i] = (left.samples[i] + right.samples[i]) * .5f;
-      sumSquares += this.samples[i] * this.samples[i];
+    for (int i = 0; i < this.bufferSize; ++i) {
+      float sample = (
+        left.ring[(int) (leftEnd - this.bufferSize + i) & left.ringMask] +
+        right.ring[(int) (rightEnd - this.bufferSize + i) & right.ringMask]
+      ) * .5f;
+      this.ring[(int) (start + i) & this.ringMask] = sample;
+      sumSquares += sample * sample;
     }
-    this.rms = (float) Math.sqrt(sumSquares / this.samples.length);
+    this.rms = (float) Math.sqrt(sumSquares / this.bufferSize);
+    this.writePosition = start + this.bufferSize;
+    analyze();
   }
 
-  protected synchronized void putSamples(byte[] rawBytes, int offset, int dataSize, int frameSize) {
+  protected void putSamples(byte[] rawBytes, int offset, int dataSize, int frameSize) {
+    final long start = this.writePosition;
     int frameIndex = 0;
     float sumSquares = 0;
     for (int i = 0; i < dataSize; i += frameSize) {
-      this.samples[frameIndex] = ((rawBytes[offset + i+1] << 8) | (rawBytes[offset + i] & 0xff)) * INV_16_BIT;
-      sumSquares += this.samples[frameIndex] * this.samples[frameIndex];
+      float sample = ((rawBytes[offset + i+1] << 8) | (rawBytes[offset + i] & 0xff)) * INV_16_BIT;
+      this.ring[(int) (start + frameIndex) & this.ringMask] = sample;
+      sumSquares += sample * sample;
       ++frameIndex;
     }
-    this.rms = (float) Math.sqrt(sumSquares / this.samples.length);
+    this.rms = (float) Math.sqrt(sumSquares / this.bufferSize);
+    this.writePosition = start + frameIndex;
+    analyze();
   }
 
-  public synchronized void getSamples(float[] dest) {
-    if (this.samples.length != dest.length) {
-      throw new IllegalArgumentException("LXAudioBuffer getSamples destination array must have same length");
+  private void analyze() {
+    for (LXAudioAnalyzer analyzer : this.analyzers) {
+      analyzer.analyze();
+    }
+  }
+
+  /**
+   * Obtains a spectral analyzer for this buffer, which will run on the audio
+   * thread. Callers requesting the same configuration share a single analyzer.
+   * Every call must be balanced by a call to releaseAnalyzer().
+   *
+   * @param fftSize FFT window size, a power of two no larger than the history size
+   * @param numBands Number of octave bands to compute
+   * @return Shared analyzer
+   */
+  public LXAudioAnalyzer acquireAnalyzer(int fftSize, int numBands) {
+    if (fftSize > historySize()) {
+      throw new IllegalArgumentException("LXAudioAnalyzer fftSize " + fftSize + " exceeds audio buffer history " + historySize());
+    }
+    synchronized (this) {
+      for (LXAudioAnalyzer analyzer : this.analyzers) {
+        if (analyzer.matches(fftSize, numBands)) {
+          ++analyzer.refCount;
+          return analyzer;
+        }
+      }
+      LXAudioAnalyzer analyzer = new LXAudioAnalyzer(this, fftSize, numBands);
+      analyzer.refCount = 1;
+      LXAudioAnalyzer[] analyzers = Arrays.copyOf(this.analyzers, this.analyzers.length + 1);
+      analyzers[analyzers.length - 1] = analyzer;
+      this.analyzers = analyzers;
+      return analyzer;
+    }
+  }
+
+  /**
+   * Releases an analyzer obtained from acquireAnalyzer(), it stops running once
+   * all users have released it.
+   *
+   * @param analyzer Analyzer to release
+   */
+  public void releaseAnalyzer(LXAudioAnalyzer analyzer) {
+    if (analyzer.buffer != this) {
+      throw new IllegalArgumentException("LXAudioAnalyzer does not belong to this buffer");
+    }
+    synchronized (this) {
+      if (analyzer.refCount <= 0) {
+        throw new IllegalStateException("LXAudioAnalyzer released more times than acquired");
+      }
+      if (--analyzer.refCount == 0) {
+        List<LXAudioAnalyzer> analyzers = new ArrayList<LXAudioAnalyzer>(Arrays.asList(this.analyzers));
+        analyzers.remove(analyzer);
+        this.analyzers = analyzers.toArray(new LXAudioAnalyzer[0]);
+      }
+    }
+  }
+
+  /**
+   * Copies the most recent samples into the destination array, which may be
+   * of any length up to the history size. The most recent sample is placed at
+   * the end of the array. The copy is retried if the audio thread may have
+   * overwritten it meanwhile. That check relies on a load fence, and on a
+   * runtime which offers none it is best-effort on weakly ordered hardware.
+   *
+   * @param dest Destination array
+   * @return Write position corresponding to the last sample copied
+   */
+  public long getSamples(float[] dest) {
+    if (dest.length > historySize()) {
+      throw new IllegalArgumentException("LXAudioBuffer getSamples destination array may not be larger than history size " + historySize());
+    }
+    while (true) {
+      final long end = this.writePosition;
+      final long start = end - dest.length;
+      for (int i = 0; i < dest.length; ++i) {
+        dest[i] = this.ring[(int) (start + i) & this.ringMask];
+      }
+      loadFence();
+      // If the writer advanced far enough to overwrite what we just copied,
+      // the copy may be torn, so go again. Allow for a block that has been
+      // partially written but not yet published.
+      if (this.writePosition + this.bufferSize - start <= this.ring.length) {
+        return end;
+      }
+      this.overruns.incrementAndGet();
     }
-    System.arraycopy(this.samples, 0, dest, 0, dest.length);
   }
 
 }
@@ -42,6 +42,12 @@ public class LXAudioEngine extends LXModulatorComponent implements LXOscComponen
 
   public final GraphicMeter meter;
 
+  /**
+   * Beat tracker following the metered audio, which may be used as the tempo
+   * clock source
+   */
+  public final BeatTracker beatTracker;
+
   public enum Mode {
     INPUT,
     OUTPUT
@@ -49,6 +55,8 @@ public class LXAudioEngine extends LXModulatorComponent implements LXOscComponen
 
   public final EnumParameter<Mode> mode = new EnumParameter<Mode>("Mode", Mode.INPUT);
 
+  private LXAudioFileSource fileSource = null;
+
   public LXAudioEngine(LX lx) {
     super(lx, "Audio");
     addParameter("enabled", this.enabled);
@@ -59,6 +67,7 @@ public class LXAudioEngine extends LXModulatorComponent implements LXOscComponen
     this.input = new LXAudioInput(lx);
     this.output = new LXAudioOutput(lx);
     this.meter = new GraphicMeter("Meter", this.input.mix);
+    this.beatTracker = new BeatTracker(this.input.mix);
 
     addChild("input", this.input);
     addChild("output", this.output);
@@ -68,6 +77,11 @@ public class LXAudioEngine extends LXModulatorComponent implements LXOscComponen
   @Override
   public void onParameterChanged(LXParameter p) {
     if (p == this.enabled) {
+      if (this.enabled.isOn() && (this.fileSource != null)) {
+        LX.error("Cannot enable live audio input while a file source is attached");
+        this.enabled.setValue(false);
+        return;
+      }
       if (this.enabled.isOn()) {
         this.input.open();
         this.input.start();
@@ -82,7 +96,45 @@ public class LXAudioEngine extends LXModulatorComponent implements LXOscComponen
       case INPUT: this.meter.setBuffer(this.input.mix); break;
       case OUTPUT: this.meter.setBuffer(this.output.mix); break;
       }
+      this.beatTracker.setBuffer(this.meter.buffer);
+    }
+  }
+
+  /**
+   * Attaches a file source that feeds the input buffers in lockstep with the
+   * engine clock, for offline rendering. Live audio input must be disabled.
+   * The meter runs for as long as a file source is attached.
+   *
+   * @param fileSource File source, or null to detach
+   * @return this
+   */
+  public LXAudioEngine setFileSource(LXAudioFileSource fileSource) {
+    if (fileSource != null && this.enabled.isOn()) {
+      throw new IllegalStateException("Cannot attach LXAudioFileSource while live audio input is enabled");
+    }
+    this.fileSource = fileSource;
+    this.mode.setValue(Mode.INPUT);
+    if (fileSource != null) {
+      // Start from silence so that repeated renders see identical history
+      this.input.left.clear();
+      this.input.right.clear();
+      this.input.mix.clear();
+      this.beatTracker.reset();
+    }
+    this.meter.running.setValue(fileSource != null || this.enabled.isOn());
+    return this;
+  }
+
+  public LXAudioFileSource getFileSource() {
+    return this.fileSource;
+  }
+
+  @Override
+  public void loop(double deltaMs) {
+    if (this.fileSource != null) {
+      this.fileSource.advance(this.input, deltaMs);
     }
+    super.loop(deltaMs);
   }
 
   /**
@@ -98,6 +150,7 @@ public class LXAudioEngine extends LXModulatorComponent implements LXOscComponen
   public void dispose() {
     this.input.close();
     this.output.close();
+    this.beatTracker.dispose();
     super.dispose();
   }
 
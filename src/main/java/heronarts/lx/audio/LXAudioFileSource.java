@@ -0,0 +1,167 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.lx.audio;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Audio source that feeds the audio engine's input buffers from a file, in
+ * lockstep with the engine clock rather than in real-time. Each engine frame,
+ * exactly as many sample blocks are delivered as are due for the elapsed
+ * deltaMs, and analysis of those blocks runs synchronously on the engine
+ * thread. With a fixed deltaMs this makes audio-reactive rendering fully
+ * reproducible and independent of how fast frames are actually computed.
+ *
+ * Attach a source using LXAudioEngine.setFileSource(), the live audio input
+ * must be disabled while a file source is in use.
+ */
+public class LXAudioFileSource {
+
+  private final AudioInputStream inputStream;
+  private final boolean mono;
+  private final byte[] rawBytes;
+
+  private double targetSamples = 0;
+  private long samplePosition = 0;
+  private boolean finished = false;
+
+  /**
+   * Opens an audio file source. Files must be 16-bit PCM, or decodable to it,
+   * at a sample rate of 44.1kHz.
+   *
+   * @param file Audio file
+   * @throws IOException If the file cannot be read
+   * @throws UnsupportedAudioFileException If the file format is not supported
+   */
+  public LXAudioFileSource(File file) throws IOException, UnsupportedAudioFileException {
+    this(AudioSystem.getAudioInputStream(new BufferedInputStream(new FileInputStream(file))));
+  }
+
+  public LXAudioFileSource(AudioInputStream inputStream) {
+    AudioFormat format = inputStream.getFormat();
+    if (format.getChannels() < 1 || format.getChannels() > 2) {
+      throw new IllegalArgumentException("LXAudioFileSource supports mono or stereo audio only: " + format);
+    }
+    if (format.getSampleRate() != LXAudioComponent.SAMPLE_RATE) {
+      throw new IllegalArgumentException("LXAudioFileSource requires sample rate of " + LXAudioComponent.SAMPLE_RATE + ": " + format);
+    }
+    AudioFormat target = (format.getChannels() == 1) ? LXAudioComponent.MONO : LXAudioComponent.STEREO;
+    if (!format.matches(target)) {
+      try {
+        inputStream = AudioSystem.getAudioInputStream(target, inputStream);
+      } catch (Exception x) {
+        throw new IllegalArgumentException("LXAudioFileSource cannot decode audio to 16-bit PCM: " + format, x);
+      }
+    }
+    this.inputStream = inputStream;
+    this.mono = (target == LXAudioComponent.MONO);
+    this.rawBytes = new byte[this.mono ? LXAudioComponent.MONO_BUFFER_SIZE : LXAudioComponent.STEREO_BUFFER_SIZE];
+  }
+
+  /**
+   * Number of samples that have been delivered to the audio buffers
+   *
+   * @return Sample position
+   */
+  public long getSamplePosition() {
+    return this.samplePosition;
+  }
+
+  /**
+   * Time position of the audio delivered so far
+   *
+   * @return Position in milliseconds
+   */
+  public double getPositionMs() {
+    return this.samplePosition * 1000. / LXAudioComponent.SAMPLE_RATE;
+  }
+
+  /**
+   * Whether the end of the file has been reached
+   *
+   * @return True if all audio has been delivered
+   */
+  public boolean isFinished() {
+    return this.finished;
+  }
+
+  /**
+   * Advances the source by the given engine time, delivering every complete
+   * block of samples that is now due. Invoked by the audio engine each frame.
+   *
+   * @param input Audio input whose buffers receive the samples
+   * @param deltaMs Engine time elapsed
+   */
+  void advance(LXAudioInput input, double deltaMs) {
+    this.targetSamples += deltaMs * LXAudioComponent.SAMPLE_RATE / 1000.;
+    while (!this.finished && (this.samplePosition + LXAudioComponent.SAMPLE_BUFFER_SIZE <= this.targetSamples)) {
+      readBlock();
+      if (this.mono) {
+        input.mix.putSamples(this.rawBytes, 0, LXAudioComponent.MONO_BUFFER_SIZE, LXAudioComponent.MONO_FRAME_SIZE);
+      } else {
+        input.left.putSamples(this.rawBytes, 0, LXAudioComponent.STEREO_BUFFER_SIZE, LXAudioComponent.STEREO_FRAME_SIZE);
+        input.right.putSamples(this.rawBytes, 2, LXAudioComponent.STEREO_BUFFER_SIZE, LXAudioComponent.STEREO_FRAME_SIZE);
+        input.mix.computeMix(input.left, input.right);
+      }
+      this.samplePosition += LXAudioComponent.SAMPLE_BUFFER_SIZE;
+    }
+  }
+
+  private void readBlock() {
+    int len = 0;
+    try {
+      while (len < this.rawBytes.length) {
+        int read = this.inputStream.read(this.rawBytes, len, this.rawBytes.length - len);
+        if (read < 0) {
+          break;
+        }
+        len += read;
+      }
+    } catch (IOException iox) {
+      throw new RuntimeException("LXAudioFileSource error reading audio: " + iox.getLocalizedMessage(), iox);
+    }
+    if (len < this.rawBytes.length) {
+      // Pad the final partial block with silence
+      for (int i = len; i < this.rawBytes.length; ++i) {
+        this.rawBytes[i] = 0;
+      }
+      this.finished = true;
+    }
+  }
+
+  /**
+   * Closes the underlying audio stream
+   */
+  public void close() {
+    try {
+      this.inputStream.close();
+    } catch (IOException iox) {
+      // Nothing to do here
+    }
+  }
+
+}
@@ -75,7 +75,15 @@ public class LXAudioInput extends LXAudioComponent implements LXOscComponent, Li
         }
 
         // Read from the audio line
-        line.read(rawBytes, 0, rawBytes.length);
+        int len = line.read(rawBytes, 0, rawBytes.length);
+        if (len < rawBytes.length) {
+          // Pad the short block with silence, rather than passing on the
+          // stale tail of the previous block
+          for (int i = Math.max(0, len); i < rawBytes.length; ++i) {
+            rawBytes[i] = 0;
+          }
+          mix.markDropout();
+        }
 
         if (this.format == MONO) {
           mix.putSamples(rawBytes, 0, MONO_BUFFER_SIZE, MONO_FRAME_SIZE);
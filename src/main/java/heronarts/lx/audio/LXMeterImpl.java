@@ -45,9 +45,10 @@ class LXMeterImpl {
     }
   }
 
-  void compute(FourierTransform fft, float attackGain, float releaseGain, double gain, double range, double slope) {
+  void compute(LXAudioAnalyzer.Result result, float attackGain, float releaseGain, double gain, double range, double slope) {
+    final float invSize = 1f / result.getSize();
     for (int i = 0; i < this.numBands; ++i) {
-      float rmsBand = fft.getBand(i) / fft.getSize();
+      float rmsBand = result.getBand(i) * invSize;
       float rmsGain = (rmsBand >= this.rmsBands[i]) ? attackGain : releaseGain;
       this.rmsBands[i] = rmsBand + rmsGain * (this.rmsBands[i] - rmsBand);
       this.dbBands[i] = 20 * Math.log(this.rmsBands[i]) / DecibelMeter.LOG_10 + gain + i * slope * this.bandOctaveRatio;
@@ -0,0 +1,253 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.lx.audio;
+
+import heronarts.lx.LX;
+import heronarts.lx.modulator.LXModulator;
+import heronarts.lx.modulator.LXTriggerSource;
+import heronarts.lx.osc.LXOscComponent;
+import heronarts.lx.parameter.BooleanParameter;
+import heronarts.lx.parameter.BoundedParameter;
+import heronarts.lx.parameter.CompoundParameter;
+import heronarts.lx.parameter.LXNormalizedParameter;
+import heronarts.lx.parameter.LXParameter;
+
+/**
+ * Modulator that detects note onsets and tracks the beat of the audio being
+ * monitored by a GraphicMeter. Detection runs on the audio thread via a
+ * BeatTracker, this modulator just picks up the results each frame. The value
+ * of the modulator is an envelope that falls from 1 to 0 after each onset.
+ *
+ * When following the same audio and BPM range as the audio engine's beat
+ * tracker, that tracker is shared rather than repeating its analysis, and the
+ * sensitivity of this modulator is applied to its onset candidates. A private
+ * tracker is only run when a different buffer or BPM range is required.
+ */
+@LXModulator.Global("Onset Detect")
+@LXModulator.Device("Onset Detect")
+public class OnsetDetect extends LXModulator implements LXNormalizedParameter, LXTriggerSource, LXOscComponent {
+
+  public final CompoundParameter sensitivity =
+    new CompoundParameter("Sensitivity", .5)
+    .setDescription("Sets how readily quieter onsets are detected");
+
+  public final BoundedParameter minBpm =
+    new BoundedParameter("Min BPM", BeatTracker.DEFAULT_MIN_BPM, 30, 240)
+    .setDescription("Slowest tempo the beat tracker will consider");
+
+  public final BoundedParameter maxBpm =
+    new BoundedParameter("Max BPM", BeatTracker.DEFAULT_MAX_BPM, 30, 240)
+    .setDescription("Fastest tempo the beat tracker will consider");
+
+  /**
+   * The time the envelope takes to falloff from 1 to 0 after an onset, in
+   * milliseconds
+   */
+  public final BoundedParameter decay = (BoundedParameter)
+    new BoundedParameter("Decay", 200, 0, 1600)
+    .setDescription("Sets the decay time of the onset signal")
+    .setUnits(LXParameter.Units.MILLISECONDS);
+
+  /**
+   * Set to true for one frame when an onset is detected
+   */
+  public final BooleanParameter onset =
+    new BooleanParameter("Onset")
+    .setDescription("Engages when an onset is detected")
+    .setMode(BooleanParameter.Mode.MOMENTARY);
+
+  /**
+   * Set to true for one frame on each tracked beat
+   */
+  public final BooleanParameter beat =
+    new BooleanParameter("Beat")
+    .setDescription("Engages on each tracked beat")
+    .setMode(BooleanParameter.Mode.MOMENTARY);
+
+  /**
+   * Tracked tempo, 0 until a tempo has been established
+   */
+  public final BoundedParameter bpm =
+    new BoundedParameter("BPM", 0, 0, 240)
+    .setDescription("Tempo detected by the beat tracker");
+
+  public final GraphicMeter meter;
+
+  // Tracker currently in use, either the engine's or privateTracker
+  private BeatTracker tracker = null;
+  private BeatTracker privateTracker = null;
+  private BeatTracker.OnsetCursor cursor = null;
+
+  private int beatCount;
+
+  private double envelope = 0;
+
+  public OnsetDetect(LX lx) {
+    this("Onset", lx);
+  }
+
+  public OnsetDetect(String label, LX lx) {
+    this(label, lx.engine.audio.meter);
+  }
+
+  /**
+   * Constructs an onset detector that follows the audio of a meter
+   *
+   * @param label Label
+   * @param meter Meter whose audio buffer is tracked
+   */
+  public OnsetDetect(String label, GraphicMeter meter) {
+    super(label);
+    this.meter = meter;
+    selectTracker();
+
+    addParameter("sensitivity", this.sensitivity);
+    addParameter("minBpm", this.minBpm);
+    addParameter("maxBpm", this.maxBpm);
+    addParameter("decay", this.decay);
+    addParameter("onset", this.onset);
+    addParameter("beat", this.beat);
+    addParameter("bpm", this.bpm);
+
+    setDescription("Envelope that fires when an audio onset is detected");
+  }
+
+  @Override
+  public void onParameterChanged(LXParameter p) {
+    super.onParameterChanged(p);
+    if (p == this.minBpm) {
+      if (this.minBpm.getValue() >= this.maxBpm.getValue()) {
+        this.minBpm.setValue(this.maxBpm.getValue() - 1);
+      } else {
+        selectTracker();
+      }
+    } else if (p == this.maxBpm) {
+      if (this.maxBpm.getValue() <= this.minBpm.getValue()) {
+        this.maxBpm.setValue(this.minBpm.getValue() + 1);
+      } else {
+        selectTracker();
+      }
+    }
+  }
+
+  /**
+   * Uses the audio engine's beat tracker if it matches the audio buffer and
+   * BPM range of this modulator, otherwise runs a private one
+   */
+  private void selectTracker() {
+    final double minBpm = this.minBpm.getValue();
+    final double maxBpm = this.maxBpm.getValue();
+    BeatTracker tracker = null;
+    final LX lx = this.meter.getLX();
+    if ((lx != null) && (lx.engine != null) && (lx.engine.audio != null)) {
+      final BeatTracker shared = lx.engine.audio.beatTracker;
+      if ((shared.getBuffer() == this.meter.buffer) && (shared.getMinBpm() == minBpm) && (shared.getMaxBpm() == maxBpm)) {
+        tracker = shared;
+      }
+    }
+    if (tracker == null) {
+      if (this.privateTracker == null) {
+        this.privateTracker = new BeatTracker(this.meter.buffer);
+      } else {
+        this.privateTracker.setBuffer(this.meter.buffer);
+      }
+      if ((this.privateTracker.getMinBpm() != minBpm) || (this.privateTracker.getMaxBpm() != maxBpm)) {
+        this.privateTracker.setBpmRange(minBpm, maxBpm);
+      }
+      tracker = this.privateTracker;
+    } else if (this.privateTracker != null) {
+      this.privateTracker.dispose();
+      this.privateTracker = null;
+    }
+    if (tracker != this.tracker) {
+      this.tracker = tracker;
+      this.cursor = new BeatTracker.OnsetCursor(tracker);
+      this.beatCount = tracker.getBeatCount();
+    }
+  }
+
+  /**
+   * Beat tracker currently followed by this modulator. This may be shared with
+   * the audio engine, and it may change when the BPM range or metered audio
+   * buffer changes.
+   *
+   * @return Beat tracker
+   */
+  public BeatTracker getBeatTracker() {
+    return this.tracker;
+  }
+
+  public double getExponent() {
+    throw new UnsupportedOperationException("OnsetDetect does not support exponent");
+  }
+
+  @Override
+  protected double computeValue(double deltaMs) {
+    // Follow the meter if it has been switched to another buffer
+    if (this.tracker.getBuffer() != this.meter.buffer) {
+      selectTracker();
+    }
+
+    final boolean isOnset = this.cursor.poll(this.sensitivity.getValue()) > 0;
+
+    final int beatCount = this.tracker.getBeatCount();
+    final boolean isBeat = beatCount != this.beatCount;
+    this.beatCount = beatCount;
+
+    if (isOnset) {
+      this.envelope = 1;
+    } else {
+      this.envelope = Math.max(0, this.envelope - deltaMs / this.decay.getValue());
+    }
+    this.onset.setValue(isOnset);
+    this.beat.setValue(isBeat);
+    this.bpm.setValue(this.tracker.getBpm());
+
+    return this.envelope;
+  }
+
+  @Override
+  public LXNormalizedParameter setNormalized(double value) {
+    throw new UnsupportedOperationException("OnsetDetect does not support setNormalized()");
+  }
+
+  @Override
+  public double getNormalized() {
+    return this.envelope;
+  }
+
+  @Override
+  public float getNormalizedf() {
+    return (float) getNormalized();
+  }
+
+  @Override
+  public BooleanParameter getTriggerSource() {
+    return this.onset;
+  }
+
+  @Override
+  public void dispose() {
+    if (this.privateTracker != null) {
+      this.privateTracker.dispose();
+      this.privateTracker = null;
+    }
+    super.dispose();
+  }
+}
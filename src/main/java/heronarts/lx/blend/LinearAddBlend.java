@@ -0,0 +1,30 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.lx.blend;
+
+import heronarts.lx.LX;
+import heronarts.lx.LXComponentName;
+import heronarts.lx.color.LXColor;
+
+@LXComponentName("Add Linear")
+public class LinearAddBlend extends LXBlend.FunctionalBlend {
+  public LinearAddBlend(LX lx) {
+    super(lx, LXColor::addLinear);
+  }
+}
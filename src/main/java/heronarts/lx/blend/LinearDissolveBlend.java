@@ -0,0 +1,57 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.lx.blend;
+
+import heronarts.lx.LX;
+import heronarts.lx.LXComponentName;
+import heronarts.lx.color.LXColor;
+import heronarts.lx.model.LXModel;
+import heronarts.lx.model.LXPoint;
+
+/**
+ * Variant of the dissolve blend that mixes in linear light rather than on the
+ * gamma-encoded channel values. Crossfading between two different colors keeps
+ * a steady brightness rather than dipping through the middle of the fade.
+ */
+@LXComponentName("Dissolve Linear")
+public class LinearDissolveBlend extends LXBlend {
+
+  public LinearDissolveBlend(LX lx) {
+    super(lx);
+  }
+
+  @Override
+  public void blend(int[] dst, int[] src, double alpha, int[] output, LXModel model) {
+    // Multiply the src alpha only by half!
+    final int srcAlpha = (int) (alpha * 0x80);
+    final int dstAlpha = 0x100 - srcAlpha;
+    for (LXPoint p : model.points) {
+      final int i = p.index;
+      final int d = dst[i];
+      final int s = src[i];
+      final int r = LXColor.toLinear(d >>> LXColor.R_SHIFT) * dstAlpha + LXColor.toLinear(s >>> LXColor.R_SHIFT) * srcAlpha;
+      final int g = LXColor.toLinear(d >>> LXColor.G_SHIFT) * dstAlpha + LXColor.toLinear(s >>> LXColor.G_SHIFT) * srcAlpha;
+      final int b = LXColor.toLinear(d) * dstAlpha + LXColor.toLinear(s) * srcAlpha;
+      output[i] = 0xff << LXColor.ALPHA_SHIFT |
+        LXColor.fromLinear(r >>> 8) << LXColor.R_SHIFT |
+        LXColor.fromLinear(g >>> 8) << LXColor.G_SHIFT |
+        LXColor.fromLinear(b >>> 8);
+    }
+  }
+}
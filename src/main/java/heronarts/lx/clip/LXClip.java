@@ -339,7 +339,6 @@ public abstract class LXClip extends LXRunnableComponent implements LXOscCompone
       if (this.automationEnabled.isOn()) {
         double lengthValue = this.length.getValue();
         automationFinished = false;
-        // TODO(mcslee): make this more efficient, keep track of our indices?
         advanceCursor(this.cursor, nextCursor);
         while (nextCursor > lengthValue) {
           if (!this.loop.isOn() || (lengthValue == 0)) {
@@ -83,12 +83,23 @@ public class LXClipEngine extends LXComponent implements LXOscComponent {
     new BooleanParameter("Snapshot Transitions", false)
     .setDescription("When enabled, transitions between clip snapshots use interpolation");
 
+  /**
+   * Maximum deviation, in normalized units, that recorded parameter automation
+   * may be simplified by. Values that lie within this distance of a straight
+   * line between their neighbors are dropped while recording. Zero records
+   * every change.
+   */
+  public final BoundedParameter automationTolerance =
+    new BoundedParameter("Automation Tolerance", 0, 0, .1)
+    .setDescription("Sets how far recorded automation may deviate when thinning redundant events");
+
   public LXClipEngine(LX lx) {
     super(lx);
     addParameter("focusedClip", this.focusedClip);
     addParameter("numScenes", this.numScenes);
     addParameter("snapshotTransitionEnabled", this.snapshotTransitionEnabled);
     addParameter("snapshotTransitionTimeSecs", this.snapshotTransitionTimeSecs);
+    addParameter("automationTolerance", this.automationTolerance);
     addParameter("clipViewGridOffset", this.clipViewGridOffset);
     addParameter("clipViewExpanded", this.clipViewExpanded);
 
@@ -0,0 +1,206 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.lx.clip;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Array-backed list of clip events, kept sorted by cursor. The list is
+ * read-only through the List interface, and may be read from any thread
+ * without locking. Appending at the end writes into spare capacity rather
+ * than copying the whole list, so recording is amortized constant time.
+ * Insertions and removals in the middle copy the array, so that readers
+ * never observe a partially shifted list.
+ */
+public class LXClipEventList extends AbstractList<LXClipEvent> implements RandomAccess {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private static final LXClipEvent[] EMPTY = new LXClipEvent[0];
+
+  /**
+   * Immutable view of the list contents. Slots at or beyond size may be
+   * written by later appends, but never those below it.
+   */
+  private static class State {
+    private final LXClipEvent[] array;
+    private final int size;
+
+    private State(LXClipEvent[] array, int size) {
+      this.array = array;
+      this.size = size;
+    }
+  }
+
+  private volatile State state = new State(EMPTY, 0);
+
+  LXClipEventList() {}
+
+  @Override
+  public int size() {
+    return this.state.size;
+  }
+
+  @Override
+  public LXClipEvent get(int index) {
+    final State state = this.state;
+    if (index < 0 || index >= state.size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + state.size);
+    }
+    return state.array[index];
+  }
+
+  @Override
+  public int indexOf(Object o) {
+    final State state = this.state;
+    for (int i = 0; i < state.size; ++i) {
+      if (state.array[i] == o) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public Iterator<LXClipEvent> iterator() {
+    final State state = this.state;
+    return new Iterator<LXClipEvent>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return this.index < state.size;
+      }
+
+      @Override
+      public LXClipEvent next() {
+        if (this.index >= state.size) {
+          throw new NoSuchElementException();
+        }
+        return state.array[this.index++];
+      }
+    };
+  }
+
+  /**
+   * Finds the first event at or after the given cursor position
+   *
+   * @param cursor Cursor position
+   * @return Index of first event with cursor &gt;= the position, or size() if none
+   */
+  public int lowerBound(double cursor) {
+    final State state = this.state;
+    int lo = 0, hi = state.size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (state.array[mid].cursor < cursor) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * Finds the first event strictly after the given cursor position
+   *
+   * @param cursor Cursor position
+   * @return Index of first event with cursor &gt; the position, or size() if none
+   */
+  public int upperBound(double cursor) {
+    final State state = this.state;
+    int lo = 0, hi = state.size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (state.array[mid].cursor <= cursor) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * Adds an event in sorted position, after any events at the same cursor.
+   * When the event belongs at the end, as it does while recording, no copy
+   * of the list is made.
+   *
+   * @param event Event to add
+   */
+  synchronized void insert(LXClipEvent event) {
+    final State state = this.state;
+    final int size = state.size;
+    if (size == 0 || state.array[size - 1].cursor <= event.cursor) {
+      LXClipEvent[] array = state.array;
+      if (size == array.length) {
+        array = Arrays.copyOf(array, Math.max(INITIAL_CAPACITY, size * 2));
+      }
+      array[size] = event;
+      this.state = new State(array, size + 1);
+    } else {
+      final int index = upperBound(event.cursor);
+      final LXClipEvent[] array = new LXClipEvent[(size == state.array.length) ? Math.max(INITIAL_CAPACITY, size * 2) : state.array.length];
+      System.arraycopy(state.array, 0, array, 0, index);
+      array[index] = event;
+      System.arraycopy(state.array, index, array, index + 1, size - index);
+      this.state = new State(array, size + 1);
+    }
+  }
+
+  /**
+   * Removes all events in a range of indices
+   *
+   * @param fromIndex First index to remove, inclusive
+   * @param toIndex Last index to remove, exclusive
+   */
+  synchronized void removeEvents(int fromIndex, int toIndex) {
+    final State state = this.state;
+    if (fromIndex < 0 || toIndex > state.size || fromIndex > toIndex) {
+      throw new IndexOutOfBoundsException("Range: " + fromIndex + "-" + toIndex + ", Size: " + state.size);
+    }
+    if (fromIndex == toIndex) {
+      return;
+    }
+    final int size = state.size - (toIndex - fromIndex);
+    final LXClipEvent[] array = new LXClipEvent[Math.max(INITIAL_CAPACITY, size)];
+    System.arraycopy(state.array, 0, array, 0, fromIndex);
+    System.arraycopy(state.array, toIndex, array, fromIndex, state.size - toIndex);
+    this.state = new State(array, size);
+  }
+
+  synchronized boolean removeEvent(LXClipEvent event) {
+    int index = indexOf(event);
+    if (index >= 0) {
+      removeEvents(index, index + 1);
+      return true;
+    }
+    return false;
+  }
+
+  synchronized void clearEvents() {
+    this.state = new State(EMPTY, 0);
+  }
+
+}
@@ -18,9 +18,7 @@
 
 package heronarts.lx.clip;
 
-import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -37,29 +35,35 @@ public abstract class LXClipLane implements LXSerializable {
 
   public final LXClip clip;
 
-  protected final List<LXClipEvent> mutableEvents = new CopyOnWriteArrayList<LXClipEvent>();
-  public final List<LXClipEvent> events = Collections.unmodifiableList(this.mutableEvents);
+  protected final LXClipEventList mutableEvents = new LXClipEventList();
+  public final List<LXClipEvent> events = this.mutableEvents;
+
+  /**
+   * Playback position remembered between calls to advanceCursor(), so that
+   * continuous playback resumes from the last index rather than searching.
+   * The cursor position is NaN whenever the events have been modified.
+   */
+  protected int cursorIndex = 0;
+  protected double cursorPosition = Double.NaN;
 
   protected LXClipLane(LXClip clip) {
     this.clip = clip;
   }
 
-  protected LXClipLane appendEvent(LXClipEvent event) {
-    this.mutableEvents.add(event);
+  protected void eventsChanged() {
+    this.cursorPosition = Double.NaN;
     this.onChange.bang();
+  }
+
+  protected LXClipLane appendEvent(LXClipEvent event) {
+    this.mutableEvents.insert(event);
+    eventsChanged();
     return this;
   }
 
   protected LXClipLane insertEvent(LXClipEvent event) {
-    int index = 0;
-    while (index < this.events.size()) {
-      if (event.cursor < this.events.get(index).cursor) {
-        break;
-      }
-      ++index;
-    }
-    this.mutableEvents.add(index, event);
-    this.onChange.bang();
+    this.mutableEvents.insert(event);
+    eventsChanged();
     return this;
   }
 
@@ -77,53 +81,56 @@ public abstract class LXClipLane implements LXSerializable {
     double newCursor = LXUtils.constrain(basis * clipLength, min, max);
     if (event.cursor != newCursor) {
       event.cursor = newCursor;
-      this.onChange.bang();
+      eventsChanged();
     }
     return this;
   }
 
   public abstract String getLabel();
 
+  /**
+   * Executes all events in the range [from, to). When playback continues from
+   * where the last call left off, this resumes from the remembered index,
+   * otherwise the start is found by binary search.
+   *
+   * @param from Start cursor, inclusive
+   * @param to End cursor, exclusive
+   */
   void advanceCursor(double from, double to) {
-    for (LXClipEvent event : this.mutableEvents) {
-      if (from <= event.cursor && event.cursor < to) {
-        event.execute();
+    int index = (from == this.cursorPosition) ? this.cursorIndex : this.mutableEvents.lowerBound(from);
+    while (index < this.mutableEvents.size()) {
+      LXClipEvent event = this.mutableEvents.get(index);
+      if (event.cursor >= to) {
+        break;
       }
+      event.execute();
+      ++index;
     }
+    this.cursorIndex = index;
+    this.cursorPosition = to;
   }
 
   public LXClipLane clearSelection(double fromBasis, double toBasis) {
     double from = fromBasis * this.clip.length.getValue();
     double to = toBasis * this.clip.length.getValue();
-    int i = 0;
-    boolean removed = false;
-    while (i < this.mutableEvents.size()) {
-      LXClipEvent event = this.mutableEvents.get(i);
-      if (from <= event.cursor) {
-        if (event.cursor > to) {
-          break;
-        }
-        removed = true;
-        this.mutableEvents.remove(i);
-      } else {
-        ++i;
-      }
-    }
-    if (removed) {
-      this.onChange.bang();
+    int fromIndex = this.mutableEvents.lowerBound(from);
+    int toIndex = this.mutableEvents.upperBound(to);
+    if (fromIndex < toIndex) {
+      this.mutableEvents.removeEvents(fromIndex, toIndex);
+      eventsChanged();
     }
     return this;
   }
 
   public LXClipLane removeEvent(LXClipEvent event) {
-    this.mutableEvents.remove(event);
-    this.onChange.bang();
+    this.mutableEvents.removeEvent(event);
+    eventsChanged();
     return this;
   }
 
   void clear() {
-    this.mutableEvents.clear();
-    this.onChange.bang();
+    this.mutableEvents.clearEvents();
+    eventsChanged();
   }
 
   private static final String KEY_EVENTS = "events";
@@ -133,7 +140,19 @@ public abstract class LXClipLane implements LXSerializable {
   protected static final String VALUE_LANE_TYPE_MIDI_NOTE = "midiNote";
 
   public void load(LX lx, JsonObject obj) {
-    this.mutableEvents.clear();
+    this.mutableEvents.clearEvents();
+    loadEvents(lx, obj);
+    eventsChanged();
+  }
+
+  /**
+   * Loads the events of this lane from its serialized form, subclasses may
+   * override to support a more compact format.
+   *
+   * @param lx LX instance
+   * @param obj Serialized lane
+   */
+  protected void loadEvents(LX lx, JsonObject obj) {
     if (obj.has(KEY_EVENTS)) {
       JsonArray eventsArr = obj.get(KEY_EVENTS).getAsJsonArray();
       for (JsonElement eventElem : eventsArr) {
@@ -141,11 +160,10 @@ public abstract class LXClipLane implements LXSerializable {
         LXClipEvent event = loadEvent(lx, eventObj);
         if (event != null) {
           event.load(lx, eventObj);
-          this.mutableEvents.add(event);
+          this.mutableEvents.insert(event);
         }
       }
     }
-    this.onChange.bang();
   }
 
   protected abstract LXClipEvent loadEvent(LX lx, JsonObject eventObj);
@@ -158,6 +176,16 @@ public abstract class LXClipLane implements LXSerializable {
     } else if (this instanceof MidiNoteClipLane) {
       obj.addProperty(KEY_LANE_TYPE, VALUE_LANE_TYPE_MIDI_NOTE);
     }
+    saveEvents(lx, obj);
+  }
+
+  /**
+   * Saves the events of this lane, by default as an array of event objects
+   *
+   * @param lx LX instance
+   * @param obj Serialized lane
+   */
+  protected void saveEvents(LX lx, JsonObject obj) {
     obj.add(KEY_EVENTS, LXSerializable.Utils.toArray(lx, this.events));
   }
 
@@ -30,6 +30,15 @@ public class ParameterClipEvent extends LXClipEvent {
     return this;
   }
 
+  /**
+   * Moves this event without notifying listeners, used when the lane
+   * consolidates recorded events
+   */
+  void set(double cursor, double normalized) {
+    this.cursor = cursor;
+    this.normalized = normalized;
+  }
+
   public double getNormalized() {
     return this.normalized;
   }
@@ -18,6 +18,7 @@
 
 package heronarts.lx.clip;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
 import heronarts.lx.LX;
@@ -29,6 +30,15 @@ public class ParameterClipLane extends LXClipLane {
 
   public final LXNormalizedParameter parameter;
 
+  // Recording state for automation thinning. The tail is the last recorded
+  // event, which may be slid forward to each new value as long as every value
+  // since the anchor stays within tolerance of the straight line between them.
+  // The slope bounds are the range of lines from the anchor that satisfy all
+  // of the values seen so far.
+  private ParameterClipEvent anchor = null;
+  private ParameterClipEvent tail = null;
+  private double slopeMin, slopeMax;
+
   ParameterClipLane(LXClip clip, LXNormalizedParameter parameter) {
     super(clip);
     this.parameter = parameter;
@@ -43,8 +53,53 @@ public class ParameterClipLane extends LXClipLane {
     return this.parameter.getLabel();
   }
 
+  /**
+   * Appends a recorded event. If the clip engine's automation tolerance is
+   * non-zero, events that lie within tolerance of a straight line between
+   * their neighbors are dropped as they are recorded.
+   *
+   * @param event Event to append
+   * @return this
+   */
   public ParameterClipLane appendEvent(ParameterClipEvent event) {
+    final double tolerance = this.clip.getLX().engine.clips.automationTolerance.getValue();
+    final int size = this.mutableEvents.size();
+    if (tolerance > 0 &&
+        size >= 2 &&
+        this.mutableEvents.get(size - 1) == this.tail &&
+        this.mutableEvents.get(size - 2) == this.anchor) {
+      final double dt = event.cursor - this.anchor.cursor;
+      if (dt > 0) {
+        final double base = this.anchor.getNormalized();
+        final double value = event.getNormalized();
+        final double min = Math.max(this.slopeMin, (value - tolerance - base) / dt);
+        final double max = Math.min(this.slopeMax, (value + tolerance - base) / dt);
+        final double slope = (value - base) / dt;
+        if (min <= slope && slope <= max) {
+          // The tail is redundant, extend the segment to the new value
+          this.tail.set(event.cursor, value);
+          this.slopeMin = min;
+          this.slopeMax = max;
+          eventsChanged();
+          return this;
+        }
+      }
+    }
+
+    // Start a new segment from the previous tail
+    final ParameterClipEvent previous = (size > 0) ? (ParameterClipEvent) this.mutableEvents.get(size - 1) : null;
     super.appendEvent(event);
+    final double dt = (previous != null) ? event.cursor - previous.cursor : 0;
+    if (dt > 0) {
+      final double base = previous.getNormalized();
+      this.anchor = previous;
+      this.tail = event;
+      this.slopeMin = (event.getNormalized() - tolerance - base) / dt;
+      this.slopeMax = (event.getNormalized() + tolerance - base) / dt;
+    } else {
+      this.anchor = null;
+      this.tail = null;
+    }
     return this;
   }
 
@@ -58,18 +113,34 @@ public class ParameterClipLane extends LXClipLane {
 
   @Override
   void advanceCursor(double from, double to) {
-    if (this.events.size() == 0) {
+    final int size = this.mutableEvents.size();
+    if (size == 0) {
       return;
     }
-    LXClipEvent prior = null;
-    LXClipEvent next = null;
-    for (LXClipEvent event : this.events) {
-      prior = next;
-      next = event;
-      if (to < next.cursor) {
-        break;
+    // Find the first event after the cursor, stepping forward from where we
+    // left off during continuous playback
+    int index;
+    if (from == this.cursorPosition) {
+      index = this.cursorIndex;
+      while (index < size && this.mutableEvents.get(index).cursor <= to) {
+        ++index;
       }
+    } else {
+      index = this.mutableEvents.upperBound(to);
+    }
+    this.cursorIndex = index;
+    this.cursorPosition = to;
+
+    LXClipEvent next;
+    LXClipEvent prior;
+    if (index < size) {
+      next = this.mutableEvents.get(index);
+      prior = (index > 0) ? this.mutableEvents.get(index - 1) : null;
+    } else {
+      next = this.mutableEvents.get(size - 1);
+      prior = (size > 1) ? this.mutableEvents.get(size - 2) : null;
     }
+
     if (from > next.cursor) {
       // Do nothing, we've already passed it all
     } else if (prior == null) {
@@ -96,6 +167,46 @@ public class ParameterClipLane extends LXClipLane {
     obj.addProperty(LXComponent.KEY_PARAMETER_PATH, this.parameter.getPath());
   }
 
+  private static final String KEY_CURSORS = "cursors";
+  private static final String KEY_VALUES = "values";
+
+  /**
+   * Parameter events are saved compactly as parallel arrays of cursor
+   * positions and normalized values
+   */
+  @Override
+  protected void saveEvents(LX lx, JsonObject obj) {
+    final JsonArray cursors = new JsonArray();
+    final JsonArray values = new JsonArray();
+    for (LXClipEvent event : this.events) {
+      cursors.add(event.cursor);
+      values.add((float) ((ParameterClipEvent) event).getNormalized());
+    }
+    obj.add(KEY_CURSORS, cursors);
+    obj.add(KEY_VALUES, values);
+  }
+
+  @Override
+  protected void loadEvents(LX lx, JsonObject obj) {
+    if (obj.has(KEY_CURSORS) && obj.has(KEY_VALUES)) {
+      final JsonArray cursors = obj.getAsJsonArray(KEY_CURSORS);
+      final JsonArray values = obj.getAsJsonArray(KEY_VALUES);
+      if (cursors.size() != values.size()) {
+        LX.error("Mismatched cursors and values in saved parameter clip lane: " + this.parameter.getCanonicalPath());
+        return;
+      }
+      for (int i = 0; i < cursors.size(); ++i) {
+        this.mutableEvents.insert(
+          new ParameterClipEvent(this, this.parameter, values.get(i).getAsDouble())
+          .setCursor(cursors.get(i).getAsDouble())
+        );
+      }
+    } else {
+      // Older projects saved an object per event
+      super.loadEvents(lx, obj);
+    }
+  }
+
   @Override
   protected LXClipEvent loadEvent(LX lx, JsonObject eventObj) {
     double normalized = eventObj.get(ParameterClipEvent.KEY_NORMALIZED).getAsDouble();
@@ -382,6 +382,157 @@ public class LXColor {
       (hsb(h, s, b) & 0x00ffffff);
   }
 
+  /**
+   * Range of hue values used by the fixed-point HSB functions. The integer part
+   * (value >> 16) is the sector of the color wheel from 0-5 and the low 16 bits
+   * are the fractional position within that sector.
+   */
+  public static final int HSB_HUE_RANGE = 6 << 16;
+
+  /**
+   * Maximum saturation value used by the fixed-point HSB functions, 16 bits of
+   * fraction
+   */
+  public static final int HSB_SATURATION_MAX = 1 << 16;
+
+  /**
+   * Maximum brightness value used by the fixed-point HSB functions, 8.8 fixed
+   * point with the integer part from 0-255
+   */
+  public static final int HSB_BRIGHTNESS_MAX = 255 << 8;
+
+  // Reciprocal table, RECIPROCAL[d] ~= 65536 / d
+  private static final int[] RECIPROCAL = new int[256];
+
+  // Bit offsets of the red, green and blue values for each hue sector, into
+  // a packed int of brightness (0), p (8), q (16) and t (24)
+  private static final int[] HSB_SECTOR_SELECT = {
+    0  | (24 << 8) | (8 << 16),
+    16 | (0 << 8)  | (8 << 16),
+    8  | (0 << 8)  | (24 << 16),
+    8  | (16 << 8) | (0 << 16),
+    24 | (8 << 8)  | (0 << 16),
+    0  | (8 << 8)  | (16 << 16)
+  };
+
+  static {
+    for (int d = 1; d < RECIPROCAL.length; ++d) {
+      RECIPROCAL[d] = (65536 + d / 2) / d;
+    }
+  }
+
+  /**
+   * Converts an array of colors into fixed-point hue, saturation and brightness
+   * arrays. See HSB_HUE_RANGE, HSB_SATURATION_MAX and HSB_BRIGHTNESS_MAX for the
+   * value ranges. Alpha is ignored.
+   *
+   * @param src Source colors
+   * @param hue Output hue values
+   * @param saturation Output saturation values
+   * @param brightness Output brightness values
+   * @param count Number of colors to convert
+   */
+  public static void rgbToHsb(int[] src, int[] hue, int[] saturation, int[] brightness, int count) {
+    final int[] reciprocal = RECIPROCAL;
+    for (int i = 0; i < count; ++i) {
+      final int c = src[i];
+      final int r = (c & R_MASK) >> R_SHIFT;
+      final int g = (c & G_MASK) >> G_SHIFT;
+      final int b = c & B_MASK;
+      final int max = Math.max(Math.max(r, g), b);
+      final int min = Math.min(Math.min(r, g), b);
+      final int range = max - min;
+
+      // Written without data-dependent branches, noisy pixel data otherwise
+      // mispredicts constantly. The is* masks are all ones for the channel
+      // holding the max value. Gray input has range 0, reciprocal[0] is 0
+      // and the red case applies, producing zero hue and saturation.
+      brightness[i] = max << 8;
+      saturation[i] = Math.min(range * reciprocal[max], HSB_SATURATION_MAX);
+      final int isRed = ~((r - max) >> 31);
+      final int isGreen = ~((g - max) >> 31) & ~isRed;
+      final int isBlue = ~isRed & ~isGreen;
+      final int delta = (isRed & (g - b)) | (isGreen & (b - r)) | (isBlue & (r - g));
+      final int sector = (isGreen & (2 << 16)) | (isBlue & (4 << 16));
+      final int h = sector + delta * reciprocal[range];
+      hue[i] = h + ((h >> 31) & HSB_HUE_RANGE);
+    }
+  }
+
+  /**
+   * Converts fixed-point hue, saturation and brightness arrays back into opaque
+   * colors. Hue values must be in the range [0, HSB_HUE_RANGE), saturation and
+   * brightness are clamped.
+   *
+   * @param hue Hue values
+   * @param saturation Saturation values
+   * @param brightness Brightness values
+   * @param dst Output colors
+   * @param count Number of colors to convert
+   */
+  public static void hsbToRgb(int[] hue, int[] saturation, int[] brightness, int[] dst, int count) {
+    final int[] select = HSB_SECTOR_SELECT;
+    for (int i = 0; i < count; ++i) {
+      final int v = Math.min(Math.max(brightness[i], 0), HSB_BRIGHTNESS_MAX);
+      final int s = Math.min(Math.max(saturation[i], 0), HSB_SATURATION_MAX);
+      final int h = hue[i];
+      final int s8 = (s + 0x80) >> 8;
+      final int f8 = ((h & 0xffff) + 0x80) >> 8;
+      final int v255 = (v + 0x80) >> 8;
+      final int p = (v * (0x100 - s8) + 0x8000) >> 16;
+      final int q = (v * (0x100 - ((s8 * f8 + 0x80) >> 8)) + 0x8000) >> 16;
+      final int t = (v * (0x100 - ((s8 * (0x100 - f8) + 0x80) >> 8)) + 0x8000) >> 16;
+
+      // Pack the four candidate channel values and pick them out by sector
+      // rather than switching, see HSB_SECTOR_SELECT
+      final int values = v255 | (p << 8) | (q << 16) | (t << 24);
+      final int shifts = select[h >> 16];
+      final int r = (values >>> (shifts & 0x1f)) & 0xff;
+      final int g = (values >>> ((shifts >> 8) & 0x1f)) & 0xff;
+      final int b = (values >>> (shifts >> 16)) & 0xff;
+      dst[i] = ALPHA_MASK | (r << R_SHIFT) | (g << G_SHIFT) | b;
+    }
+  }
+
+  /**
+   * Rotates an array of fixed-point hue values, wrapping around the color wheel
+   *
+   * @param hue Hue values, modified in place
+   * @param degrees Amount to rotate in degrees, may be negative
+   * @param count Number of values
+   */
+  public static void rotateHue(int[] hue, float degrees, int count) {
+    int shift = (int) (degrees * H_COEFF * HSB_HUE_RANGE) % HSB_HUE_RANGE;
+    if (shift < 0) {
+      shift += HSB_HUE_RANGE;
+    }
+    if (shift == 0) {
+      return;
+    }
+    for (int i = 0; i < count; ++i) {
+      int h = hue[i] + shift;
+      if (h >= HSB_HUE_RANGE) {
+        h -= HSB_HUE_RANGE;
+      }
+      hue[i] = h;
+    }
+  }
+
+  /**
+   * Scales an array of fixed-point saturation values, clamping the result
+   *
+   * @param saturation Saturation values, modified in place
+   * @param factor Scaling factor
+   * @param count Number of values
+   */
+  public static void scaleSaturation(int[] saturation, float factor, int count) {
+    final int scale = (int) (factor * 0x100);
+    for (int i = 0; i < count; ++i) {
+      final long s = ((long) saturation[i] * scale) >> 8;
+      saturation[i] = (s > HSB_SATURATION_MAX) ? HSB_SATURATION_MAX : (s < 0) ? 0 : (int) s;
+    }
+  }
+
   /**
    * Blends the two colors using specified blend based on the alpha channel of c2
    *
@@ -551,6 +702,95 @@ public class LXColor {
       (dstRb * dstAlpha + (dstRb + (src & RB_MASK) - rbSub) * srcAlpha) >>> 8 & RB_MASK |
       (dstGn * dstAlpha + (dstGn + srcGn - gnSub) * srcAlpha) >>> 8 & G_MASK;
   }
+  // sRGB transfer function tables, from 8-bit encoded channel values to 16-bit
+  // linear light, and back from the top 12 bits of linear light
+  private static final int[] SRGB_TO_LINEAR = new int[256];
+  private static final int[] LINEAR_TO_SRGB = new int[4096];
+
+  static {
+    for (int i = 0; i < SRGB_TO_LINEAR.length; ++i) {
+      double c = i / 255.;
+      double linear = (c <= 0.04045) ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+      SRGB_TO_LINEAR[i] = (int) Math.round(linear * 0xffff);
+    }
+    for (int i = 0; i < LINEAR_TO_SRGB.length; ++i) {
+      double linear = (i + 0.5) / LINEAR_TO_SRGB.length;
+      double c = (linear <= 0.0031308) ? linear * 12.92 : 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+      LINEAR_TO_SRGB[i] = (int) Math.round(Math.min(1, c) * 0xff);
+    }
+    LINEAR_TO_SRGB[0] = 0;
+  }
+
+  /**
+   * Converts an 8-bit channel value to linear light
+   *
+   * @param channel Channel value from 0-255
+   * @return Linear light value from 0-65535
+   */
+  public static int toLinear(int channel) {
+    return SRGB_TO_LINEAR[channel & 0xff];
+  }
+
+  /**
+   * Converts a linear light value back to an 8-bit channel value
+   *
+   * @param linear Linear light value from 0-65535
+   * @return Channel value from 0-255
+   */
+  public static int fromLinear(int linear) {
+    return LINEAR_TO_SRGB[(linear >>> 4) & 0xfff];
+  }
+
+  /**
+   * Linear interpolation between two colors in linear light rather than on the
+   * gamma-encoded channel values, so that a crossfade between two colors does not
+   * dip in brightness halfway through. Alpha is handled the same as lerp().
+   *
+   * @param dst Background color
+   * @param src Overlay color
+   * @param alpha Secondary alpha mask (from 0x00 - 0x100)
+   * @return Blended color
+   */
+  public static int lerpLinear(int dst, int src, int alpha) {
+    final int[] toLinear = SRGB_TO_LINEAR;
+    final int[] fromLinear = LINEAR_TO_SRGB;
+    int a = (((src >>> ALPHA_SHIFT) * alpha) >> 8) & 0xff;
+    int srcAlpha = a + (a >= 0x7F ? 1 : 0);
+    int dstAlpha = 0x100 - srcAlpha;
+    int r = toLinear[(dst >>> R_SHIFT) & 0xff] * dstAlpha + toLinear[(src >>> R_SHIFT) & 0xff] * srcAlpha;
+    int g = toLinear[(dst >>> G_SHIFT) & 0xff] * dstAlpha + toLinear[(src >>> G_SHIFT) & 0xff] * srcAlpha;
+    int b = toLinear[dst & 0xff] * dstAlpha + toLinear[src & 0xff] * srcAlpha;
+    return
+      min((dst >>> ALPHA_SHIFT) + a, 0xff) << ALPHA_SHIFT |
+      fromLinear[r >>> 12] << R_SHIFT |
+      fromLinear[g >>> 12] << G_SHIFT |
+      fromLinear[b >>> 12];
+  }
+
+  /**
+   * Additive blend in linear light rather than on the gamma-encoded channel values.
+   * Alpha is handled the same as add().
+   *
+   * @param dst Background color
+   * @param src Overlay color
+   * @param alpha Secondary alpha mask (from 0x00 - 0x100)
+   * @return Blended color
+   */
+  public static int addLinear(int dst, int src, int alpha) {
+    final int[] toLinear = SRGB_TO_LINEAR;
+    final int[] fromLinear = LINEAR_TO_SRGB;
+    int a = (((src >>> ALPHA_SHIFT) * alpha) >> 8) & 0xff;
+    int srcAlpha = a + (a >= 0x7F ? 1 : 0);
+    int r = toLinear[(dst >>> R_SHIFT) & 0xff] + (toLinear[(src >>> R_SHIFT) & 0xff] * srcAlpha >>> 8);
+    int g = toLinear[(dst >>> G_SHIFT) & 0xff] + (toLinear[(src >>> G_SHIFT) & 0xff] * srcAlpha >>> 8);
+    int b = toLinear[dst & 0xff] + (toLinear[src & 0xff] * srcAlpha >>> 8);
+    return
+      min((dst >>> ALPHA_SHIFT) + a, 0xff) << ALPHA_SHIFT |
+      fromLinear[min(r, 0xffff) >>> 4] << R_SHIFT |
+      fromLinear[min(g, 0xffff) >>> 4] << G_SHIFT |
+      fromLinear[min(b, 0xffff) >>> 4];
+  }
+
 
   public static int lightest(int dst, int src) {
     return lightest(dst, src, 0x100);
@@ -488,7 +488,7 @@ public class LXPalette extends LXComponent implements LXLoopTask, LXOscComponent
     }
     int numEligible = eligible.size();
     if (numEligible > 0) {
-      LXSwatch random = eligible.get(LXUtils.constrain((int) LXUtils.random(0, numEligible), 0, numEligible - 1));
+      LXSwatch random = eligible.get(getRandom().nextInt(numEligible));
       setSwatch(random);
     }
   }
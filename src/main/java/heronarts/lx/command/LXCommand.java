@@ -18,12 +18,22 @@
 
 package heronarts.lx.command;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 
 import heronarts.lx.LX;
@@ -192,6 +202,108 @@ public abstract class LXCommand {
     return false;
   }
 
+  /**
+   * Subclasses may override to absorb a command that is performed immediately
+   * after this one, such that undo of this command reverts both. This is used
+   * to collapse a rapid series of changes to the same target, like a knob
+   * being turned, into a single undo step.
+   *
+   * @param command Command that was just performed
+   * @return Whether the command was merged into this one
+   */
+  protected boolean merge(LXCommand command) {
+    return false;
+  }
+
+  /**
+   * Approximate base memory footprint of a command
+   */
+  private static final long BASE_SIZE = 128;
+
+  private long retainedBytes = 0;
+
+  /**
+   * Approximate amount of memory retained by this command while it is in the
+   * undo history, in bytes.
+   *
+   * @return Approximate size in bytes
+   */
+  public long getSize() {
+    return BASE_SIZE + this.retainedBytes;
+  }
+
+  /**
+   * Holds on to serialized state that a command needs to undo or redo itself,
+   * accounting for it in this command's size.
+   *
+   * @param obj Serialized state
+   * @return Retained state
+   */
+  protected final SerializedState retain(JsonObject obj) {
+    SerializedState state = new SerializedState(obj);
+    this.retainedBytes += state.getSize();
+    return state;
+  }
+
+  /**
+   * Serialized component state retained by a command. Large payloads, e.g. a
+   * whole channel full of patterns and clips, are kept deflated and are only
+   * re-parsed if the command is actually undone or redone.
+   */
+  protected static class SerializedState {
+
+    private static final int DEFLATE_THRESHOLD = 16384;
+
+    private final JsonObject obj;
+    private final byte[] deflated;
+    private final int size;
+
+    public SerializedState(JsonObject obj) {
+      String json = obj.toString();
+      if (json.length() < DEFLATE_THRESHOLD) {
+        this.obj = obj;
+        this.deflated = null;
+        this.size = 2 * json.length();
+      } else {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length() / 4);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(bytes)) {
+          deflater.write(json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException iox) {
+          throw new UncheckedIOException(iox);
+        }
+        this.obj = null;
+        this.deflated = bytes.toByteArray();
+        this.size = this.deflated.length;
+      }
+    }
+
+    /**
+     * Gets the serialized state. Deflated state is re-parsed into a new
+     * object on each call.
+     *
+     * @return Serialized state
+     */
+    public JsonObject get() {
+      if (this.obj != null) {
+        return this.obj;
+      }
+      try (Reader reader = new InputStreamReader(new InflaterInputStream(new ByteArrayInputStream(this.deflated)), StandardCharsets.UTF_8)) {
+        return new Gson().fromJson(reader, JsonObject.class);
+      } catch (IOException iox) {
+        throw new UncheckedIOException(iox);
+      }
+    }
+
+    /**
+     * Approximate memory retained by this state
+     *
+     * @return Size in bytes
+     */
+    public int getSize() {
+      return this.size;
+    }
+  }
+
 
   public static abstract class RemoveComponent extends LXCommand {
 
@@ -317,7 +429,7 @@ public abstract class LXCommand {
 
       private final ParameterReference<DiscreteParameter> discreteParameter;
       private final int originalDiscreteValue;
-      private final int newDiscreteValue;
+      private int newDiscreteValue;
 
       private final ParameterReference<LXParameter> genericParameter;
       private final double originalGenericValue;
@@ -379,6 +491,19 @@ public abstract class LXCommand {
         return "Change " + getParameter().getLabel();
       }
 
+      @Override
+      protected boolean merge(LXCommand command) {
+        if (command instanceof SetValue) {
+          SetValue that = (SetValue) command;
+          if ((this.isDiscrete == that.isDiscrete) && (getParameter() == that.getParameter())) {
+            this.newDiscreteValue = that.newDiscreteValue;
+            this.newGenericValue = that.newGenericValue;
+            return true;
+          }
+        }
+        return false;
+      }
+
       @Override
       public void perform(LX lx) {
         if (this.isDiscrete) {
@@ -437,6 +562,18 @@ public abstract class LXCommand {
         return this;
       }
 
+      @Override
+      protected boolean merge(LXCommand command) {
+        if (command instanceof SetColor) {
+          SetColor that = (SetColor) command;
+          if (this.colorParameter.get() == that.colorParameter.get()) {
+            update(that.updateHue, that.updateSaturation);
+            return true;
+          }
+        }
+        return false;
+      }
+
       @Override
       public void undo(LX lx) throws InvalidCommandException {
         this.colorParameter.get().hue.setValue(this.originalHue);
@@ -689,7 +826,7 @@ public abstract class LXCommand {
 
       private final ComponentReference<LXChannel> channel;
       private final ComponentReference<LXPattern> pattern;
-      private final JsonObject patternObj;
+      private final SerializedState patternObj;
       private final int patternIndex;
       private final boolean isActive;
       private final boolean isFocused;
@@ -698,7 +835,7 @@ public abstract class LXCommand {
         super(pattern);
         this.channel = new ComponentReference<LXChannel>(channel);
         this.pattern = new ComponentReference<LXPattern>(pattern);
-        this.patternObj = LXSerializable.Utils.toObject(pattern);
+        this.patternObj = retain(LXSerializable.Utils.toObject(pattern));
         this.patternIndex = pattern.getIndex();
         this.isActive = channel.getActivePattern() == pattern;
         this.isFocused = channel.getFocusedPattern() == pattern;
@@ -718,8 +855,9 @@ public abstract class LXCommand {
       public void undo(LX lx) throws InvalidCommandException {
         LXChannel channel = this.channel.get();
         try {
-          LXPattern pattern = lx.instantiatePattern(this.patternObj.get(LXComponent.KEY_CLASS).getAsString());
-          pattern.load(lx, this.patternObj);
+          JsonObject patternObj = this.patternObj.get();
+          LXPattern pattern = lx.instantiatePattern(patternObj.get(LXComponent.KEY_CLASS).getAsString());
+          pattern.load(lx, patternObj);
           channel.addPattern(pattern, this.patternIndex);
           if (this.isActive) {
             channel.goPattern(pattern);
@@ -842,14 +980,14 @@ public abstract class LXCommand {
 
       private final ComponentReference<LXBus> channel;
       private final ComponentReference<LXEffect> effect;
-      private final JsonObject effectObj;
+      private final SerializedState effectObj;
       private final int effectIndex;
 
       public RemoveEffect(LXBus channel, LXEffect effect) {
         super(effect);
         this.channel = new ComponentReference<LXBus>(channel);
         this.effect = new ComponentReference<LXEffect>(effect);
-        this.effectObj = LXSerializable.Utils.toObject(effect);
+        this.effectObj = retain(LXSerializable.Utils.toObject(effect));
         this.effectIndex = effect.getIndex();
       }
 
@@ -867,7 +1005,8 @@ public abstract class LXCommand {
       public void undo(LX lx) throws InvalidCommandException {
         LXBus channel = this.channel.get();
         try {
-          LXEffect effect = lx.instantiateEffect(this.effectObj.get(LXComponent.KEY_CLASS).getAsString());
+          JsonObject effectObj = this.effectObj.get();
+          LXEffect effect = lx.instantiateEffect(effectObj.get(LXComponent.KEY_CLASS).getAsString());
           effect.load(lx, effectObj);
           channel.addEffect(effect, this.effectIndex);
           super.undo(lx);
@@ -914,12 +1053,12 @@ public abstract class LXCommand {
     public static class LoadPreset extends LXCommand {
 
       private final ComponentReference<LXDeviceComponent> device;
-      private final JsonObject deviceObj;
+      private final SerializedState deviceObj;
       private final File file;
 
       public LoadPreset(LXDeviceComponent device, File file) {
         this.device = new ComponentReference<LXDeviceComponent>(device);
-        this.deviceObj = LXSerializable.Utils.toObject(device);
+        this.deviceObj = retain(LXSerializable.Utils.toObject(device));
         this.file = file;
       }
 
@@ -935,7 +1074,7 @@ public abstract class LXCommand {
 
       @Override
       public void undo(LX lx) throws InvalidCommandException {
-        this.device.get().load(lx, this.deviceObj);
+        this.device.get().load(lx, this.deviceObj.get());
       }
     }
 
@@ -1119,7 +1258,7 @@ public abstract class LXCommand {
 
     public static class RemoveChannel extends RemoveComponent {
       private final ComponentReference<LXAbstractChannel> channel;
-      private final JsonObject channelObj;
+      private final SerializedState channelObj;
       private final int index;
 
       private Parameter.SetNormalized focusedChannel;
@@ -1128,7 +1267,7 @@ public abstract class LXCommand {
       public RemoveChannel(LXAbstractChannel channel) {
         super(channel);
         this.channel = new ComponentReference<LXAbstractChannel>(channel);
-        this.channelObj = LXSerializable.Utils.toObject(channel);
+        this.channelObj = retain(LXSerializable.Utils.toObject(channel));
         this.index = channel.getIndex();
         this.focusedChannel = new Parameter.SetNormalized(channel.getLX().engine.mixer.focusedChannel);
 
@@ -1145,6 +1284,15 @@ public abstract class LXCommand {
         return "Delete Channel";
       }
 
+      @Override
+      public long getSize() {
+        long size = super.getSize();
+        for (RemoveChannel child : this.groupChildren) {
+          size += child.getSize();
+        }
+        return size;
+      }
+
       @Override
       public void perform(LX lx) {
         // Note: this automatically removes group children as well
@@ -1158,7 +1306,7 @@ public abstract class LXCommand {
 
       public void undo(LX lx, boolean multiRemove) throws InvalidCommandException {
         // Re-load the removed channel
-        lx.engine.mixer.loadChannel(this.channelObj, this.index);
+        lx.engine.mixer.loadChannel(this.channelObj.get(), this.index);
 
         // Restore all the group children
         for (RemoveChannel child : this.groupChildren) {
@@ -1224,14 +1372,14 @@ public abstract class LXCommand {
 
     public static class Ungroup extends LXCommand {
       private final ComponentReference<LXGroup> group;
-      private final JsonObject groupObj;
+      private final SerializedState groupObj;
       private final int index;
 
       private final List<ComponentReference<LXChannel>> groupChannels = new ArrayList<ComponentReference<LXChannel>>();
 
       public Ungroup(LXGroup group) {
         this.group = new ComponentReference<LXGroup>(group);
-        this.groupObj = LXSerializable.Utils.toObject(group);
+        this.groupObj = retain(LXSerializable.Utils.toObject(group));
         this.index = group.getIndex();
       }
 
@@ -1251,7 +1399,7 @@ public abstract class LXCommand {
       @Override
       public void undo(LX lx) {
         LXGroup group = lx.engine.mixer.addGroup(this.index);
-        group.load(lx, this.groupObj);
+        group.load(lx, this.groupObj.get());
         for (ComponentReference<LXChannel> channel : this.groupChannels) {
           group.addChannel(channel.get());
         }
@@ -1426,7 +1574,7 @@ public abstract class LXCommand {
 
       private final ComponentReference<LXModulationEngine> modulation;
       private final ComponentReference<LXModulator> modulator;
-      private final JsonObject modulatorObj;
+      private final SerializedState modulatorObj;
       private final int index;
 
       public RemoveModulator(LXModulationEngine modulation, LXModulator modulator) {
@@ -1434,7 +1582,7 @@ public abstract class LXCommand {
         this.modulation = new ComponentReference<LXModulationEngine>(modulation);
         this.modulator = new ComponentReference<LXModulator>(modulator);
         this.index = modulator.getIndex();
-        this.modulatorObj = LXSerializable.Utils.toObject(modulator);
+        this.modulatorObj = retain(LXSerializable.Utils.toObject(modulator));
 
         // Not the global modulation engine? Remove from ours as well!
         if (modulation != modulator.getLX().engine.modulation) {
@@ -1455,8 +1603,9 @@ public abstract class LXCommand {
       @Override
       public void undo(LX lx) throws InvalidCommandException {
         try {
-          LXModulator instance = lx.instantiateModulator(this.modulatorObj.get(LXComponent.KEY_CLASS).getAsString());
-          instance.load(lx, this.modulatorObj);
+          JsonObject modulatorObj = this.modulatorObj.get();
+          LXModulator instance = lx.instantiateModulator(modulatorObj.get(LXComponent.KEY_CLASS).getAsString());
+          instance.load(lx, modulatorObj);
           this.modulation.get().addModulator(instance, this.index);
           instance.start();
 
@@ -1992,13 +2141,13 @@ public abstract class LXCommand {
     public static class RemoveSnapshot extends RemoveComponent {
 
       private final ComponentReference<LXGlobalSnapshot> snapshot;
-      private final JsonObject snapshotObj;
+      private final SerializedState snapshotObj;
       private final int snapshotIndex;
 
       public RemoveSnapshot(LXGlobalSnapshot snapshot) {
         super(snapshot);
         this.snapshot = new ComponentReference<LXGlobalSnapshot>(snapshot);
-        this.snapshotObj = LXSerializable.Utils.toObject(snapshot);
+        this.snapshotObj = retain(LXSerializable.Utils.toObject(snapshot));
         this.snapshotIndex = snapshot.getIndex();
       }
 
@@ -2015,7 +2164,7 @@ public abstract class LXCommand {
       @Override
       public void undo(LX lx) throws InvalidCommandException {
         LXGlobalSnapshot snapshot = new LXGlobalSnapshot(lx);
-        snapshot.load(lx, this.snapshotObj);
+        snapshot.load(lx, this.snapshotObj.get());
         lx.engine.snapshots.addSnapshot(snapshot, this.snapshotIndex);
         super.undo(lx);
       }
@@ -2187,12 +2336,12 @@ public abstract class LXCommand {
 
       private ComponentReference<LXFixture> fixture;
       private final int index;
-      private final JsonObject fixtureObj;
+      private final SerializedState fixtureObj;
 
       public RemoveFixture(LXFixture fixture) {
         super(fixture);
         this.fixture = new ComponentReference<LXFixture>(fixture);
-        this.fixtureObj = LXSerializable.Utils.toObject(fixture);
+        this.fixtureObj = retain(LXSerializable.Utils.toObject(fixture));
         this.index = fixture.getIndex();
       }
 
@@ -2209,8 +2358,9 @@ public abstract class LXCommand {
       @Override
       public void undo(LX lx) throws InvalidCommandException {
         try {
-          LXFixture fixture = lx.instantiateFixture(this.fixtureObj.get(LXComponent.KEY_CLASS).getAsString());
-          fixture.load(lx, this.fixtureObj);
+          JsonObject fixtureObj = this.fixtureObj.get();
+          LXFixture fixture = lx.instantiateFixture(fixtureObj.get(LXComponent.KEY_CLASS).getAsString());
+          fixture.load(lx, fixtureObj);
           lx.structure.addFixture(fixture, this.index);
         } catch (LX.InstantiationException x) {
           throw new InvalidCommandException(x);
@@ -2417,11 +2567,11 @@ public abstract class LXCommand {
 
       private final ComponentReference<LXBus> bus;
       private final int index;
-      private final JsonObject clipObj;
+      private final SerializedState clipObj;
 
       public Remove(LXClip clip) {
         this.bus = new ComponentReference<LXBus>(clip.bus);
-        this.clipObj = LXSerializable.Utils.toObject(clip);
+        this.clipObj = retain(LXSerializable.Utils.toObject(clip));
         this.index = clip.getIndex();
       }
 
@@ -2437,7 +2587,7 @@ public abstract class LXCommand {
 
       @Override
       public void undo(LX lx) {
-        this.bus.get().addClip(this.clipObj, this.index);
+        this.bus.get().addClip(this.clipObj.get(), this.index);
       }
 
     }
@@ -2486,12 +2636,12 @@ public abstract class LXCommand {
     public static class Record extends LXCommand {
 
       private final ComponentReference<LXClip> clip;
-      private final JsonObject clipObjPre;
-      private JsonObject clipObjPost = null;
+      private final SerializedState clipObjPre;
+      private SerializedState clipObjPost = null;
 
       public Record(LXClip clip) {
         this.clip = new ComponentReference<LXClip>(clip);
-        this.clipObjPre = LXSerializable.Utils.toObject(clip.getLX(), clip);
+        this.clipObjPre = retain(LXSerializable.Utils.toObject(clip.getLX(), clip));
       }
 
       @Override
@@ -2503,15 +2653,15 @@ public abstract class LXCommand {
       public void perform(LX lx) {
         LXClip clip = this.clip.get();
         if (this.clipObjPost == null) {
-          this.clipObjPost = LXSerializable.Utils.toObject(lx, clip);
+          this.clipObjPost = retain(LXSerializable.Utils.toObject(lx, clip));
         } else {
-          clip.load(lx, this.clipObjPost);
+          clip.load(lx, this.clipObjPost.get());
         }
       }
 
       @Override
       public void undo(LX lx) {
-        this.clip.get().load(lx, this.clipObjPre);
+        this.clip.get().load(lx, this.clipObjPre.get());
       }
 
     }
@@ -18,7 +18,8 @@
 
 package heronarts.lx.command;
 
-import java.util.Stack;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 import heronarts.lx.LX;
 import heronarts.lx.command.LXCommand.InvalidCommandException;
@@ -28,6 +29,10 @@ import heronarts.lx.parameter.MutableParameter;
 /**
  * The LX command engine keeps track of high-level UI commands that have been
  * performed. A stack is maintained which enables Undo operations to take place.
+ * The history is bounded both in number of entries and approximate memory, the
+ * oldest entries are discarded once either budget is exceeded. Consecutive
+ * commands on the same target performed in quick succession are merged into a
+ * single undo step.
  */
 public class LXCommandEngine {
 
@@ -40,8 +45,31 @@ public class LXCommandEngine {
   public final MutableParameter undoChanged = new MutableParameter("Undo");
   public final MutableParameter redoChanged = new MutableParameter("Redo");
 
-  private final Stack<LXCommand> undoStack = new Stack<LXCommand>();
-  private final Stack<LXCommand> redoStack = new Stack<LXCommand>();
+  /**
+   * Default maximum number of commands held in the undo history
+   */
+  public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+  /**
+   * Default maximum approximate memory held by the undo history
+   */
+  public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+  /**
+   * Commands performed within this window of the previous one may be merged
+   */
+  private static final long MERGE_WINDOW_MS = 1000;
+
+  private final Deque<LXCommand> undoStack = new ArrayDeque<LXCommand>();
+  private final Deque<LXCommand> redoStack = new ArrayDeque<LXCommand>();
+
+  private int maxEntries = DEFAULT_MAX_ENTRIES;
+  private long maxBytes = DEFAULT_MAX_BYTES;
+
+  private long undoBytes = 0;
+  private long redoBytes = 0;
+
+  private long lastPerformMillis = 0;
 
   public final BooleanParameter dirty =
     new BooleanParameter("Dirty", false)
@@ -62,13 +90,21 @@ public class LXCommandEngine {
       if (!command.isIgnored()) {
         // If the event it already at the top of the pack, it has been updated
         // and is not re-pushed after it is performed again
-        if (this.undoStack.isEmpty() || (this.undoStack.peek() != command)) {
-          this.undoStack.push(command);
+        final long now = System.currentTimeMillis();
+        final LXCommand top = this.undoStack.peek();
+        if (top != command) {
+          if ((top != null) && (now - this.lastPerformMillis < MERGE_WINDOW_MS) && top.merge(command)) {
+            // Absorbed into the previous command, which now undoes both
+          } else {
+            pushUndo(command);
+          }
           this.undoChanged.bang();
         }
+        this.lastPerformMillis = now;
 
         // A new action has occurred, we've branched and redo is done
         this.redoStack.clear();
+        this.redoBytes = 0;
         this.redoChanged.bang();
       }
 
@@ -104,16 +140,108 @@ public class LXCommandEngine {
   }
 
   public LXCommand getUndoCommand() {
-    return this.undoStack.empty() ? null : this.undoStack.peek();
+    return this.undoStack.peek();
   }
 
   public LXCommand getRedoCommand() {
-    return this.redoStack.empty() ? null : this.redoStack.peek();
+    return this.redoStack.peek();
+  }
+
+  /**
+   * Sets the budget for the undo history. Once either limit is exceeded the
+   * commands farthest from the current state are discarded, though the most
+   * recent command is always retained.
+   *
+   * @param maxEntries Maximum number of undoable commands
+   * @param maxBytes Maximum approximate memory held by undo and redo history
+   * @return this
+   */
+  public LXCommandEngine setHistoryLimit(int maxEntries, long maxBytes) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("LXCommandEngine history must allow at least one entry: " + maxEntries);
+    }
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    if (trimHistory()) {
+      this.undoChanged.bang();
+    }
+    return this;
+  }
+
+  /**
+   * Number of commands that may currently be undone
+   *
+   * @return Undo history size
+   */
+  public int getUndoCount() {
+    return this.undoStack.size();
+  }
+
+  /**
+   * Number of commands that may currently be redone
+   *
+   * @return Redo history size
+   */
+  public int getRedoCount() {
+    return this.redoStack.size();
+  }
+
+  /**
+   * Approximate memory held by the undo and redo history
+   *
+   * @return Approximate size in bytes
+   */
+  public long getHistoryBytes() {
+    return this.undoBytes + this.redoBytes;
+  }
+
+  private void pushUndo(LXCommand command) {
+    this.undoStack.push(command);
+    this.undoBytes += command.getSize();
+    trimHistory();
+  }
+
+  private LXCommand popUndo() {
+    LXCommand command = this.undoStack.pop();
+    this.undoBytes -= command.getSize();
+    return command;
+  }
+
+  /**
+   * Trims the history back within budget. The entry limit applies to the undo
+   * stack, while the byte budget covers both stacks, so it is met by dropping
+   * commands from whichever stack is longer, farthest from the current state
+   * first.
+   *
+   * @return Whether any undo history was discarded
+   */
+  private boolean trimHistory() {
+    boolean trimmedUndo = false, trimmedRedo = false;
+    while ((this.undoStack.size() > 1) && (this.undoStack.size() > this.maxEntries)) {
+      this.undoBytes -= this.undoStack.removeLast().getSize();
+      trimmedUndo = true;
+    }
+    while ((getHistoryBytes() > this.maxBytes) && ((this.undoStack.size() > 1) || !this.redoStack.isEmpty())) {
+      if ((this.undoStack.size() > 1) && (this.undoStack.size() > this.redoStack.size())) {
+        this.undoBytes -= this.undoStack.removeLast().getSize();
+        trimmedUndo = true;
+      } else {
+        this.redoBytes -= this.redoStack.removeLast().getSize();
+        trimmedRedo = true;
+      }
+    }
+    if (trimmedRedo) {
+      this.redoChanged.bang();
+    }
+    return trimmedUndo;
   }
 
   public LXCommandEngine clear() {
     this.undoStack.clear();
     this.redoStack.clear();
+    this.undoBytes = 0;
+    this.redoBytes = 0;
+    this.lastPerformMillis = 0;
     this.undoChanged.bang();
     this.redoChanged.bang();
     return this;
@@ -126,11 +254,13 @@ public class LXCommandEngine {
    * @return this
    */
   public LXCommandEngine undo() {
-    if (!this.undoStack.empty()) {
-      LXCommand command = this.undoStack.pop();
+    if (!this.undoStack.isEmpty()) {
+      LXCommand command = popUndo();
+      this.lastPerformMillis = 0;
       try {
         command.undo(this.lx);
         this.redoStack.push(command);
+        this.redoBytes += command.getSize();
         this.undoChanged.bang();
         this.redoChanged.bang();
       } catch (InvalidCommandException icx) {
@@ -153,11 +283,13 @@ public class LXCommandEngine {
    * @return this
    */
   public LXCommandEngine redo() {
-    if (!this.redoStack.empty()) {
+    if (!this.redoStack.isEmpty()) {
       LXCommand command = this.redoStack.pop();
+      this.redoBytes -= command.getSize();
+      this.lastPerformMillis = 0;
       try {
         command.perform(this.lx);
-        this.undoStack.push(command);
+        pushUndo(command);
         this.undoChanged.bang();
         this.redoChanged.bang();
       } catch (InvalidCommandException icx) {
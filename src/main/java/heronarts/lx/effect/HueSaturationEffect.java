@@ -51,38 +51,47 @@ public class HueSaturationEffect extends LXEffect {
     addParameter("brightness", this.brightness);
   }
 
+  private int[] hueBuffer = new int[0];
+  private int[] saturationBuffer = new int[0];
+  private int[] brightnessBuffer = new int[0];
+
   @Override
   protected void run(double deltaMs, double amount) {
-    float hue = this.hue.getValuef();
-    float saturation = this.saturation.getValuef();
-    float brightness = this.brightness.getValuef();
-    float amountf = (float) amount;
+    final int count = colors.length;
+    if (this.hueBuffer.length != count) {
+      this.hueBuffer = new int[count];
+      this.saturationBuffer = new int[count];
+      this.brightnessBuffer = new int[count];
+    }
+    final int[] h = this.hueBuffer;
+    final int[] s = this.saturationBuffer;
+    final int[] b = this.brightnessBuffer;
+
+    // Shifts in fixed-point HSB units, see LXColor.rgbToHsb
+    final int saturation = (int) (this.saturation.getValuef() / 100f * LXColor.HSB_SATURATION_MAX);
+    final int brightness = (int) (this.brightness.getValuef() / 100f * LXColor.HSB_BRIGHTNESS_MAX);
+    final int amount8 = (int) (amount * 0x100);
 
-    if (amount < 1) {
-      for (int i = 0; i < colors.length; ++i) {
-        int c = colors[i];
-        float h = LXColor.h(c);
-        float s = LXColor.s(c);
-        float b = LXColor.b(c);
-        colors[i] = LXColor.hsb(
-          LXUtils.lerpf(h, h + hue, amountf),
-          LXUtils.lerpf(s, LXUtils.clampf(s + saturation, 0, 100), amountf),
-          LXUtils.lerpf(b, LXUtils.clampf(b + brightness, 0, 100), amountf)
-        );
+    LXColor.rgbToHsb(colors, h, s, b, count);
+
+    // Interpolating from h to h + hue is the same as rotating by the scaled amount
+    LXColor.rotateHue(h, this.hue.getValuef() * (float) amount, count);
+
+    if (amount8 >= 0x100) {
+      for (int i = 0; i < count; ++i) {
+        s[i] = LXUtils.clamp(s[i] + saturation, 0, LXColor.HSB_SATURATION_MAX);
+        b[i] = LXUtils.clamp(b[i] + brightness, 0, LXColor.HSB_BRIGHTNESS_MAX);
       }
     } else {
-      for (int i = 0; i < colors.length; ++i) {
-        int c = colors[i];
-        float h = LXColor.h(c);
-        float s = LXColor.s(c);
-        float b = LXColor.b(c);
-        colors[i] = LXColor.hsb(
-          h + hue,
-          LXUtils.clampf(s + saturation, 0, 100),
-          LXUtils.clampf(b + brightness, 0, 100)
-        );
+      for (int i = 0; i < count; ++i) {
+        final int si = s[i];
+        final int bi = b[i];
+        s[i] = si + ((LXUtils.clamp(si + saturation, 0, LXColor.HSB_SATURATION_MAX) - si) * amount8 >> 8);
+        b[i] = bi + ((LXUtils.clamp(bi + brightness, 0, LXColor.HSB_BRIGHTNESS_MAX) - bi) * amount8 >> 8);
       }
     }
+
+    LXColor.hsbToRgb(h, s, b, colors, count);
   }
 
 }
@@ -29,7 +29,7 @@ import heronarts.lx.utils.LXUtils;
 @LXCategory(LXCategory.TEXTURE)
 public class SparkleEffect extends LXEffect {
 
-  public final SparklePattern.Engine engine = new SparklePattern.Engine(model);
+  public final SparklePattern.Engine engine = new SparklePattern.Engine(model, getRandom());
 
   public final CompoundParameter amount =
     new CompoundParameter("Amount", 1)
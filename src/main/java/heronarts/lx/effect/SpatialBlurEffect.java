@@ -0,0 +1,248 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.lx.effect;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import heronarts.lx.LX;
+import heronarts.lx.LXCategory;
+import heronarts.lx.color.LXColor;
+import heronarts.lx.model.GridModel;
+import heronarts.lx.model.LXModel;
+import heronarts.lx.model.SpatialKernel;
+import heronarts.lx.parameter.BoundedParameter;
+import heronarts.lx.parameter.CompoundParameter;
+import heronarts.lx.parameter.DiscreteParameter;
+import heronarts.lx.parameter.EnumParameter;
+import heronarts.lx.parameter.LXParameter;
+
+/**
+ * Blurs colors across space rather than time. The neighbor weights are built
+ * into a SpatialKernel when the model or the kernel parameters change, each
+ * frame is then a single pass over the precomputed table. Kernels are built on
+ * a background thread and swapped in once ready, in the meantime the previous
+ * kernel keeps running, or nothing at all if the model has changed. Grid
+ * models use a separable kernel for the radius blur.
+ */
+@LXCategory(LXCategory.CORE)
+public class SpatialBlurEffect extends LXEffect {
+
+  public enum Kernel {
+    RADIUS("Radius"),
+    STRIP("Strip");
+
+    public final String label;
+
+    private Kernel(String label) {
+      this.label = label;
+    }
+
+    @Override
+    public String toString() {
+      return this.label;
+    }
+  }
+
+  public final CompoundParameter level =
+    new CompoundParameter("Level", 1, 0, 1)
+    .setDescription("Sets the level of the blur relative to original signal");
+
+  public final EnumParameter<Kernel> kernel =
+    new EnumParameter<Kernel>("Kernel", Kernel.RADIUS)
+    .setDescription("Whether to blur by distance in space or by position along strips");
+
+  public final BoundedParameter radius =
+    new BoundedParameter("Radius", .02, 0, .5)
+    .setExponent(2)
+    .setDescription("Radius of the blur as a proportion of the model size. Cost grows with the number of points in range, up to a fixed limit per point");
+
+  public final DiscreteParameter stripRadius =
+    new DiscreteParameter("Pixels", 2, 0, 33)
+    .setDescription("Radius of the blur in pixels along each strip");
+
+  public final EnumParameter<BlurEffect.Mode> mode =
+    new EnumParameter<BlurEffect.Mode>("Mode", BlurEffect.Mode.MIX)
+    .setDescription("Which blending mode the blur uses");
+
+  /**
+   * A kernel built in the background for a given model
+   */
+  private static class Build {
+    private final LXModel model;
+    private final int generation;
+    private final SpatialKernel kernel;
+
+    private Build(LXModel model, int generation, SpatialKernel kernel) {
+      this.model = model;
+      this.generation = generation;
+      this.kernel = kernel;
+    }
+  }
+
+  private SpatialKernel spatialKernel = null;
+  private LXModel kernelModel = null;
+  private int kernelGeneration = 0;
+  private int[] blurColors = new int[0];
+
+  private final AtomicInteger requestGeneration = new AtomicInteger();
+  private final AtomicReference<Build> built = new AtomicReference<Build>();
+  private ExecutorService kernelExecutor = null;
+  private volatile boolean kernelRequested = false;
+
+  public SpatialBlurEffect(LX lx) {
+    super(lx);
+    addParameter("level", this.level);
+    addParameter("kernel", this.kernel);
+    addParameter("radius", this.radius);
+    addParameter("stripRadius", this.stripRadius);
+    addParameter("mode", this.mode);
+  }
+
+  @Override
+  public void onParameterChanged(LXParameter p) {
+    super.onParameterChanged(p);
+    if (p == this.kernel || p == this.radius || p == this.stripRadius) {
+      this.kernelRequested = false;
+    }
+  }
+
+  @Override
+  protected void onModelChanged(LXModel model) {
+    this.kernelRequested = false;
+  }
+
+  /**
+   * Queues a kernel build for the current model and parameters. Builds that
+   * are superseded before they start are skipped, so moving a knob queues up
+   * at most one build behind the one running.
+   */
+  private void requestKernel() {
+    this.kernelRequested = true;
+    final LXModel model = this.model;
+    final Kernel kernel = this.kernel.getEnum();
+    final int stripRadius = this.stripRadius.getValuei();
+    final float radius = this.radius.getValuef() * Math.max(model.xRange, Math.max(model.yRange, model.zRange));
+    final int generation = this.requestGeneration.incrementAndGet();
+    if (this.kernelExecutor == null) {
+      this.kernelExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "SpatialBlurEffect Kernel");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    this.kernelExecutor.execute(() -> {
+      if (generation != this.requestGeneration.get()) {
+        return;
+      }
+      try {
+        this.built.set(new Build(model, generation, buildKernel(model, kernel, radius, stripRadius)));
+      } catch (Exception x) {
+        LX.error(x, "Could not build spatial blur kernel for " + model);
+      }
+    });
+  }
+
+  private static SpatialKernel buildKernel(LXModel model, Kernel kernel, float radius, int stripRadius) {
+    switch (kernel) {
+    case STRIP:
+      return SpatialKernel.strip(model, stripRadius);
+    default:
+    case RADIUS:
+      if (model instanceof GridModel) {
+        return SpatialKernel.grid((GridModel) model, radius);
+      }
+      return SpatialKernel.radius(model, radius);
+    }
+  }
+
+  @Override
+  public void dispose() {
+    if (this.kernelExecutor != null) {
+      this.kernelExecutor.shutdownNow();
+      this.kernelExecutor = null;
+    }
+    super.dispose();
+  }
+
+  @Override
+  public void run(double deltaMs, double amount) {
+    final float blurf = (float) (amount * this.level.getValuef());
+    if (blurf <= 0) {
+      return;
+    }
+
+    if (!this.kernelRequested) {
+      requestKernel();
+    }
+
+    // A kernel for an older model no longer fits the color buffer
+    if (this.kernelModel != this.model) {
+      this.spatialKernel = null;
+    }
+    final Build build = this.built.getAndSet(null);
+    if ((build != null) && (build.model == this.model) && (build.generation > this.kernelGeneration)) {
+      this.spatialKernel = build.kernel;
+      this.kernelModel = build.model;
+      this.kernelGeneration = build.generation;
+      // Points outside the model are never written by the kernel, keep them clear
+      this.blurColors = new int[this.colors.length];
+    }
+    final SpatialKernel kernel = this.spatialKernel;
+    if (kernel == null) {
+      return;
+    }
+    if (this.blurColors.length != this.colors.length) {
+      this.blurColors = new int[this.colors.length];
+    }
+    final int[] blurColors = this.blurColors;
+    kernel.apply(this.colors, blurColors);
+
+    final int blurAlpha = (int) (0x100 * blurf);
+    switch (this.mode.getEnum()) {
+    case MIX:
+      for (int i = 0; i < blurColors.length; ++i) {
+        this.colors[i] = LXColor.lerp(this.colors[i], blurColors[i], blurAlpha);
+      }
+      break;
+    case ADD:
+      for (int i = 0; i < blurColors.length; ++i) {
+        this.colors[i] = LXColor.add(this.colors[i], blurColors[i], blurAlpha);
+      }
+      break;
+    case SCREEN:
+      for (int i = 0; i < blurColors.length; ++i) {
+        this.colors[i] = LXColor.screen(this.colors[i], blurColors[i], blurAlpha);
+      }
+      break;
+    case MULTIPLY:
+      for (int i = 0; i < blurColors.length; ++i) {
+        this.colors[i] = LXColor.multiply(this.colors[i], blurColors[i], blurAlpha);
+      }
+      break;
+    case LIGHTEST:
+      for (int i = 0; i < blurColors.length; ++i) {
+        this.colors[i] = LXColor.lightest(this.colors[i], blurColors[i], blurAlpha);
+      }
+      break;
+    }
+  }
+}
@@ -54,6 +54,7 @@ import javax.sound.midi.MidiDevice;
 import javax.sound.midi.MidiSystem;
 import javax.sound.midi.MidiUnavailableException;
 import javax.sound.midi.ShortMessage;
+import javax.sound.midi.SysexMessage;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -108,11 +109,12 @@ public class LXMidiEngine extends LXComponent implements LXOscComponent {
   private final List<DeviceListener> deviceListeners = new ArrayList<DeviceListener>();
   private final List<MappingListener> mappingListeners = new ArrayList<MappingListener>();
 
-  private final List<LXShortMessage> threadSafeInputQueue =
-    Collections.synchronizedList(new ArrayList<LXShortMessage>());
+  private final LXMidiInputQueue inputQueue = new LXMidiInputQueue();
 
-  private final List<LXShortMessage> engineThreadInputQueue =
-    new ArrayList<LXShortMessage>();
+  // Scratch message used on the engine thread to decode raw queue slots
+  private final ShortMessage inputDecodeMessage = new ShortMessage();
+
+  private final LXMidiInputQueue.Consumer inputQueueConsumer = this::dispatchQueued;
 
   private final List<LXMidiInput> mutableInputs = new CopyOnWriteArrayList<LXMidiInput>();
   private final List<LXMidiOutput> mutableOutputs = new CopyOnWriteArrayList<LXMidiOutput>();
@@ -764,8 +766,23 @@ public class LXMidiEngine extends LXComponent implements LXOscComponent {
     return this;
   }
 
-  void queueInputMessage(LXShortMessage message) {
-    this.threadSafeInputQueue.add(message);
+  void queueInputMessage(LXMidiInput input, int status, int data1, int data2, long nanoTime, int beat, double period) {
+    if (!this.inputQueue.offer(input, status, data1, data2, nanoTime, beat, period)) {
+      // Don't spam the log on every message in a burst
+      if (this.inputQueue.getDropped() % LXMidiInputQueue.DEFAULT_CAPACITY == 1) {
+        error("MIDI input queue overflow, dropped " + this.inputQueue.getDropped() + " messages");
+      }
+    }
+  }
+
+  /**
+   * Gets the number of MIDI input messages that have been dropped because the
+   * engine did not drain the input queue fast enough.
+   *
+   * @return Number of dropped input messages
+   */
+  public long getDroppedInputMessages() {
+    return this.inputQueue.getDropped();
   }
 
   private static final String PATH_NOTE = "note";
@@ -894,17 +911,40 @@ public class LXMidiEngine extends LXComponent implements LXOscComponent {
    * input queue.
    */
   public void dispatch() {
-    this.engineThreadInputQueue.clear();
-    synchronized (this.threadSafeInputQueue) {
-      this.engineThreadInputQueue.addAll(this.threadSafeInputQueue);
-      this.threadSafeInputQueue.clear();
+    this.inputQueue.drain(this.inputQueueConsumer);
+  }
+
+  private void dispatchQueued(LXMidiInput input, int status, int data1, int data2, long nanoTime, int beat, double period) {
+    // Only build a message object if somebody is going to look at it
+    if (!input.hasMessageConsumers()) {
+      return;
     }
-    for (LXShortMessage message : this.engineThreadInputQueue) {
-      LXMidiInput input = message.getInput();
+    LXShortMessage message;
+    try {
+      this.inputDecodeMessage.setMessage(status, data1, data2);
+    } catch (InvalidMidiDataException imdx) {
+      error(imdx, "Invalid MIDI data in input queue: " + status + ":" + data1 + ":" + data2);
+      return;
+    }
+    if (this.inputDecodeMessage.getCommand() == SysexMessage.SYSTEM_EXCLUSIVE) {
+      MidiBeat midiBeat = new MidiBeat(this.inputDecodeMessage, beat);
+      if (period != MidiBeat.PERIOD_UNKNOWN) {
+        midiBeat.setPeriod(period);
+      }
+      message = midiBeat;
+    } else {
+      message = LXShortMessage.fromShortMessage(this.inputDecodeMessage);
+    }
+    message.setInput(input);
+    message.setNanoTime(nanoTime);
+    this.lx.engine.setInputEventNanos(nanoTime);
+    try {
       input.dispatch(message);
       if (input.enabled.isOn()) {
         dispatch(message);
       }
+    } finally {
+      this.lx.engine.setInputEventNanos(-1);
     }
   }
 
@@ -90,6 +90,7 @@ public class LXMidiInput extends LXMidiDevice implements LXSerializable {
           this.device.open();
         }
         this.transmitter = this.device.getTransmitter();
+        this.receiver.resetClock();
         this.transmitter.setReceiver(this.receiver);
         this.isOpen = true;
       } catch (MidiUnavailableException mux) {
@@ -129,8 +130,9 @@ public class LXMidiInput extends LXMidiDevice implements LXSerializable {
   }
 
   /**
-   * This receiver is called by a MIDI thread, it just puts messages
-   * into a queue that can then be called by the engine thread.
+   * This receiver is called by a MIDI thread, it just copies the raw message
+   * bytes into the engine's preallocated input queue, which is drained by the
+   * engine thread. No message objects are allocated here.
    */
   private class Receiver implements javax.sound.midi.Receiver {
 
@@ -139,46 +141,64 @@ public class LXMidiInput extends LXMidiDevice implements LXSerializable {
     private int beatClock = 0;
     private long lastBeatNanos = -1;
 
+    // Estimated offset from the device's microsecond clock to System.nanoTime()
+    private long deviceClockOffsetNanos = Long.MAX_VALUE;
+
     @Override
     public void close() {
       // No resources owned by this receiver alone
     }
 
+    /**
+     * Converts a device timestamp into the System.nanoTime() domain. The device clock
+     * has an unknown origin, so we track the minimum observed offset between the two
+     * clocks, which excludes as much transport latency as we've seen.
+     *
+     * @param timeStamp Device timestamp in microseconds, -1 if unsupported
+     * @param now Current System.nanoTime()
+     * @return Best estimate of the event time in System.nanoTime() domain
+     */
+    private long getEventNanos(long timeStamp, long now) {
+      if (timeStamp < 0) {
+        return now;
+      }
+      final long offset = now - timeStamp * 1000;
+      if (offset < this.deviceClockOffsetNanos) {
+        this.deviceClockOffsetNanos = offset;
+      }
+      return Math.min(now, timeStamp * 1000 + this.deviceClockOffsetNanos);
+    }
+
+    private void resetClock() {
+      this.deviceClockOffsetNanos = Long.MAX_VALUE;
+    }
+
     @Override
     public void send(MidiMessage midiMessage, long timeStamp) {
       if (midiMessage instanceof ShortMessage) {
-        ShortMessage sm = (ShortMessage) midiMessage;
-        LXShortMessage message = null;
+        final long now = getEventNanos(timeStamp, System.nanoTime());
+        final ShortMessage sm = (ShortMessage) midiMessage;
+        final int status = sm.getStatus();
         switch (sm.getCommand()) {
         case ShortMessage.NOTE_ON:
-          message = new MidiNoteOn(sm);
-          break;
         case ShortMessage.NOTE_OFF:
-          message = new MidiNoteOff(sm);
-          break;
         case ShortMessage.CONTROL_CHANGE:
-          message = new MidiControlChange(sm);
-          break;
         case ShortMessage.PROGRAM_CHANGE:
-          message = new MidiProgramChange(sm);
-          break;
         case ShortMessage.PITCH_BEND:
-          message = new MidiPitchBend(sm);
-          break;
         case ShortMessage.CHANNEL_PRESSURE:
-          message = new MidiAftertouch(sm);
+          engine.queueInputMessage(LXMidiInput.this, status, sm.getData1(), sm.getData2(), now, 0, MidiBeat.PERIOD_UNKNOWN);
           break;
         case SysexMessage.SYSTEM_EXCLUSIVE:
-          switch (sm.getStatus()) {
+          switch (status) {
           case ShortMessage.START:
             this.beatClock = 0;
-            this.lastBeatNanos = System.nanoTime();
-            message = new MidiBeat(sm, 0);
+            this.lastBeatNanos = now;
+            engine.queueInputMessage(LXMidiInput.this, status, 0, 0, now, 0, MidiBeat.PERIOD_UNKNOWN);
             break;
           case ShortMessage.CONTINUE:
             if (this.beatClock % PULSES_PER_QUARTER_NOTE == 0) {
-              this.lastBeatNanos = System.nanoTime();
-              message = new MidiBeat(sm, this.beatClock / PULSES_PER_QUARTER_NOTE);
+              this.lastBeatNanos = now;
+              engine.queueInputMessage(LXMidiInput.this, status, 0, 0, now, this.beatClock / PULSES_PER_QUARTER_NOTE, MidiBeat.PERIOD_UNKNOWN);
             }
             break;
           case ShortMessage.STOP:
@@ -192,27 +212,31 @@ public class LXMidiInput extends LXMidiDevice implements LXSerializable {
           case ShortMessage.TIMING_CLOCK:
             ++this.beatClock;
             if (this.beatClock % PULSES_PER_QUARTER_NOTE == 0) {
-              long now = System.nanoTime();
-              MidiBeat beat = new MidiBeat(sm, this.beatClock / PULSES_PER_QUARTER_NOTE);
+              double period = MidiBeat.PERIOD_UNKNOWN;
               if (this.lastBeatNanos > 0) {
-                beat.setPeriod((now - this.lastBeatNanos) / 1000000.);
+                period = (now - this.lastBeatNanos) / 1000000.;
               }
-              message = beat;
+              engine.queueInputMessage(LXMidiInput.this, status, 0, 0, now, this.beatClock / PULSES_PER_QUARTER_NOTE, period);
               this.lastBeatNanos = now;
             }
             break;
           }
           break;
         }
-
-        if (message != null) {
-          message.setInput(LXMidiInput.this);
-          engine.queueInputMessage(message);
-        }
       }
     }
   }
 
+  /**
+   * Whether any component needs messages from this input materialized
+   * into LXShortMessage objects.
+   *
+   * @return True if there are listeners or engine dispatch is enabled
+   */
+  boolean hasMessageConsumers() {
+    return this.enabled.isOn() || !this.listeners.isEmpty();
+  }
+
   /**
    * This method is invoked on the engine thread to process the MIDI message.
    *
@@ -0,0 +1,178 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.lx.midi;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer ring buffer of raw MIDI messages.
+ * Each MIDI device thread writes into preallocated slots, no objects are
+ * allocated on the receive path. The engine thread drains the queue and
+ * materializes LXShortMessage objects only at dispatch time.
+ *
+ * Slot ownership is arbitrated with a per-slot sequence number, so producers
+ * never take a lock and the consumer never blocks a producer.
+ */
+class LXMidiInputQueue {
+
+  interface Consumer {
+    /**
+     * Invoked on the engine thread for each queued message
+     *
+     * @param input Input the message was received on
+     * @param status Status byte, including channel
+     * @param data1 First data byte
+     * @param data2 Second data byte
+     * @param nanoTime System.nanoTime() at which the message was received
+     * @param beat Beat count, only meaningful for clock messages
+     * @param period Beat period in milliseconds, only meaningful for clock messages
+     */
+    public void accept(LXMidiInput input, int status, int data1, int data2, long nanoTime, int beat, double period);
+  }
+
+  static final int DEFAULT_CAPACITY = 4096;
+
+  private final int capacity;
+  private final int mask;
+
+  private final AtomicLongArray sequence;
+  private final LXMidiInput[] input;
+  private final int[] status;
+  private final int[] data1;
+  private final int[] data2;
+  private final long[] nanoTime;
+  private final int[] beat;
+  private final double[] period;
+
+  private final AtomicLong tail = new AtomicLong(0);
+  private final AtomicLong dropped = new AtomicLong(0);
+
+  // Only ever touched by the consumer thread
+  private long head = 0;
+
+  LXMidiInputQueue() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  LXMidiInputQueue(int capacity) {
+    if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("LXMidiInputQueue capacity must be a power of two: " + capacity);
+    }
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+    this.sequence = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; ++i) {
+      this.sequence.set(i, i);
+    }
+    this.input = new LXMidiInput[capacity];
+    this.status = new int[capacity];
+    this.data1 = new int[capacity];
+    this.data2 = new int[capacity];
+    this.nanoTime = new long[capacity];
+    this.beat = new int[capacity];
+    this.period = new double[capacity];
+  }
+
+  /**
+   * Enqueues a message, may be called concurrently from any number of
+   * MIDI threads.
+   *
+   * @param input Input device
+   * @param status Status byte
+   * @param data1 First data byte
+   * @param data2 Second data byte
+   * @param nanoTime Receive time
+   * @param beat Beat count for clock messages
+   * @param period Beat period for clock messages
+   * @return true if queued, false if the queue was full and the message dropped
+   */
+  boolean offer(LXMidiInput input, int status, int data1, int data2, long nanoTime, int beat, double period) {
+    long pos = this.tail.get();
+    while (true) {
+      final int index = (int) (pos & this.mask);
+      final long seq = this.sequence.get(index);
+      final long diff = seq - pos;
+      if (diff == 0) {
+        if (this.tail.compareAndSet(pos, pos + 1)) {
+          this.input[index] = input;
+          this.status[index] = status;
+          this.data1[index] = data1;
+          this.data2[index] = data2;
+          this.nanoTime[index] = nanoTime;
+          this.beat[index] = beat;
+          this.period[index] = period;
+          // Publish slot to the consumer
+          this.sequence.lazySet(index, pos + 1);
+          return true;
+        }
+        pos = this.tail.get();
+      } else if (diff < 0) {
+        // Consumer has not caught up, queue is full
+        this.dropped.incrementAndGet();
+        return false;
+      } else {
+        pos = this.tail.get();
+      }
+    }
+  }
+
+  /**
+   * Drains all messages that are currently published, must only be
+   * called from a single consumer thread.
+   *
+   * @param consumer Consumer to receive messages
+   * @return Number of messages drained
+   */
+  int drain(Consumer consumer) {
+    int count = 0;
+    while (true) {
+      final int index = (int) (this.head & this.mask);
+      if (this.sequence.get(index) != this.head + 1) {
+        break;
+      }
+      final LXMidiInput input = this.input[index];
+      final int status = this.status[index];
+      final int data1 = this.data1[index];
+      final int data2 = this.data2[index];
+      final long nanoTime = this.nanoTime[index];
+      final int beat = this.beat[index];
+      final double period = this.period[index];
+      this.input[index] = null;
+
+      // Hand slot back to the producers for the next lap before dispatching,
+      // so that a throwing listener can't wedge the queue on this message
+      this.sequence.lazySet(index, this.head + this.capacity);
+      ++this.head;
+      ++count;
+
+      consumer.accept(input, status, data1, data2, nanoTime, beat, period);
+    }
+    return count;
+  }
+
+  /**
+   * Number of messages that were dropped because the queue was full
+   *
+   * @return Dropped message count
+   */
+  long getDropped() {
+    return this.dropped.get();
+  }
+}
@@ -25,6 +25,8 @@ public abstract class LXShortMessage extends ShortMessage {
 
   private LXMidiInput input = null;
 
+  private long nanoTime = -1;
+
   public static LXShortMessage fromShortMessage(ShortMessage message) {
     switch (message.getCommand()) {
     case ShortMessage.NOTE_ON:
@@ -71,6 +73,21 @@ public abstract class LXShortMessage extends ShortMessage {
     return this.input;
   }
 
+  LXShortMessage setNanoTime(long nanoTime) {
+    this.nanoTime = nanoTime;
+    return this;
+  }
+
+  /**
+   * Gets the System.nanoTime() at which this message was received by the
+   * MIDI input, or -1 if the message was constructed locally.
+   *
+   * @return Receive time in nanoseconds, or -1 if unknown
+   */
+  public long getNanoTime() {
+    return this.nanoTime;
+  }
+
   public void dispatch(LXMidiListener listener) {
     switch (getCommand()) {
     case ShortMessage.NOTE_ON:
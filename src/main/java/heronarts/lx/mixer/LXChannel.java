@@ -35,7 +35,6 @@ import heronarts.lx.parameter.LXParameter;
 import heronarts.lx.parameter.MutableParameter;
 import heronarts.lx.parameter.ObjectParameter;
 import heronarts.lx.pattern.LXPattern;
-import heronarts.lx.utils.LXUtils;
 import heronarts.lx.parameter.BooleanParameter;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -699,7 +698,7 @@ public class LXChannel extends LXAbstractChannel {
     }
     int numEligible = this.randomEligible.size();
     if (numEligible > 0) {
-      return goPattern(this.randomEligible.get(LXUtils.constrain((int) LXUtils.random(0, numEligible), 0, numEligible - 1)));
+      return goPattern(this.randomEligible.get(getRandom().nextInt(numEligible)));
     }
     return this;
   }
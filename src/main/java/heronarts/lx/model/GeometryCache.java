@@ -0,0 +1,109 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.lx.model;
+
+/**
+ * A per-point float array derived from model geometry and up to two parameter
+ * values, e.g. distances to a movable center. The array is only recomputed
+ * when the model, its geometry, or one of the key values has changed, so
+ * render loops can read it directly. Each pattern should hold its own
+ * instances, they are not thread-safe.
+ */
+public class GeometryCache {
+
+  public interface Function {
+    /**
+     * Computes the derived value for every point in the model
+     *
+     * @param model Model
+     * @param values Output array, one value for each of model.points
+     * @param key1 First key value
+     * @param key2 Second key value
+     */
+    public void compute(LXModel model, float[] values, float key1, float key2);
+  }
+
+  private final Function function;
+
+  private LXModel model = null;
+  private int version;
+  private float key1;
+  private float key2;
+  private float[] values = null;
+
+  public GeometryCache(Function function) {
+    this.function = function;
+  }
+
+  /**
+   * Gets the derived values for a model with no key values
+   *
+   * @param model Model
+   * @return Derived values, one per point
+   */
+  public float[] get(LXModel model) {
+    return get(model, 0, 0);
+  }
+
+  /**
+   * Gets the derived values for a model and one key value
+   *
+   * @param model Model
+   * @param key1 Key value
+   * @return Derived values, one per point
+   */
+  public float[] get(LXModel model, float key1) {
+    return get(model, key1, 0);
+  }
+
+  /**
+   * Gets the derived values for a model and two key values
+   *
+   * @param model Model
+   * @param key1 First key value
+   * @param key2 Second key value
+   * @return Derived values, one per point
+   */
+  public float[] get(LXModel model, float key1, float key2) {
+    final int version = model.getPointValuesVersion();
+    if ((this.values == null) ||
+        (this.model != model) ||
+        (this.version != version) ||
+        (this.key1 != key1) ||
+        (this.key2 != key2)) {
+      if ((this.values == null) || (this.values.length != model.points.length)) {
+        this.values = new float[model.points.length];
+      }
+      this.function.compute(model, this.values, key1, key2);
+      this.model = model;
+      this.version = version;
+      this.key1 = key1;
+      this.key2 = key2;
+    }
+    return this.values;
+  }
+
+  /**
+   * Forces the values to be recomputed on the next call to get()
+   */
+  public void invalidate() {
+    this.values = null;
+  }
+
+}
@@ -139,6 +139,21 @@ public class LXModel implements LXSerializable {
 
   private int generation = 0;
 
+  /**
+   * Per-point values that may be fetched as flat arrays, see {@link #getPointValues(PointValue)}
+   */
+  public enum PointValue {
+    X, Y, Z, XN, YN, ZN, RN, RCN;
+  }
+
+  private static final int NUM_POINT_VALUES = PointValue.values().length;
+
+  // Flat per-point arrays, built on demand and dropped whenever the geometry
+  // changes. The version count lets derived caches detect the same.
+  private volatile float[][] pointValues = new float[NUM_POINT_VALUES][];
+  private volatile int pointValuesVersion = 0;
+  private int[] pointIndices = null;
+
   /**
    * Total number of points in the model
    */
@@ -709,6 +724,7 @@ public class LXModel implements LXSerializable {
    */
   public LXModel bang() {
     ++this.generation;
+    clearPointValues();
     // Notify the listeners of this model that it has changed
     for (Listener listener : this.listeners) {
       listener.modelGenerationUpdated(this);
@@ -726,6 +742,62 @@ public class LXModel implements LXSerializable {
     return this.generation;
   }
 
+  private void clearPointValues() {
+    this.pointValues = new float[NUM_POINT_VALUES][];
+    ++this.pointValuesVersion;
+  }
+
+  int getPointValuesVersion() {
+    return this.pointValuesVersion;
+  }
+
+  /**
+   * Returns a flat array of one value for every point in this model, in the
+   * same order as the points array. The array is built the first time it is
+   * requested and shared by all callers until the model geometry changes, so
+   * it must not be modified.
+   *
+   * @param value Which value to fetch
+   * @return Array of values, one per point
+   */
+  public float[] getPointValues(PointValue value) {
+    final float[][] pointValues = this.pointValues;
+    float[] values = pointValues[value.ordinal()];
+    if (values == null) {
+      values = new float[this.points.length];
+      for (int i = 0; i < values.length; ++i) {
+        final LXPoint p = this.points[i];
+        switch (value) {
+        case X: values[i] = p.x; break;
+        case Y: values[i] = p.y; break;
+        case Z: values[i] = p.z; break;
+        case XN: values[i] = p.xn; break;
+        case YN: values[i] = p.yn; break;
+        case ZN: values[i] = p.zn; break;
+        case RN: values[i] = p.rn; break;
+        case RCN: values[i] = p.rcn; break;
+        }
+      }
+      pointValues[value.ordinal()] = values;
+    }
+    return values;
+  }
+
+  /**
+   * Returns the global color buffer indices of all points in this model, shared
+   * by all callers, so it must not be modified. See {@link #toIndexBuffer()} for
+   * a private copy.
+   *
+   * @return Index buffer of all points in this model
+   */
+  public int[] getPointIndices() {
+    int[] indices = this.pointIndices;
+    if (indices == null) {
+      indices = this.pointIndices = toIndexBuffer();
+    }
+    return indices;
+  }
+
   /**
    * Creates an index buffer of all the point indices in this model.
    *
@@ -862,6 +934,7 @@ public class LXModel implements LXSerializable {
       }
     }
 
+    clearPointValues();
     return this;
   }
 
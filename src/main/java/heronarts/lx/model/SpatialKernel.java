@@ -0,0 +1,564 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.lx.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import heronarts.lx.color.LXColor;
+
+/**
+ * Sparse table of neighbor weights over the points of a model, used to apply a
+ * spatial convolution such as a blur to a color buffer. Finding neighbors is the
+ * expensive part, so a kernel should be built once per model and applied every
+ * frame. Weights are Gaussian over distance and normalized per point, stored as
+ * 16-bit fixed point so that application is integer-only.
+ *
+ * Rows are stored compressed: the neighbors of point k in the model are
+ * neighbor[offset[k]] through neighbor[offset[k+1] - 1], and the result is
+ * written at target[k], which is the point's index in the color buffer.
+ *
+ * No point ever has more than MAX_ENTRIES_PER_POINT neighbors, which bounds
+ * both the memory held and the per-frame cost, whatever the radius. A separable
+ * kernel is stored as two such tables, applied one after the other.
+ */
+public class SpatialKernel {
+
+  /**
+   * Maximum number of weighted neighbors for any one point, including itself.
+   * A radius that would take in more points than this is reduced.
+   */
+  public static final int MAX_ENTRIES_PER_POINT = 64;
+
+  private static final int MAX_LINE_RADIUS = (MAX_ENTRIES_PER_POINT - 1) / 2;
+
+  // Candidates searched per point, on average before the radius is reduced
+  // and at most for any one point. The sphere around a point only covers part
+  // of the cells searched
+  private static final int MAX_CANDIDATES_PER_POINT = 8 * MAX_ENTRIES_PER_POINT;
+
+  // Points stacked on top of one another can't be separated by any radius,
+  // past this the per-point candidate limit alone bounds the work
+  private static final int MAX_RADIUS_REDUCTIONS = 16;
+
+  private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+  private static final int WEIGHT_SHIFT = 16;
+  private static final int WEIGHT_ONE = 1 << WEIGHT_SHIFT;
+
+  private final int[] target;
+  private final int[] offset;
+  private final int[] neighbor;
+  private final int[] weight;
+
+  // Second pass of a separable kernel, or null
+  private final SpatialKernel next;
+  private int[] intermediate = new int[0];
+
+  private SpatialKernel(Builder builder) {
+    this(builder, null);
+  }
+
+  private SpatialKernel(Builder builder, SpatialKernel next) {
+    this.target = builder.target;
+    this.offset = builder.offset;
+    this.neighbor = Arrays.copyOf(builder.neighbor, builder.count);
+    this.weight = Arrays.copyOf(builder.weight, builder.count);
+    this.next = next;
+  }
+
+  /**
+   * Number of points the kernel applies to
+   *
+   * @return Number of points
+   */
+  public int size() {
+    return this.target.length;
+  }
+
+  /**
+   * Total number of weighted neighbor entries across all points, including
+   * each point itself, summed over both passes of a separable kernel.
+   * Application cost is proportional to this.
+   *
+   * @return Number of kernel entries
+   */
+  public int getEntryCount() {
+    return this.neighbor.length + ((this.next != null) ? this.next.getEntryCount() : 0);
+  }
+
+  /**
+   * Whether this kernel is applied as two one-dimensional passes
+   *
+   * @return If the kernel is separable
+   */
+  public boolean isSeparable() {
+    return this.next != null;
+  }
+
+  /**
+   * Builds a kernel over all points within a distance of one another in
+   * model space. Neighbors are found by bucketing points into a grid of
+   * cells the size of the radius, so only adjacent cells are searched. Where
+   * that would search too many points the radius is reduced, and a point with
+   * more than MAX_ENTRIES_PER_POINT neighbors in range keeps only the nearest.
+   * The number of points checked for any one point is also limited, so the
+   * build is linear in the number of points even where they cannot be
+   * separated, at the cost of possibly missing some nearer neighbors there.
+   *
+   * @param model Model
+   * @param radius Radius in model coordinates
+   * @return Kernel
+   */
+  public static SpatialKernel radius(LXModel model, float radius) {
+    final LXPoint[] points = model.points;
+    final Builder builder = new Builder(points);
+    if (radius <= 0) {
+      for (int k = 0; k < points.length; ++k) {
+        builder.add(points[k].index, 1);
+        builder.endRow(k);
+      }
+      return new SpatialKernel(builder);
+    }
+
+    // Dense models would put far too many points in range, shrink the radius
+    // until the cells searched hold a bounded number of candidates
+    Cells cells = new Cells(model, radius);
+    for (int reductions = 0; reductions < MAX_RADIUS_REDUCTIONS; ++reductions) {
+      final long candidates = cells.countCandidates();
+      if (candidates <= (long) MAX_CANDIDATES_PER_POINT * points.length) {
+        break;
+      }
+      radius *= Math.max(.5f, (float) Math.sqrt(MAX_CANDIDATES_PER_POINT * (double) points.length / candidates));
+      cells = new Cells(model, radius);
+    }
+
+    // Nearest neighbors within the radius, packed as distance bits over point
+    // number and held in a max-heap so the farthest is the one replaced
+    final long[] nearest = new long[MAX_ENTRIES_PER_POINT - 1];
+
+    final float radiusSq = radius * radius;
+    final float sigma = radius / 2;
+    final float falloff = -1 / (2 * sigma * sigma);
+    for (int k = 0; k < points.length; ++k) {
+      final LXPoint p = points[k];
+      final int cx = cell(p.x, model.xMin, radius);
+      final int cy = cell(p.y, model.yMin, radius);
+      final int cz = cell(p.z, model.zMin, radius);
+
+      // The point itself always comes first, then at most a fixed number of
+      // candidates are checked, nearest cells first, so that points stacked
+      // too densely for any radius to separate cost no more than the rest
+      builder.add(p.index, 1);
+      int numNearest = 0;
+      int numCandidates = 0;
+      search:
+      for (int[] offset : CELL_OFFSETS) {
+        final Integer id = cells.ids.get(cellKey(cx + offset[0], cy + offset[1], cz + offset[2]));
+        if (id == null) {
+          continue;
+        }
+        for (int n = cells.start[id]; n < cells.start[id + 1]; ++n) {
+          final int qk = cells.points[n];
+          if (qk == k) {
+            continue;
+          }
+          if (++numCandidates > MAX_CANDIDATES_PER_POINT) {
+            break search;
+          }
+          final LXPoint q = points[qk];
+          final float x = q.x - p.x, y = q.y - p.y, z = q.z - p.z;
+          final float distSq = x*x + y*y + z*z;
+          if (distSq <= radiusSq) {
+            final long entry = ((long) Float.floatToIntBits(distSq) << 32) | qk;
+            if (numNearest < nearest.length) {
+              heapPush(nearest, numNearest++, entry);
+            } else if (entry < nearest[0]) {
+              heapReplaceTop(nearest, numNearest, entry);
+            }
+          }
+        }
+      }
+      for (int i = 0; i < numNearest; ++i) {
+        final float distSq = Float.intBitsToFloat((int) (nearest[i] >>> 32));
+        builder.add(points[(int) nearest[i]].index, (float) Math.exp(distSq * falloff));
+      }
+      builder.endRow(k);
+    }
+    return new SpatialKernel(builder);
+  }
+
+  /**
+   * Offsets to the cells around a cell, the cell itself first
+   */
+  private static final int[][] CELL_OFFSETS;
+
+  static {
+    CELL_OFFSETS = new int[27][];
+    int i = 0;
+    CELL_OFFSETS[i++] = new int[] { 0, 0, 0 };
+    for (int dx = -1; dx <= 1; ++dx) {
+      for (int dy = -1; dy <= 1; ++dy) {
+        for (int dz = -1; dz <= 1; ++dz) {
+          if (dx != 0 || dy != 0 || dz != 0) {
+            CELL_OFFSETS[i++] = new int[] { dx, dy, dz };
+          }
+        }
+      }
+    }
+  }
+
+  private static void heapPush(long[] heap, int size, long entry) {
+    int i = size;
+    while (i > 0) {
+      final int parent = (i - 1) >> 1;
+      if (heap[parent] >= entry) {
+        break;
+      }
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = entry;
+  }
+
+  private static void heapReplaceTop(long[] heap, int size, long entry) {
+    int i = 0;
+    while (true) {
+      int child = 2*i + 1;
+      if (child >= size) {
+        break;
+      }
+      if ((child + 1 < size) && (heap[child + 1] > heap[child])) {
+        ++child;
+      }
+      if (heap[child] <= entry) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = entry;
+  }
+
+  /**
+   * Points of a model bucketed into cells the size of a radius, stored as a
+   * counting sort by cell id
+   */
+  private static class Cells {
+
+    private final HashMap<Long, Integer> ids = new HashMap<Long, Integer>();
+    private final int[] start;
+    private final int[] points;
+    private final long[] keys;
+
+    private Cells(LXModel model, float radius) {
+      final LXPoint[] points = model.points;
+      final int[] pointCell = new int[points.length];
+      for (int k = 0; k < points.length; ++k) {
+        final LXPoint p = points[k];
+        final long key = cellKey(cell(p.x, model.xMin, radius), cell(p.y, model.yMin, radius), cell(p.z, model.zMin, radius));
+        Integer id = this.ids.get(key);
+        if (id == null) {
+          id = this.ids.size();
+          this.ids.put(key, id);
+        }
+        pointCell[k] = id;
+      }
+      final int numCells = this.ids.size();
+      this.keys = new long[numCells];
+      for (Map.Entry<Long, Integer> entry : this.ids.entrySet()) {
+        this.keys[entry.getValue()] = entry.getKey();
+      }
+      this.start = new int[numCells + 1];
+      for (int k = 0; k < points.length; ++k) {
+        ++this.start[pointCell[k] + 1];
+      }
+      for (int c = 0; c < numCells; ++c) {
+        this.start[c + 1] += this.start[c];
+      }
+      this.points = new int[points.length];
+      final int[] fill = Arrays.copyOf(this.start, numCells);
+      for (int k = 0; k < points.length; ++k) {
+        this.points[fill[pointCell[k]]++] = k;
+      }
+    }
+
+    private int size(int id) {
+      return this.start[id + 1] - this.start[id];
+    }
+
+    /**
+     * Total number of points that would be distance checked, over all points
+     *
+     * @return Number of candidate pairs
+     */
+    private long countCandidates() {
+      long candidates = 0;
+      for (int id = 0; id < this.keys.length; ++id) {
+        final long key = this.keys[id];
+        final int cx = unpack(key >>> 42), cy = unpack(key >>> 21), cz = unpack(key);
+        long neighbors = 0;
+        for (int dx = -1; dx <= 1; ++dx) {
+          for (int dy = -1; dy <= 1; ++dy) {
+            for (int dz = -1; dz <= 1; ++dz) {
+              final Integer neighbor = this.ids.get(cellKey(cx + dx, cy + dy, cz + dz));
+              if (neighbor != null) {
+                neighbors += size(neighbor);
+              }
+            }
+          }
+        }
+        candidates += size(id) * neighbors;
+      }
+      return candidates;
+    }
+
+    private static int unpack(long bits) {
+      // Sign extend the 21-bit field
+      return ((int) (bits & 0x1fffffL) << 11) >> 11;
+    }
+  }
+
+  /**
+   * Builds a one-dimensional kernel along strips. Each leaf model, one with no
+   * children, is treated as a strip with its points in order, and neighbors
+   * never cross from one strip into another.
+   *
+   * @param model Model
+   * @param radius Radius in points along the strip
+   * @return Kernel
+   */
+  public static SpatialKernel strip(LXModel model, int radius) {
+    final LXPoint[] points = model.points;
+
+    // Find the strip and position within it of every point in the model
+    final HashMap<Integer, Integer> pointRow = new HashMap<Integer, Integer>();
+    for (int k = 0; k < points.length; ++k) {
+      pointRow.put(points[k].index, k);
+    }
+    final LXPoint[][] stripOf = new LXPoint[points.length][];
+    final int[] stripPosition = new int[points.length];
+    addStrips(model, pointRow, stripOf, stripPosition);
+
+    return new SpatialKernel(lines(points, stripOf, stripPosition, radius, Math.max(radius, 1) / 2f));
+  }
+
+  /**
+   * Builds a separable kernel over a grid, blurring along the rows and then
+   * along the columns. This covers a square rather than a circle, but the cost
+   * per point grows linearly with the radius instead of with its square.
+   *
+   * @param model Grid model
+   * @param radius Radius in model coordinates
+   * @return Kernel
+   */
+  public static SpatialKernel grid(GridModel model, float radius) {
+    final GridModel.Point[] points = model.points;
+    final LXPoint[][] rowOf = new LXPoint[points.length][];
+    final int[] rowPosition = new int[points.length];
+    final LXPoint[][] columnOf = new LXPoint[points.length][];
+    final int[] columnPosition = new int[points.length];
+    for (int k = 0; k < points.length; ++k) {
+      final GridModel.Point p = points[k];
+      rowOf[k] = model.rows.get(p.yi).points;
+      rowPosition[k] = p.xi;
+      columnOf[k] = model.columns.get(p.xi).points;
+      columnPosition[k] = p.yi;
+    }
+    final SpatialKernel columns = new SpatialKernel(lines(points, columnOf, columnPosition, gridRadius(radius, model.ySpacing), gridSigma(radius, model.ySpacing)));
+    return new SpatialKernel(lines(points, rowOf, rowPosition, gridRadius(radius, model.xSpacing), gridSigma(radius, model.xSpacing)), columns);
+  }
+
+  private static int gridRadius(float radius, float spacing) {
+    return (spacing > 0) ? (int) Math.min(MAX_LINE_RADIUS, radius / spacing) : 0;
+  }
+
+  private static float gridSigma(float radius, float spacing) {
+    return (spacing > 0) ? Math.max(radius / spacing, 1) / 2 : 1;
+  }
+
+  /**
+   * Builds the table for a one-dimensional blur along lines of points
+   *
+   * @param points Points to build rows for
+   * @param lineOf Line that each point belongs to, or null for none
+   * @param linePosition Position of each point within its line
+   * @param radius Radius in points along the line
+   * @param sigma Width of the Gaussian in points
+   * @return Builder holding the table
+   */
+  private static Builder lines(LXPoint[] points, LXPoint[][] lineOf, int[] linePosition, int radius, float sigma) {
+    radius = Math.min(radius, MAX_LINE_RADIUS);
+    final Builder builder = new Builder(points);
+    final float falloff = -1 / (2 * sigma * sigma);
+    for (int k = 0; k < points.length; ++k) {
+      final LXPoint[] line = lineOf[k];
+      if (line == null || radius <= 0) {
+        builder.add(points[k].index, 1);
+      } else {
+        final int position = linePosition[k];
+        final int start = Math.max(0, position - radius);
+        final int end = Math.min(line.length - 1, position + radius);
+        for (int n = start; n <= end; ++n) {
+          final int d = n - position;
+          builder.add(line[n].index, (float) Math.exp(d * d * falloff));
+        }
+      }
+      builder.endRow(k);
+    }
+    return builder;
+  }
+
+  private static void addStrips(LXModel model, HashMap<Integer, Integer> pointRow, LXPoint[][] stripOf, int[] stripPosition) {
+    if (model.children.length > 0) {
+      for (LXModel child : model.children) {
+        addStrips(child, pointRow, stripOf, stripPosition);
+      }
+      return;
+    }
+    for (int i = 0; i < model.points.length; ++i) {
+      final Integer row = pointRow.get(model.points[i].index);
+      if ((row != null) && (stripOf[row] == null)) {
+        stripOf[row] = model.points;
+        stripPosition[row] = i;
+      }
+    }
+  }
+
+  private static int cell(float value, float min, float radius) {
+    return (int) Math.floor((value - min) / radius);
+  }
+
+  private static long cellKey(int x, int y, int z) {
+    return ((x & 0x1fffffL) << 42) | ((y & 0x1fffffL) << 21) | (z & 0x1fffffL);
+  }
+
+  /**
+   * Applies the kernel to a color buffer. Points in the buffer which are not
+   * part of the kernel's model are left untouched. A separable kernel holds an
+   * intermediate buffer, so a kernel should only be applied from one thread.
+   *
+   * @param src Source colors
+   * @param dst Destination colors, must not be the same array as src
+   */
+  public void apply(int[] src, int[] dst) {
+    if (src == dst) {
+      throw new IllegalArgumentException("SpatialKernel cannot be applied in place");
+    }
+    if (this.next == null) {
+      applyTable(src, dst);
+    } else {
+      if (this.intermediate.length != src.length) {
+        this.intermediate = new int[src.length];
+      }
+      applyTable(src, this.intermediate);
+      this.next.applyTable(this.intermediate, dst);
+    }
+  }
+
+  private void applyTable(int[] src, int[] dst) {
+    final int[] offset = this.offset;
+    final int[] neighbor = this.neighbor;
+    final int[] weight = this.weight;
+    for (int k = 0; k < this.target.length; ++k) {
+      int r = 0, g = 0, b = 0;
+      for (int n = offset[k], end = offset[k+1]; n < end; ++n) {
+        final int c = src[neighbor[n]];
+        final int w = weight[n];
+        r += ((c >>> LXColor.R_SHIFT) & 0xff) * w;
+        g += ((c >>> LXColor.G_SHIFT) & 0xff) * w;
+        b += (c & 0xff) * w;
+      }
+      final int t = this.target[k];
+      dst[t] =
+        (src[t] & LXColor.ALPHA_MASK) |
+        ((r >>> WEIGHT_SHIFT) << LXColor.R_SHIFT) |
+        ((g >>> WEIGHT_SHIFT) << LXColor.G_SHIFT) |
+        (b >>> WEIGHT_SHIFT);
+    }
+  }
+
+  /**
+   * Accumulates rows of float weights, normalizing each to 16-bit fixed point
+   * weights that sum exactly to one.
+   */
+  private static class Builder {
+
+    private final int[] target;
+    private final int[] offset;
+
+    private int[] neighbor = new int[1024];
+    private int[] weight = new int[1024];
+    private float[] rowWeight = new float[64];
+    private int count = 0;
+    private int rowStart = 0;
+
+    private Builder(LXPoint[] points) {
+      this.target = new int[points.length];
+      this.offset = new int[points.length + 1];
+      for (int k = 0; k < points.length; ++k) {
+        this.target[k] = points[k].index;
+      }
+    }
+
+    private void add(int index, float w) {
+      if (this.count == this.neighbor.length) {
+        if (this.count == MAX_CAPACITY) {
+          throw new IllegalStateException("SpatialKernel has too many entries for one table: " + this.count);
+        }
+        final int capacity = (int) Math.min(MAX_CAPACITY, 2L * this.count);
+        this.neighbor = Arrays.copyOf(this.neighbor, capacity);
+        this.weight = Arrays.copyOf(this.weight, capacity);
+      }
+      final int n = this.count - this.rowStart;
+      if (n == this.rowWeight.length) {
+        this.rowWeight = Arrays.copyOf(this.rowWeight, n * 2);
+      }
+      this.neighbor[this.count] = index;
+      this.rowWeight[n] = w;
+      ++this.count;
+    }
+
+    private void endRow(int k) {
+      final int n = this.count - this.rowStart;
+      float sum = 0;
+      for (int i = 0; i < n; ++i) {
+        sum += this.rowWeight[i];
+      }
+      // Round each weight, then give the remainder to the largest so that a
+      // flat color stays exactly flat
+      int total = 0, largest = 0;
+      for (int i = 0; i < n; ++i) {
+        final int w = Math.round(this.rowWeight[i] / sum * WEIGHT_ONE);
+        this.weight[this.rowStart + i] = w;
+        total += w;
+        if (w > this.weight[this.rowStart + largest]) {
+          largest = i;
+        }
+      }
+      if (n > 0) {
+        this.weight[this.rowStart + largest] += WEIGHT_ONE - total;
+      }
+      this.offset[k + 1] = this.count;
+      this.rowStart = this.count;
+    }
+  }
+
+}
@@ -24,11 +24,18 @@ import heronarts.lx.LX;
 import heronarts.lx.parameter.BoundedParameter;
 import heronarts.lx.parameter.CompoundParameter;
 import heronarts.lx.parameter.EnumParameter;
+import heronarts.lx.parameter.LXListenableParameter;
 import heronarts.lx.parameter.LXNormalizedParameter;
 import heronarts.lx.parameter.LXParameter;
+import heronarts.lx.parameter.LXParameterListener;
 
 public class LXCompoundModulation extends LXParameterModulation {
 
+  // Modulators are picked up by per-frame evaluation in the modulation engine, but
+  // plain parameters used as sources may change at any time, in which case we just
+  // invalidate the target.
+  private final LXParameterListener sourceListener;
+
   public final LXNormalizedParameter source;
 
   public final CompoundParameter target;
@@ -60,10 +67,25 @@ public class LXCompoundModulation extends LXParameterModulation {
     addLegacyParameter("Polarity", this.polarity);
     addLegacyParameter("Range", this.range);
 
+    if (source instanceof LXListenableParameter) {
+      this.sourceListener = (p) -> { this.target.invalidateModulation(); };
+      ((LXListenableParameter) source).addListener(this.sourceListener);
+    } else {
+      this.sourceListener = null;
+    }
+
     target.addModulation(this);
     setParent(scope);
   }
 
+  @Override
+  public void onParameterChanged(LXParameter p) {
+    super.onParameterChanged(p);
+    if (p == this.enabled || p == this.polarity || p == this.range) {
+      this.target.invalidateModulation();
+    }
+  }
+
   public LXCompoundModulation setPolarity(LXParameter.Polarity polarity) {
     this.polarity.setValue(polarity);
     return this;
@@ -80,6 +102,9 @@ public class LXCompoundModulation extends LXParameterModulation {
 
   @Override
   public void dispose() {
+    if (this.sourceListener != null) {
+      ((LXListenableParameter) this.source).removeListener(this.sourceListener);
+    }
     this.target.removeModulation(this);
     super.dispose();
   }
@@ -20,7 +20,9 @@ package heronarts.lx.modulation;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import com.google.gson.JsonArray;
@@ -37,6 +39,7 @@ import heronarts.lx.midi.LXShortMessage;
 import heronarts.lx.modulator.LXModulator;
 import heronarts.lx.osc.LXOscComponent;
 import heronarts.lx.osc.OscMessage;
+import heronarts.lx.parameter.CompoundParameter;
 import heronarts.lx.parameter.LXParameter;
 
 public class LXModulationEngine extends LXModulatorComponent implements LXOscComponent {
@@ -61,6 +64,74 @@ public class LXModulationEngine extends LXModulatorComponent implements LXOscCom
   private final List<LXTriggerModulation> mutableTriggers = new ArrayList<LXTriggerModulation>();
   public final List<LXTriggerModulation> triggers = Collections.unmodifiableList(this.mutableTriggers);
 
+  /**
+   * A node in the compiled modulation graph. There is one node per modulator in
+   * this engine, and one per distinct target parameter of its compound modulations.
+   * Exactly one of modulator or target is non-null.
+   */
+  public static class Node {
+
+    public final LXModulator modulator;
+
+    public final CompoundParameter target;
+
+    /**
+     * Time spent evaluating this node on the most recent frame
+     */
+    public long evaluateNanos = 0;
+
+    // Number of unevaluated dependencies, only used while compiling
+    private int inDegree = 0;
+
+    // Nodes which depend upon this one, only used while compiling
+    private final List<Node> dependents = new ArrayList<Node>();
+
+    private Node(LXModulator modulator) {
+      this.modulator = modulator;
+      this.target = null;
+    }
+
+    private Node(CompoundParameter target) {
+      this.modulator = null;
+      this.target = target;
+    }
+
+    @Override
+    public String toString() {
+      return (this.modulator != null) ? this.modulator.toString() : this.target.toString();
+    }
+
+    private void addDependent(Node dependent) {
+      if ((dependent != this) && !this.dependents.contains(dependent)) {
+        this.dependents.add(dependent);
+        ++dependent.inDegree;
+      }
+    }
+  }
+
+  public class Profiler extends LXModulatorComponent.Profiler {
+    /**
+     * Time spent evaluating the whole modulation graph on the most recent frame
+     */
+    public long graphNanos;
+  }
+
+  @Override
+  protected LXModulatorComponent.Profiler constructProfiler() {
+    return new Profiler();
+  }
+
+  private final List<Node> mutableGraph = new ArrayList<Node>();
+
+  /**
+   * Modulators and modulation targets in evaluation order. A modulator runs before
+   * any target it is the source of, and a target is evaluated before any modulator
+   * that owns it or any target it is the source of.
+   */
+  public final List<Node> graph = Collections.unmodifiableList(this.mutableGraph);
+
+  private boolean graphDirty = true;
+
   public LXModulationEngine(LX lx) {
     super(lx, "Modulation");
     addArray("modulation", this.modulations);
@@ -116,6 +187,7 @@ public class LXModulationEngine extends LXModulatorComponent implements LXOscCom
     }
     this.mutableModulations.add(modulation);
     _reindex(this.modulations);
+    this.graphDirty = true;
     for (Listener listener : this.listeners) {
       listener.modulationAdded(this, modulation);
     }
@@ -127,6 +199,7 @@ public class LXModulationEngine extends LXModulatorComponent implements LXOscCom
       throw new IllegalStateException("Cannot remove non-registered LXCompoundModulation: " + modulation);
     }
     this.mutableModulations.remove(modulation);
+    this.graphDirty = true;
     for (Listener listener : this.listeners) {
       listener.modulationRemoved(this, modulation);
     }
@@ -208,6 +281,7 @@ public class LXModulationEngine extends LXModulatorComponent implements LXOscCom
   @Override
   public <T extends LXModulator> T addModulator(T modulator, int index, JsonObject modulatorObj) {
     super.addModulator(modulator, index, modulatorObj);
+    this.graphDirty = true;
     for (Listener listener : this.listeners) {
       listener.modulatorAdded(this, modulator);
     }
@@ -223,12 +297,14 @@ public class LXModulationEngine extends LXModulatorComponent implements LXOscCom
       listener.modulatorRemoved(this, modulator);
     }
     super.removeModulator(modulator);
+    this.graphDirty = true;
     return modulator;
   }
 
   @Override
   public <T extends LXModulator> T moveModulator(T modulator, int index) {
     super.moveModulator(modulator, index);
+    this.graphDirty = true;
     for (Listener listener : this.listeners) {
       listener.modulatorMoved(this, modulator);
     }
@@ -245,6 +321,134 @@ public class LXModulationEngine extends LXModulatorComponent implements LXOscCom
     return count;
   }
 
+  /**
+   * Rebuilds the evaluation order of the modulation graph. Modulators and targets
+   * are sorted topologically, so that a modulator's output is computed before the
+   * targets it modulates, and a modulated CompoundParameter is computed before the
+   * targets and modulators that depend on it. A modulator may legitimately modulate
+   * its own parameters, such feedback loops are broken by running the modulator
+   * first and using its parameter values from the previous frame. Cycles purely
+   * between targets are rejected when modulations are created, but if one is found
+   * here the remaining targets are evaluated in list order and an error is logged.
+   */
+  private void compileGraph() {
+    this.graphDirty = false;
+    this.mutableGraph.clear();
+
+    final List<Node> nodes = new ArrayList<Node>();
+    final Map<LXComponent, Node> modulatorNodes = new HashMap<LXComponent, Node>();
+    final Map<CompoundParameter, Node> targetNodes = new HashMap<CompoundParameter, Node>();
+    for (LXModulator modulator : this.modulators) {
+      final Node node = new Node(modulator);
+      modulatorNodes.put(modulator, node);
+      nodes.add(node);
+    }
+    for (LXCompoundModulation modulation : this.mutableModulations) {
+      if (!targetNodes.containsKey(modulation.target)) {
+        final Node node = new Node(modulation.target);
+        targetNodes.put(modulation.target, node);
+        nodes.add(node);
+      }
+    }
+
+    // Add edges from each source to its targets, and from each target to the
+    // modulator that owns it, if there is one in this engine
+    for (LXCompoundModulation modulation : this.mutableModulations) {
+      final Node target = targetNodes.get(modulation.target);
+      Node source = targetNodes.get(modulation.source);
+      if (source == null) {
+        source = findModulatorNode(modulatorNodes, modulation.source);
+      }
+      if (source != null) {
+        source.addDependent(target);
+      }
+    }
+    for (Node target : targetNodes.values()) {
+      final Node owner = findModulatorNode(modulatorNodes, target.target);
+      if (owner != null) {
+        target.addDependent(owner);
+      }
+    }
+
+    // Kahn's algorithm, preserving list order where possible
+    final List<Node> remaining = new ArrayList<Node>(nodes);
+    final List<Node> ready = new ArrayList<Node>();
+    for (Node node : nodes) {
+      if (node.inDegree == 0) {
+        ready.add(node);
+      }
+    }
+    while (!remaining.isEmpty()) {
+      if (ready.isEmpty()) {
+        // Stuck on a cycle. Break it at the first remaining modulator, which
+        // will read its own modulated parameters from the previous frame.
+        for (Node node : remaining) {
+          if (node.modulator != null) {
+            ready.add(node);
+            break;
+          }
+        }
+        if (ready.isEmpty()) {
+          LX.error("Circular dependency detected in modulation graph of " + getParent() + ": " + remaining);
+          this.mutableGraph.addAll(remaining);
+          break;
+        }
+      }
+      final Node next = ready.remove(0);
+      remaining.remove(next);
+      this.mutableGraph.add(next);
+      for (Node dependent : next.dependents) {
+        if (--dependent.inDegree == 0 && remaining.contains(dependent) && !ready.contains(dependent)) {
+          ready.add(dependent);
+        }
+      }
+    }
+  }
+
+  private static Node findModulatorNode(Map<LXComponent, Node> modulatorNodes, LXParameter parameter) {
+    if (parameter instanceof LXModulator) {
+      final Node node = modulatorNodes.get(parameter);
+      if (node != null) {
+        return node;
+      }
+    }
+    LXComponent component = parameter.getParent();
+    while (component != null) {
+      final Node node = modulatorNodes.get(component);
+      if (node != null) {
+        return node;
+      }
+      component = component.getParent();
+    }
+    return null;
+  }
+
+  @Override
+  public void loop(double deltaMs) {
+    // Run the modulators and evaluate each modulated target exactly once
+    // for this frame, in dependency order
+    if (this.graphDirty) {
+      compileGraph();
+    }
+    final long graphStart = System.nanoTime();
+    long nodeStart = graphStart;
+    long modulatorNanos = 0;
+    for (Node node : this.mutableGraph) {
+      if (node.modulator != null) {
+        loopModulator(node.modulator, deltaMs);
+      } else {
+        node.target.updateModulation();
+      }
+      final long nodeEnd = System.nanoTime();
+      node.evaluateNanos = nodeEnd - nodeStart;
+      if (node.modulator != null) {
+        modulatorNanos += node.evaluateNanos;
+      }
+      nodeStart = nodeEnd;
+    }
+    ((Profiler) this.profiler).graphNanos = nodeStart - graphStart - modulatorNanos;
+  }
+
   /**
    * Dispatch a MIDI message to any modulators on this engine which are running and receive MIDI
    *
@@ -264,6 +468,7 @@ public class LXModulationEngine extends LXModulatorComponent implements LXOscCom
       modulation.dispose();
     }
     this.mutableModulations.clear();
+    this.mutableGraph.clear();
     super.dispose();
   }
 
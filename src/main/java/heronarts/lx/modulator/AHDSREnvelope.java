@@ -149,12 +149,14 @@ public class AHDSREnvelope extends LXModulator implements LXNormalizedParameter
       }
     } else if (p == this.retrig) {
       if (this.retrig.isOn()) {
+        syncToInputEvent();
         this.stageBasis = 0;
         this.stage = this.stageMode.getEnum().firstStage();
         this.attackFrom = getValue();
         this.retrig.setValue(false);
       }
     } else if (p == this.engage) {
+      syncToInputEvent();
       if (this.engage.isOn()) {
         // The envelope has been engaged, decide whether we're doing a
         // hard re-trigger or not and what stage to start in
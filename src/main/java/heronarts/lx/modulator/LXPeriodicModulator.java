@@ -164,7 +164,7 @@ public abstract class LXPeriodicModulator extends LXModulator {
    * @return this
    */
   public final LXPeriodicModulator randomBasis() {
-    setBasis(Math.random());
+    setBasis(getRandom().nextDouble());
     return this;
   }
 
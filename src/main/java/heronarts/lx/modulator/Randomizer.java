@@ -128,10 +128,10 @@ public class Randomizer extends LXPeriodicModulator implements LXNormalizedParam
   @Override
   protected double computeValue(double deltaMs, double basis) {
     if (loop() || finished()) {
-      double d = Math.random();
+      double d = getRandom().nextDouble();
       if (d*100 < this.chance.getValue()) {
-        this.randomInterval = Math.random();
-        this.target.setValue(LXUtils.lerp(this.min.getValue(), this.max.getValue(), Math.random()));
+        this.randomInterval = getRandom().nextDouble();
+        this.target.setValue(LXUtils.lerp(this.min.getValue(), this.max.getValue(), getRandom().nextDouble()));
         this.triggerOut.setValue(true);
       }
     }
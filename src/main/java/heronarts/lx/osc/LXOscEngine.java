@@ -502,16 +502,17 @@ public class LXOscEngine extends LXComponent {
         while (!isInterrupted()) {
           try {
             socket.receive(packet);
+            final long nanoTime = System.nanoTime();
             try {
               // Parse the OSC packet
               OscPacket oscPacket = OscPacket.parse(packet);
 
               // Add all messages in the packet to the queue
               if (oscPacket instanceof OscMessage) {
-                threadSafeEventQueue.add((OscMessage) oscPacket);
+                threadSafeEventQueue.add(((OscMessage) oscPacket).setNanoTime(nanoTime));
               } else if (oscPacket instanceof OscBundle) {
                 for (OscMessage message : (OscBundle) oscPacket) {
-                  threadSafeEventQueue.add(message);
+                  threadSafeEventQueue.add(message.setNanoTime(nanoTime));
                 }
               }
             } catch (OscException oscx) {
@@ -542,8 +543,13 @@ public class LXOscEngine extends LXComponent {
       this.listenerSnapshot.clear();
       this.listenerSnapshot.addAll(this.listeners);
       for (OscMessage message : this.engineThreadEventQueue) {
-        for (LXOscListener listener : this.listenerSnapshot) {
-          listener.oscMessage(message);
+        lx.engine.setInputEventNanos(message.getNanoTime());
+        try {
+          for (LXOscListener listener : this.listenerSnapshot) {
+            listener.oscMessage(message);
+          }
+        } finally {
+          lx.engine.setInputEventNanos(-1);
         }
       }
     }
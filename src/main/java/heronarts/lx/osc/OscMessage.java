@@ -32,6 +32,8 @@ public class OscMessage extends OscPacket implements Iterable<OscArgument> {
 
   private InetAddress source;
 
+  private long nanoTime = -1;
+
   private final List<OscArgument> arguments = new ArrayList<OscArgument>();
 
   private int cursor = 0;
@@ -154,6 +156,21 @@ public class OscMessage extends OscPacket implements Iterable<OscArgument> {
     return this.source;
   }
 
+  OscMessage setNanoTime(long nanoTime) {
+    this.nanoTime = nanoTime;
+    return this;
+  }
+
+  /**
+   * Gets the System.nanoTime() at which this message was received from the
+   * network, or -1 if it was constructed locally.
+   *
+   * @return Receive time in nanoseconds, or -1 if unknown
+   */
+  public long getNanoTime() {
+    return this.nanoTime;
+  }
+
   public OscString getAddressPattern() {
     return this.addressPattern;
   }
@@ -38,6 +38,35 @@ public class CompoundParameter extends BoundedParameter {
   public final List<LXCompoundModulation> modulations =
     Collections.unmodifiableList(this.mutableModulations);
 
+  /**
+   * Immutable snapshot of the applied modulation. The modulation offset is
+   * computed from the sources once per frame by the modulation engine, and
+   * then combined with the live base value, so that writes to the parameter
+   * remain immediately visible while every reader in the frame sees the same
+   * modulation, without locking.
+   */
+  private static class Modulated {
+
+    private final double baseValue;
+    private final double offset;
+    private final double normalized;
+    private final double value;
+
+    private Modulated(CompoundParameter parameter, double baseValue, double offset) {
+      this.baseValue = baseValue;
+      this.offset = offset;
+      this.normalized = LXUtils.constrain(
+        parameter.range.getNormalized(baseValue, parameter.getExponent(), parameter.getNormalizationCurve()) + offset,
+        0, 1
+      );
+      this.value = parameter.range.normalizedToValue(this.normalized, parameter.getExponent(), parameter.getNormalizationCurve());
+    }
+  }
+
+  // Most recently published modulation snapshot, null if it must be recomputed
+  // from the sources because modulation settings have changed
+  private volatile Modulated modulated = null;
+
   public interface ModulationListener {
     public void modulationAdded(CompoundParameter parameter, LXCompoundModulation modulation);
     public void modulationRemoved(CompoundParameter parameter, LXCompoundModulation modulation);
@@ -127,12 +156,14 @@ public class CompoundParameter extends BoundedParameter {
   @Override
   public CompoundParameter setExponent(double exponent) {
     super.setExponent(exponent);
+    invalidateModulation();
     return this;
   }
 
   @Override
   public CompoundParameter setNormalizationCurve(NormalizationCurve curve) {
     super.setNormalizationCurve(curve);
+    invalidateModulation();
     return this;
   }
 
@@ -153,6 +184,7 @@ public class CompoundParameter extends BoundedParameter {
       throw new IllegalStateException("Cannot add same modulation twice");
     }
     this.mutableModulations.add(modulation);
+    invalidateModulation();
     for (ModulationListener listener : this.modulationListeners) {
       listener.modulationAdded(this, modulation);
     }
@@ -168,6 +200,7 @@ public class CompoundParameter extends BoundedParameter {
    */
   public CompoundParameter removeModulation(LXCompoundModulation modulation) {
     this.mutableModulations.remove(modulation);
+    invalidateModulation();
     for (ModulationListener listener : this.modulationListeners) {
       listener.modulationRemoved(this, modulation);
     }
@@ -191,27 +224,76 @@ public class CompoundParameter extends BoundedParameter {
     return (float) getBaseNormalized();
   }
 
-  @Override
-  public double getNormalized() {
-    double normalized = this.range.getNormalized(getBaseValue(), getExponent(), getNormalizationCurve());
+  /**
+   * Marks the cached modulation as stale, it will be recomputed from the
+   * sources on the next read. Invoked when modulation settings or non-modulator
+   * sources change. Note that the next read may come from any thread, which
+   * then recomputes from the live values of the sources rather than waiting
+   * for the modulation engine.
+   */
+  public void invalidateModulation() {
+    this.modulated = null;
+  }
+
+  /**
+   * Recomputes the modulation of this parameter from the current value of all
+   * modulation sources. This is invoked once per frame by the modulation engine,
+   * after the modulation sources have been run.
+   *
+   * @return this
+   */
+  public CompoundParameter updateModulation() {
+    this.modulated = computeModulated();
+    return this;
+  }
+
+  private Modulated computeModulated() {
+    double offset = 0;
     for (LXCompoundModulation modulation : this.mutableModulations) {
       if (modulation.enabled.isOn()) {
         if (modulation.getPolarity() == Polarity.UNIPOLAR) {
-          normalized += modulation.source.getNormalized() * modulation.range.getValue();
+          offset += modulation.source.getNormalized() * modulation.range.getValue();
         } else {
-          normalized += 2.*(modulation.source.getNormalized()-.5) * modulation.range.getValue();
+          offset += 2.*(modulation.source.getNormalized()-.5) * modulation.range.getValue();
         }
       }
     }
-    return LXUtils.constrain(normalized, 0, 1);
+    return new Modulated(this, getBaseValue(), offset);
+  }
+
+  private Modulated getModulated() {
+    final Modulated modulated = this.modulated;
+    if (modulated == null) {
+      // Return what was computed, the field may already have been invalidated again
+      final Modulated computed = computeModulated();
+      this.modulated = computed;
+      return computed;
+    }
+    final double baseValue = getBaseValue();
+    if (modulated.baseValue != baseValue) {
+      // Base value was written since the modulation was computed, apply the
+      // same modulation offset to the new base value
+      final Modulated rebased = new Modulated(this, baseValue, modulated.offset);
+      this.modulated = rebased;
+      return rebased;
+    }
+    return modulated;
+  }
+
+  @Override
+  public double getNormalized() {
+    if (this.mutableModulations.isEmpty()) {
+      return super.getNormalized();
+    }
+    return getModulated().normalized;
   }
 
   @Override
   public double getValue() {
-    if (this.mutableModulations.size() == 0) {
+    if (this.mutableModulations.isEmpty()) {
       return super.getValue();
     }
-    return this.range.normalizedToValue(getNormalized(), getExponent(), getNormalizationCurve());
+    return getModulated().value;
   }
 
 }
@@ -0,0 +1,72 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.lx.parameter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import heronarts.lx.LX;
+
+/**
+ * Queue of parameters whose deferred listeners need to be notified. A parameter
+ * is queued at most once no matter how many times its value changes, and its
+ * deferred listeners are invoked once on the engine thread when the queue is
+ * dispatched, observing whatever the latest value is at that point.
+ */
+public class DeferredListenerQueue {
+
+  private List<LXListenableParameter> queued = new ArrayList<LXListenableParameter>();
+  private List<LXListenableParameter> dispatching = new ArrayList<LXListenableParameter>();
+
+  void queue(LXListenableParameter parameter) {
+    synchronized (this) {
+      if (!parameter.deferredQueued) {
+        parameter.deferredQueued = true;
+        this.queued.add(parameter);
+      }
+    }
+  }
+
+  /**
+   * Invoked by the engine once per frame to notify deferred listeners of all
+   * parameters that have changed since the last dispatch.
+   */
+  public void dispatch() {
+    synchronized (this) {
+      if (this.queued.isEmpty()) {
+        return;
+      }
+      final List<LXListenableParameter> swap = this.dispatching;
+      this.dispatching = this.queued;
+      this.queued = swap;
+      for (LXListenableParameter parameter : this.dispatching) {
+        parameter.deferredQueued = false;
+      }
+    }
+    for (LXListenableParameter parameter : this.dispatching) {
+      try {
+        parameter.notifyDeferredListeners();
+      } catch (Exception x) {
+        LX.error(x, "Exception in deferred parameter listener: " + parameter.getCanonicalPath());
+      }
+    }
+    this.dispatching.clear();
+  }
+
+}
@@ -39,6 +39,11 @@ public abstract class LXListenableParameter implements LXParameter {
 
   private final List<LXParameterListener> listeners = new ArrayList<LXParameterListener>();
 
+  private final List<LXParameterListener> deferredListeners = new ArrayList<LXParameterListener>();
+
+  // Guarded by the DeferredListenerQueue
+  boolean deferredQueued = false;
+
   private AggregateParameter parentParameter = null;
 
   private LXComponent parent;
@@ -123,6 +128,61 @@ public abstract class LXListenableParameter implements LXParameter {
     return this;
   }
 
+  /**
+   * Adds a deferred listener to this parameter. Rather than being invoked on every
+   * value change, deferred listeners are invoked at most once per engine frame,
+   * on the engine thread, with whatever the latest value is. This is appropriate
+   * for listeners that only reflect state, such as UI or OSC output, where
+   * intermediate values in a rapid sweep are not meaningful. If the parameter is
+   * not registered to a component in a running LX instance, deferred listeners
+   * are invoked synchronously.
+   *
+   * @param listener Listener
+   * @return this
+   */
+  public LXListenableParameter addDeferredListener(LXParameterListener listener) {
+    Objects.requireNonNull(listener, "May add null deferred LXParameterListener: " + this);
+    if (this.deferredListeners.contains(listener)) {
+      throw new IllegalStateException("Cannot add duplicate deferred LXParameterListener " + getCanonicalPath() + " " + listener.getClass().getName());
+    }
+    this.deferredListeners.add(listener);
+    return this;
+  }
+
+  public final LXListenableParameter removeDeferredListener(LXParameterListener listener) {
+    if (!this.deferredListeners.contains(listener)) {
+      LX.error(new Exception(), "Trying to remove unregistered deferred LXParameterListener " + getCanonicalPath() + " " + listener.getClass().getName());
+    }
+    this.deferredListeners.remove(listener);
+    return this;
+  }
+
+  void notifyDeferredListeners() {
+    for (LXParameterListener l : this.deferredListeners) {
+      l.onParameterChanged(this);
+    }
+  }
+
+  private void queueDeferredListeners() {
+    if (!this.deferredListeners.isEmpty()) {
+      final LX lx = getParentLX();
+      if ((lx != null) && (lx.engine != null)) {
+        lx.engine.deferredListeners.queue(this);
+      } else {
+        notifyDeferredListeners();
+      }
+    }
+  }
+
+  /**
+   * Helper to find the LX instance this parameter belongs to, if any
+   *
+   * @return LX instance of the parent component, or null
+   */
+  LX getParentLX() {
+    return (this.parent != null) ? this.parent.getLX() : null;
+  }
+
   public LXListenableParameter setDescription(String description) {
     this.description = description;
     return this;
@@ -176,6 +236,7 @@ public abstract class LXListenableParameter implements LXParameter {
       }
     }
     this.listeners.clear();
+    this.deferredListeners.clear();
   }
 
   public LXParameter reset() {
@@ -222,6 +283,7 @@ public abstract class LXListenableParameter implements LXParameter {
               l.onParameterChanged(this);
             }
             this.inListener = false;
+            queueDeferredListeners();
           }
           while (!this.setValues.isEmpty()) {
             setValue(this.setValues.poll());
@@ -260,6 +322,7 @@ public abstract class LXListenableParameter implements LXParameter {
     for (LXParameterListener l : listeners) {
       l.onParameterChanged(this);
     }
+    queueDeferredListeners();
     return this;
   }
 
@@ -22,108 +22,172 @@ import heronarts.lx.LXCategory;
 import heronarts.lx.LX;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.model.GridModel;
-import heronarts.lx.utils.LXUtils;
+import heronarts.lx.model.LXModel;
+import heronarts.lx.utils.LXRandom;
 
+import java.util.Arrays;
 import java.util.HashMap;
 
+/**
+ * Conway's game of life on a grid model. Cell state is packed into bitsets with
+ * each grid row padded out to a whole number of 64-bit words, so a generation
+ * is computed 64 cells at a time with bitwise adders. Neighbors in adjacent
+ * columns come from shifting a word with carry-in from the word beside it, and
+ * neighbors in adjacent rows are at a fixed word offset.
+ */
 @LXCategory(LXCategory.FORM)
 public class LifePattern extends LXModelPattern<GridModel> {
 
-  private enum CellState {
-    DEAD, BIRTHING, ALIVE, DYING
-  };
+  // Render states, indexed by (wasAlive << 1) | isAlive
+  private static final int DEAD = 0;
+  private static final int BIRTHING = 1;
+  private static final int DYING = 2;
+  private static final int ALIVE = 3;
+
+  private static final int MAX_REPEATS = 3;
+
+  private int width;
+  private int height;
+  private int wordsPerRow;
+  private long lastWordMask;
+
+  // Live cells in the current and previous generations
+  private long[] state;
+  private long[] previous;
+  private long[] next;
 
-  private CellState[] state;
-  private CellState[] newState;
   private int spawnCounter = 0;
 
-  private final HashMap<String, Integer> stateCount = new HashMap<String, Integer>();
+  private final HashMap<Long, Integer> stateCount = new HashMap<Long, Integer>();
+
+  private final int[] stateColor = new int[4];
 
   public LifePattern(LX lx) {
     super(lx);
-    this.state = new CellState[model.size];
-    this.newState = new CellState[model.size];
+    setGrid(this.model);
+    spawn();
+  }
+
+  @Override
+  protected void onModelChanged(LXModel model) {
+    setGrid(this.model);
+    this.stateCount.clear();
+    this.spawnCounter = 0;
     spawn();
   }
 
-  private boolean isLiveState(CellState state) {
-    return (state == CellState.BIRTHING) || (state == CellState.ALIVE);
+  private void setGrid(GridModel model) {
+    this.width = model.width;
+    this.height = model.height;
+    this.wordsPerRow = (this.width + 63) >>> 6;
+    final int lastBits = this.width & 63;
+    this.lastWordMask = (lastBits == 0) ? -1L : (1L << lastBits) - 1;
+    final int words = this.wordsPerRow * this.height;
+    this.state = new long[words];
+    this.previous = new long[words];
+    this.next = new long[words];
   }
 
   private void respawn() {
     boolean anyAlive = false;
     for (int i = 0; i < this.state.length; ++i) {
-      if (isLiveState(this.state[i])) {
-        anyAlive = true;
-        this.state[i] = CellState.DYING;
-      }
+      // Live cells start dying, those already dying carry on
+      anyAlive |= (this.state[i] != 0);
+      this.previous[i] |= this.state[i];
+      this.state[i] = 0;
     }
     this.spawnCounter = anyAlive ? 2 : 1;
   }
 
   private void spawn() {
-    for (int i = 0; i < this.state.length; ++i) {
-      this.state[i] = (LXUtils.random(0, 100) > 70) ? CellState.BIRTHING : CellState.DEAD;
-    }
-  }
-
-  private int neighborsAlive(int i) {
-    int x = i % this.model.width;
-    int y = i / this.model.width;
-    return isAlive(x - 1, y - 1) + isAlive(x, y - 1) + isAlive(x + 1, y - 1)
-        + isAlive(x - 1, y) + isAlive(x + 1, y) + isAlive(x - 1, y + 1)
-        + isAlive(x, y + 1) + isAlive(x + 1, y + 1);
-  }
-
-  private int isAlive(int x, int y) {
-    if (x < 0 || x >= this.model.width) {
-      return 0;
-    }
-    if (y < 0 || y >= this.model.height) {
-      return 0;
-    }
-    int idx = x + y * this.model.width;
-    if (this.isLiveState(this.state[idx])) {
-      return 1;
+    // Each cell is born with 30% probability
+    final LXRandom random = getRandom();
+    for (int y = 0; y < this.height; ++y) {
+      final int row = y * this.wordsPerRow;
+      for (int x = 0; x < this.width; ++x) {
+        if (random.nextDouble() >= .7) {
+          this.state[row + (x >>> 6)] |= 1L << (x & 63);
+        } else {
+          this.state[row + (x >>> 6)] &= ~(1L << (x & 63));
+        }
+      }
     }
-    return 0;
+    Arrays.fill(this.previous, 0);
   }
 
   private void transition() {
-    for (int i = 0; i < state.length; ++i) {
-      int nA = neighborsAlive(i);
-      switch (state[i]) {
-      case DEAD:
-      case DYING:
-        this.newState[i] = (nA == 3) ? CellState.BIRTHING : CellState.DEAD;
-        break;
-      case ALIVE:
-      case BIRTHING:
-        this.newState[i] = (nA == 2 || nA == 3) ? CellState.ALIVE
-            : CellState.DYING;
-        break;
+    final long[] state = this.state;
+    final long[] next = this.next;
+    final int wordsPerRow = this.wordsPerRow;
+    final int lastWord = wordsPerRow - 1;
+    long hash = 0;
+
+    for (int y = 0; y < this.height; ++y) {
+      final int row = y * wordsPerRow;
+      final int above = (y > 0) ? row - wordsPerRow : -1;
+      final int below = (y < this.height - 1) ? row + wordsPerRow : -1;
+
+      for (int w = 0; w < wordsPerRow; ++w) {
+        final long center = state[row + w];
+
+        // Each neighbor direction as a word aligned to this one, bit x holding
+        // the state of the cell that neighbors x in that direction
+        long s0 = 0, s1 = 0, s2 = 0;
+        long n, carry0, carry1;
+
+        n = west(state, row, w); carry0 = s0 & n; s0 ^= n; carry1 = s1 & carry0; s1 ^= carry0; s2 |= carry1;
+        n = east(state, row, w, lastWord); carry0 = s0 & n; s0 ^= n; carry1 = s1 & carry0; s1 ^= carry0; s2 |= carry1;
+        if (above >= 0) {
+          n = state[above + w]; carry0 = s0 & n; s0 ^= n; carry1 = s1 & carry0; s1 ^= carry0; s2 |= carry1;
+          n = west(state, above, w); carry0 = s0 & n; s0 ^= n; carry1 = s1 & carry0; s1 ^= carry0; s2 |= carry1;
+          n = east(state, above, w, lastWord); carry0 = s0 & n; s0 ^= n; carry1 = s1 & carry0; s1 ^= carry0; s2 |= carry1;
+        }
+        if (below >= 0) {
+          n = state[below + w]; carry0 = s0 & n; s0 ^= n; carry1 = s1 & carry0; s1 ^= carry0; s2 |= carry1;
+          n = west(state, below, w); carry0 = s0 & n; s0 ^= n; carry1 = s1 & carry0; s1 ^= carry0; s2 |= carry1;
+          n = east(state, below, w, lastWord); carry0 = s0 & n; s0 ^= n; carry1 = s1 & carry0; s1 ^= carry0; s2 |= carry1;
+        }
+
+        // Alive with exactly 3 neighbors, or with 2 if already alive. The s2
+        // flag marks any count of 4 or more.
+        long result = s1 & ~s2 & (s0 | center);
+        if (w == lastWord) {
+          result &= this.lastWordMask;
+        }
+        next[row + w] = result;
+        hash = (hash ^ result) * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 29;
       }
     }
-    CellState[] tmp = this.state;
-    this.state = this.newState;
-    this.newState = tmp;
 
-    String stateSerial = "";
-    for (int i = 0; i < this.state.length; ++i) {
-      stateSerial += this.isLiveState(this.state[i]) ? "1" : "0";
-    }
-    Integer count = 0;
-    if (this.stateCount.containsKey(stateSerial)) {
-      count = this.stateCount.get(stateSerial);
+    this.next = this.previous;
+    this.previous = state;
+    this.state = next;
+
+    // Respawn once the same state has come up too many times
+    final Long key = hash;
+    Integer count = this.stateCount.get(key);
+    if (count == null) {
+      count = 0;
     }
-    if (count.equals(3)) {
+    if (count == MAX_REPEATS) {
       this.stateCount.clear();
       this.respawn();
     } else {
-      this.stateCount.put(stateSerial, count + 1);
+      this.stateCount.put(key, count + 1);
     }
   }
 
+  private static long west(long[] state, int row, int w) {
+    final long word = state[row + w];
+    return (w > 0) ? (word << 1) | (state[row + w - 1] >>> 63) : (word << 1);
+  }
+
+  private static long east(long[] state, int row, int w, int lastWord) {
+    final long word = state[row + w];
+    return (w < lastWord) ? (word >>> 1) | (state[row + w + 1] << 63) : (word >>> 1);
+  }
+
   @Override
   public void run(double deltaMs) {
     if (this.lx.engine.tempo.beat()) {
@@ -133,24 +197,24 @@ public class LifePattern extends LXModelPattern<GridModel> {
         this.transition();
       }
     }
-    double basis = this.lx.engine.tempo.basis();
-    for (int i = 0; i < this.model.size; ++i) {
-      double b = 0;
-      switch (this.state[i]) {
-      case ALIVE:
-        b = 100;
-        break;
-      case BIRTHING:
-        b = basis * 100;
-        break;
-      case DEAD:
-        b = 0;
-        break;
-      case DYING:
-        b = 100 * (1 - basis);
-        break;
+    final double basis = this.lx.engine.tempo.basis();
+    this.stateColor[DEAD] = LXColor.BLACK;
+    this.stateColor[BIRTHING] = LXColor.gray(basis * 100);
+    this.stateColor[DYING] = LXColor.gray(100 * (1 - basis));
+    this.stateColor[ALIVE] = LXColor.gray(100);
+
+    final long[] state = this.state;
+    final long[] previous = this.previous;
+    final int[] stateColor = this.stateColor;
+    int i = 0;
+    for (int y = 0; y < this.height; ++y) {
+      final int row = y * this.wordsPerRow;
+      for (int x = 0; x < this.width; ++x, ++i) {
+        final int word = row + (x >>> 6);
+        final int bit = x & 63;
+        final int cell = (int) ((state[word] >>> bit) & 1) | (int) (((previous[word] >>> bit) & 1) << 1);
+        this.colors[i] = stateColor[cell];
       }
-      this.colors[i] = LXColor.gray(b);
     }
   }
 }
@@ -28,6 +28,8 @@ import heronarts.lx.color.GradientUtils.GradientFunction;
 import heronarts.lx.color.LXColor;
 import heronarts.lx.color.LXDynamicColor;
 import heronarts.lx.color.LXSwatch;
+import heronarts.lx.model.GeometryCache;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.model.LXPoint;
 import heronarts.lx.parameter.CompoundParameter;
 import heronarts.lx.parameter.DiscreteParameter;
@@ -167,6 +169,23 @@ public class GradientPattern extends LXPattern implements GradientFunction {
 
   private final ColorStops colorStops = new ColorStops();
 
+  private final GradientUtils.Batch batch = new GradientUtils.Batch();
+  private float[] lerp = new float[0];
+
+  private static GeometryCache centerCache(LXModel.PointValue value) {
+    return new GeometryCache((model, values, offset, unused) -> {
+      final float[] normalized = model.getPointValues(value);
+      final float center = .5f + offset * .5f;
+      for (int i = 0; i < values.length; ++i) {
+        values[i] = 2 * Math.abs(normalized[i] - center);
+      }
+    });
+  }
+
+  private final GeometryCache xCenter = centerCache(LXModel.PointValue.XN);
+  private final GeometryCache yCenter = centerCache(LXModel.PointValue.YN);
+  private final GeometryCache zCenter = centerCache(LXModel.PointValue.ZN);
+
   public GradientPattern(LX lx) {
     super(lx);
     addParameter("xAmount", this.xAmount);
@@ -253,6 +272,23 @@ public class GradientPattern extends LXPattern implements GradientFunction {
     }
   }
 
+  private float[] getCoordinates(CoordinateMode mode, LXModel.PointValue value, GeometryCache center, float offset) {
+    switch (mode) {
+    case CENTER:
+      return center.get(this.model, offset);
+    case RADIAL:
+      return this.model.getPointValues(LXModel.PointValue.RCN);
+    default:
+    case NORMAL:
+      return this.model.getPointValues(value);
+    }
+  }
+
+  private float getConstant(CoordinateMode mode, float amount, float offset) {
+    final float invert = (amount < 0) ? -1 : 0;
+    return (mode == CoordinateMode.CENTER) ? invert : invert - offset;
+  }
+
   @Override
   public int getGradientColor(float lerp) {
     return this.colorStops.getColor(lerp, this.blendMode.getEnum().function);
@@ -281,21 +317,26 @@ public class GradientPattern extends LXPattern implements GradientFunction {
     final CoordinateMode yMode = this.yMode.getEnum();
     final CoordinateMode zMode = this.zMode.getEnum();
 
-    final CoordinateFunction xFunction = (xAmount < 0) ? xMode.invert : xMode.function;
-    final CoordinateFunction yFunction = (yAmount < 0) ? yMode.invert : yMode.function;
-    final CoordinateFunction zFunction = (zAmount < 0) ? zMode.invert : zMode.function;
-
-    final GradientUtils.BlendFunction blendFunction = this.blendMode.getEnum().function;
-
-    for (LXPoint p : model.points) {
-      float lerp = (this.colorStops.numStops - 1) * LXUtils.clampf(
-        xAmount * xFunction.getCoordinate(p, p.xn, xOffset) +
-        yAmount * yFunction.getCoordinate(p, p.yn, yOffset) +
-        zAmount * zFunction.getCoordinate(p, p.zn, zOffset),
+    // Each coordinate function is a cached per-point array plus a constant
+    final float[] xCoord = getCoordinates(xMode, LXModel.PointValue.XN, this.xCenter, xOffset);
+    final float[] yCoord = getCoordinates(yMode, LXModel.PointValue.YN, this.yCenter, yOffset);
+    final float[] zCoord = getCoordinates(zMode, LXModel.PointValue.ZN, this.zCenter, zOffset);
+    final float constant =
+      xAmount * getConstant(xMode, xAmount, xOffset) +
+      yAmount * getConstant(yMode, yAmount, yOffset) +
+      zAmount * getConstant(zMode, zAmount, zOffset);
+
+    final int[] index = model.getPointIndices();
+    if (this.lerp.length < index.length) {
+      this.lerp = new float[index.length];
+    }
+    final float[] lerp = this.lerp;
+    for (int i = 0; i < index.length; ++i) {
+      lerp[i] = LXUtils.clampf(
+        xAmount * xCoord[i] + yAmount * yCoord[i] + zAmount * zCoord[i] + constant,
         0, 1
       );
-      int stop = (int) Math.floor(lerp);
-      colors[p.index] = blendFunction.blend(this.colorStops.stops[stop], this.colorStops.stops[stop+1], lerp - stop);
     }
+    this.batch.getColors(this.colorStops, this.blendMode.getEnum(), lerp, index, colors, index.length);
   }
 }
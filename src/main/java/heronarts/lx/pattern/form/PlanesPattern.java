@@ -31,6 +31,7 @@ import heronarts.lx.LXCategory;
 import heronarts.lx.LXLayer;
 import heronarts.lx.LXSerializable;
 import heronarts.lx.color.LXColor;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.model.LXPoint;
 import heronarts.lx.osc.LXOscComponent;
 import heronarts.lx.parameter.BooleanParameter;
@@ -243,7 +244,6 @@ public class PlanesPattern extends LXPattern {
       }
 
       Axis axis = this.axis.getEnum();
-      AxisFunction function = axis.function;
       float position = LXUtils.lerpf(this.positionMin.getValuef(), this.positionMax.getValuef(), .5f * (1 + this.position.getValuef()));
       float width = .5f * LXUtils.lerpf(this.widthMin.getValuef(), this.widthMax.getValuef(), this.width.getValuef());
       float fade = 1 / width / this.fade.getValuef();
@@ -277,12 +277,48 @@ public class PlanesPattern extends LXPattern {
 
       }
 
-      float level = this.level.getValuef();
-      for (LXPoint p : model.points) {
-        float d = Math.abs(function.getDistance(p, args));
+      // Every axis function is linear in the point coordinates, so expand the
+      // distance into k0 + ku*u + kv*v + kw*w over cached coordinate arrays
+      final float[] u, v, w;
+      final float k0, ku, kv, kw;
+      switch (axis) {
+      case X:
+      case Y:
+      case Z:
+      case FREE:
+        if (axis == Axis.Y) {
+          u = model.getPointValues(LXModel.PointValue.YN);
+          v = model.getPointValues(LXModel.PointValue.ZN);
+          w = model.getPointValues(LXModel.PointValue.XN);
+        } else if (axis == Axis.Z) {
+          u = model.getPointValues(LXModel.PointValue.ZN);
+          v = model.getPointValues(LXModel.PointValue.XN);
+          w = model.getPointValues(LXModel.PointValue.YN);
+        } else {
+          u = model.getPointValues(LXModel.PointValue.XN);
+          v = model.getPointValues(LXModel.PointValue.YN);
+          w = model.getPointValues(LXModel.PointValue.ZN);
+        }
+        ku = args.invSqrt * args.a;
+        kv = args.invSqrt * args.b;
+        kw = args.invSqrt * args.c;
+        k0 = args.invSqrt * (((axis == Axis.FREE) ? args.d : 0) - args.a * args.ap - args.b * args.bp - args.c * args.cp);
+        break;
+      default:
+        u = v = w = model.getPointValues((axis == Axis.RC) ? LXModel.PointValue.RCN : LXModel.PointValue.RN);
+        ku = 1;
+        kv = kw = 0;
+        k0 = -args.d;
+        break;
+      }
+
+      final int[] index = model.getPointIndices();
+      final float level = this.level.getValuef();
+      for (int i = 0; i < index.length; ++i) {
+        float d = Math.abs(k0 + ku * u[i] + kv * v[i] + kw * w[i]);
         float bn = LXUtils.minf(1, 1 - (d - width) * fade);
         if (bn > 0) {
-          addColor(p.index, LXColor.grayn(level * bn));
+          addColor(index[i], LXColor.grayn(level * bn));
         }
       }
     }
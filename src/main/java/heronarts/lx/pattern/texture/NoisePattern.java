@@ -34,8 +34,8 @@ import heronarts.lx.parameter.LXParameter;
 import heronarts.lx.LX;
 import heronarts.lx.pattern.LXPattern;
 import heronarts.lx.utils.LXUtils;
+import heronarts.lx.utils.Noise;
 
-import static heronarts.lx.utils.Noise.*;
 import static heronarts.lx.utils.LXUtils.clamp;
 
 @LXCategory(LXCategory.TEXTURE)
@@ -235,6 +235,12 @@ public class NoisePattern extends LXPattern {
     new BoundedParameter("Ridge", .9, 0, 2)
     .setDescription("Used to invert the feedback ridges");
 
+  private final Noise.Batch noise = new Noise.Batch();
+  private float[] noiseX = new float[0];
+  private float[] noiseY = new float[0];
+  private float[] noiseZ = new float[0];
+  private float[] noiseOut = new float[0];
+
   public NoisePattern(LX lx) {
     super(lx);
 
@@ -333,54 +339,64 @@ public class NoisePattern extends LXPattern {
     CoordinateFunction yMode = this.yMode.getEnum().function;
     CoordinateFunction zMode = this.zMode.getEnum().function;
 
-    if (algorithm.equals(Algorithm.PERLIN)) {
-      for (LXPoint p : model.points) {
-        float xd = xMode.getCoordinate(p, p.xn, xo);
-        float yd = yMode.getCoordinate(p, p.yn, yo);
-        float zd = zMode.getCoordinate(p, p.zn, zo);
+    final int count = model.points.length;
+    if (this.noiseX.length != count) {
+      this.noiseX = new float[count];
+      this.noiseY = new float[count];
+      this.noiseZ = new float[count];
+      this.noiseOut = new float[count];
+    }
+    final float[] nx = this.noiseX;
+    final float[] ny = this.noiseY;
+    final float[] nz = this.noiseZ;
+    final float[] out = this.noiseOut;
 
-        float b = level + contrast * stb_perlin_noise3_seed(xa + xs * xd, ya + ys * yd, za + zs * zd, 0, 0, 0, seed);
-        this.colors[p.index] = LXColor.gray(clamp(b, 0, 100));
-      }
+    int i = 0;
+    for (LXPoint p : model.points) {
+      float xd = xMode.getCoordinate(p, p.xn, xo);
+      float yd = yMode.getCoordinate(p, p.yn, yo);
+      float zd = zMode.getCoordinate(p, p.zn, zo);
+      nx[i] = xa + xs * xd;
+      ny[i] = ya + ys * yd;
+      nz[i] = za + zs * zd;
+      ++i;
+    }
+
+    if (algorithm.equals(Algorithm.PERLIN)) {
+      this.noise.noise3(nx, ny, nz, out, count, seed);
     } else {
       int octaves = this.octaves.getValuei();
       float lacunarity = this.lacunarity.getValuef();
       float gain = this.gain.getValuef();
 
       if (algorithm.equals(Algorithm.RIDGE)) {
-        float ridgeOffset = this.ridgeOffset.getValuef();
-        for (LXPoint p : model.points) {
-          float xd = xMode.getCoordinate(p, p.xn, xo);
-          float yd = yMode.getCoordinate(p, p.yn, yo);
-          float zd = zMode.getCoordinate(p, p.zn, zo);
-          float b = level + contrast * stb_perlin_ridge_noise3(xa + xs * xd, ya + ys * yd, za + zs * zd, lacunarity, gain, ridgeOffset, octaves);
-          this.colors[p.index] = LXColor.gray(clamp(b, 0, 100));
-        }
+        this.noise.ridge3(nx, ny, nz, out, count, lacunarity, gain, this.ridgeOffset.getValuef(), octaves);
       } else if (algorithm.equals(Algorithm.FBM)) {
-        for (LXPoint p : model.points) {
-          float xd = xMode.getCoordinate(p, p.xn, xo);
-          float yd = yMode.getCoordinate(p, p.yn, yo);
-          float zd = zMode.getCoordinate(p, p.zn, zo);
-          float b = level + contrast * stb_perlin_fbm_noise3(xa + xs * xd, ya + ys * yd, za + zs * zd, lacunarity, gain, octaves);
-          this.colors[p.index] = LXColor.gray(clamp(b, 0, 100));
-        }
+        this.noise.fbm3(nx, ny, nz, out, count, lacunarity, gain, octaves);
       } else if (algorithm.equals(Algorithm.TURBULENCE)) {
-        for (LXPoint p : model.points) {
-          float xd = xMode.getCoordinate(p, p.xn, xo);
-          float yd = yMode.getCoordinate(p, p.yn, yo);
-          float zd = zMode.getCoordinate(p, p.zn, zo);
-          float b = level + contrast * stb_perlin_turbulence_noise3(xa + xs * xd, ya + ys * yd, za + zs * zd, lacunarity, gain, octaves);
-          this.colors[p.index] = LXColor.gray(clamp(b, 0, 100));
-        }
+        this.noise.turbulence3(nx, ny, nz, out, count, lacunarity, gain, octaves);
       }
     }
+
+    i = 0;
+    for (LXPoint p : model.points) {
+      float b = level + contrast * out[i++];
+      this.colors[p.index] = LXColor.gray(clamp(b, 0, 100));
+    }
   }
 
   private void runStatic(double deltaMs) {
     float level = this.level.getValuef();
     float contrast = this.contrast.getValuef();
+    final int count = model.points.length;
+    if (this.noiseOut.length != count) {
+      this.noiseOut = new float[count];
+    }
+    final float[] out = this.noiseOut;
+    getRandom().fill(out, -1, 1, count);
+    int i = 0;
     for (LXPoint p : model.points) {
-      float b = level + contrast * (-1 + 2 * (float) Math.random());
+      float b = level + contrast * out[i++];
       this.colors[p.index] = LXColor.gray(clamp(b, 0, 100));
     }
   }
@@ -27,6 +27,7 @@ import heronarts.lx.parameter.CompoundParameter;
 import heronarts.lx.parameter.ObjectParameter;
 import heronarts.lx.LX;
 import heronarts.lx.pattern.LXPattern;
+import heronarts.lx.utils.LXRandom;
 import heronarts.lx.utils.LXUtils;
 
 @LXCategory(LXCategory.TEXTURE)
@@ -58,9 +59,9 @@ public class SparklePattern extends LXPattern {
 
       private Sparkle() {
         this.isOn = false;
-        this.basis = Math.random();
-        this.randomVar = Math.random();
-        this.randomLevel = Math.random();
+        this.basis = random.nextDouble();
+        this.randomVar = random.nextDouble();
+        this.randomLevel = random.nextDouble();
       }
 
       private void rebuffer(LXModel model) {
@@ -70,9 +71,7 @@ public class SparklePattern extends LXPattern {
 
       private void reindex(LXModel model) {
         // Choose a set of LED indices at random for this sparkle to point to
-        for (int i = 0; i < this.indexBuffer.length; ++i) {
-          this.indexBuffer[i] = LXUtils.constrain((int) (Math.random() * model.size), 0, model.size - 1);
-        }
+        random.fill(this.indexBuffer, model.size, this.indexBuffer.length);
       }
     }
 
@@ -91,6 +90,8 @@ public class SparklePattern extends LXPattern {
      */
     public double[] outputLevels;
 
+    private final LXRandom random;
+
     private int numSparkles;
     private int maxPixelsPerSparkle;
 
@@ -148,6 +149,11 @@ public class SparklePattern extends LXPattern {
       .setDescription("Peak sparkle brightness level");
 
     public Engine(LXModel model) {
+      this(model, new LXRandom());
+    }
+
+    public Engine(LXModel model, LXRandom random) {
+      this.random = random;
       setModel(model);
     }
 
@@ -222,7 +228,7 @@ public class SparklePattern extends LXPattern {
 
           if (desiredPixels < this.numSparkles) {
             sparkle.activePixels = 1;
-            sparkle.isOn = Math.random() < desiredPixelsPerSparkle;
+            sparkle.isOn = this.random.nextDouble() < desiredPixelsPerSparkle;
           } else {
             sparkle.isOn = true;
             sparkle.activePixels = Math.round(desiredPixelsPerSparkle);
@@ -230,8 +236,8 @@ public class SparklePattern extends LXPattern {
 
           // Re-randomize this sparkle
           if (sparkle.isOn) {
-            sparkle.randomVar = Math.random();
-            sparkle.randomLevel = Math.random();
+            sparkle.randomVar = this.random.nextDouble();
+            sparkle.randomLevel = this.random.nextDouble();
             sparkle.reindex(model);
           }
         }
@@ -264,7 +270,7 @@ public class SparklePattern extends LXPattern {
     }
   }
 
-  public final Engine engine = new Engine(model);
+  public final Engine engine = new Engine(model, getRandom());
 
   public SparklePattern(LX lx) {
     super(lx);
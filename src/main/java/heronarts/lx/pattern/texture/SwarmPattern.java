@@ -24,7 +24,8 @@ import heronarts.lx.LX;
 import heronarts.lx.LXCategory;
 import heronarts.lx.LXSerializable;
 import heronarts.lx.color.LXColor;
-import heronarts.lx.model.LXPoint;
+import heronarts.lx.model.GeometryCache;
+import heronarts.lx.model.LXModel;
 import heronarts.lx.modulator.LXVariablePeriodModulator.ClockMode;
 import heronarts.lx.modulator.LXWaveshape;
 import heronarts.lx.modulator.VariableLFO;
@@ -164,6 +165,15 @@ public class SwarmPattern extends LXPattern {
 
   public final VariableLFO motion = new VariableLFO("Motion", WAVESHAPES);
 
+  // Distance from each point to the swarm center, keyed by the center position
+  private final GeometryCache swarmDistance = new GeometryCache((model, values, swarmX, swarmY) -> {
+    final float[] xn = model.getPointValues(LXModel.PointValue.XN);
+    final float[] yn = model.getPointValues(LXModel.PointValue.YN);
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = (float) LXUtils.dist(swarmX, swarmY, xn[i], yn[i]);
+    }
+  });
+
   public SwarmPattern(LX lx) {
     super(lx);
 
@@ -235,8 +245,6 @@ public class SwarmPattern extends LXPattern {
 
     boolean swarmOn = this.swarmOn.isOn();
     double swarmSize = .01 + this.swarmSize.getValue();
-    double swarmX = this.swarmX.getValue();
-    double swarmY = this.swarmY.getValue();
     double swarmFade = this.swarmFade.getValue();
     double swarmFadeAbs = Math.abs(swarmFade);
     double swarmBrightness = this.swarmBrightness.getValue();
@@ -251,10 +259,12 @@ public class SwarmPattern extends LXPattern {
       minSizePixels = chunkSize - minFadePixels;
     }
 
+    final float[] swarmDistances = swarmOn ? this.swarmDistance.get(model, this.swarmX.getValuef(), this.swarmY.getValuef()) : null;
+    final int[] index = model.getPointIndices();
+
     boolean even = false;
 
-    int i = 0;
-    for (LXPoint p : model.points) {
+    for (int i = 0; i < index.length; ++i) {
       int chunkIndex = i / chunkSizei;
       double pos = i % chunkSize;
       if (even && alternate) {
@@ -267,7 +277,7 @@ public class SwarmPattern extends LXPattern {
       // Distance application
       double dist = wrap.distance.compute(pos, motion2, chunkSize);
 
-      double swarmDistance = swarmOn ? LXUtils.dist(swarmX, swarmY, p.xn, p.yn) / swarmSize : 0;
+      double swarmDistance = swarmOn ? swarmDistances[i] / swarmSize : 0;
 
       // Swarm modifies size and falloff
       double swarmFadeLerp = LXUtils.min(1, swarmDistance * swarmFadeAbs);
@@ -289,8 +299,7 @@ public class SwarmPattern extends LXPattern {
         b = LXUtils.lerp(b, 0, swarmBrightnessLerp);
       }
 
-      colors[p.index] = LXColor.gray(b);
-      ++i;
+      colors[index[i]] = LXColor.gray(b);
       even = !even;
     }
   }
@@ -23,6 +23,7 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
@@ -38,12 +39,13 @@ import com.google.gson.stream.JsonWriter;
 
 import heronarts.lx.LX;
 import heronarts.lx.LXComponent;
+import heronarts.lx.LXEngine;
 import heronarts.lx.LXLoopTask;
 import heronarts.lx.LXSerializable;
+import heronarts.lx.color.LXColor;
 import heronarts.lx.parameter.BooleanParameter;
 import heronarts.lx.parameter.BoundedParameter;
 import heronarts.lx.parameter.LXParameter;
-import heronarts.lx.utils.LXUtils;
 
 public class LXScheduler extends LXComponent implements LXLoopTask {
 
@@ -67,11 +69,46 @@ public class LXScheduler extends LXComponent implements LXLoopTask {
 
   private File file;
 
-  private LXScheduledProject transitionEntry = null;
+  /**
+   * A project change in progress. The project is read, parsed and has its
+   * classes loaded on a background thread, then it is swapped in at the
+   * start of an engine frame and the output is crossfaded from the final
+   * frame of the previous project.
+   */
+  private class Transition extends Thread {
+
+    private final LXScheduledProject entry;
+    private final File file;
+
+    private JsonObject obj = null;
+    private Exception error = null;
+    private volatile boolean ready = false;
+
+    private boolean loaded = false;
+    private boolean fade;
+    private LXEngine.Frame holdFrame = null;
+    private double progress = 0;
+
+    private Transition(LXScheduledProject entry, File file, boolean fade) {
+      super("LXScheduler Project Loader");
+      setDaemon(true);
+      this.entry = entry;
+      this.file = file;
+      this.fade = fade;
+    }
 
-  private double transitionProgress = 0;
+    @Override
+    public void run() {
+      try {
+        this.obj = lx.readProject(this.file);
+      } catch (Exception x) {
+        this.error = x;
+      }
+      this.ready = true;
+    }
+  }
 
-  private double brightnessLerp = 0;
+  private Transition transition = null;
 
   private final List<LXScheduledProject> mutableEntries = new ArrayList<LXScheduledProject>();
 
@@ -106,7 +143,7 @@ public class LXScheduler extends LXComponent implements LXLoopTask {
   public void onParameterChanged(LXParameter p) {
     super.onParameterChanged(p);
     if (p == this.fade) {
-      if (!this.fade.isOn() && (this.transitionEntry != null)) {
+      if (!this.fade.isOn() && (this.transition != null)) {
         finishTransition();
       }
     }
@@ -193,15 +230,19 @@ public class LXScheduler extends LXComponent implements LXLoopTask {
   }
 
   public boolean isInTransition() {
-    return this.transitionEntry != null;
+    return this.transition != null;
   }
 
   public double getTransitionProgress() {
-    return (this.transitionEntry != null) ? this.transitionProgress : 0;
+    return (this.transition != null) ? this.transition.progress : 0;
   }
 
   @Override
   public void loop(double deltaMs) {
+    if (this.transition != null) {
+      loopTransition(deltaMs);
+    }
+
     if (!this.lx.preferences.schedulerEnabled.isOn()) {
       return;
     }
@@ -209,22 +250,6 @@ public class LXScheduler extends LXComponent implements LXLoopTask {
       return;
     }
 
-    if (this.transitionEntry != null) {
-      double newProgress = this.transitionProgress + deltaMs / (1000 * this.fadeTimeSecs.getValue());
-      if (newProgress < .5) {
-        this.transitionProgress = newProgress;
-        this.lx.engine.output.brightness.setValue(LXUtils.lerp(this.brightnessLerp, 0, 2*newProgress));
-      } else if (newProgress < 1) {
-        if (this.transitionProgress < .5) {
-          switchTransitionProject();
-        }
-        this.lx.engine.output.brightness.setValue(LXUtils.lerp(0, this.brightnessLerp, 2 * (newProgress-.5)));
-        this.transitionProgress = newProgress;
-      } else {
-        finishTransition();
-      }
-    }
-
     long thisFrameSecsOfDay = getTimeSecsOfDay(this.lx.engine.nowMillis);
     long prevFrameSecsOfDay = getTimeSecsOfDay(this.lx.engine.nowMillis - (long) Math.ceil(deltaMs));
     for (LXScheduledProject entry : this.entries) {
@@ -246,36 +271,96 @@ public class LXScheduler extends LXComponent implements LXLoopTask {
     }
   }
 
-  private void startTransition(LXScheduledProject entry) {
-    this.transitionEntry = entry;
-    this.transitionProgress = 0;
-    this.brightnessLerp = this.lx.engine.output.brightness.getValue();
+  private void loopTransition(double deltaMs) {
+    final Transition transition = this.transition;
+    if (!transition.loaded) {
+      // Keep rendering the current project until the next one is ready
+      if (transition.ready) {
+        switchTransitionProject(transition);
+      }
+      return;
+    }
+    transition.progress += deltaMs / (1000 * this.fadeTimeSecs.getValue());
+    if (transition.progress >= 1) {
+      finishTransition();
+    } else {
+      this.lx.engine.setHoldFrame(transition.holdFrame, 1 - transition.progress);
+    }
   }
 
-  private void switchTransitionProject() {
-    this.lx.openProject(this.lx.getMediaFile(LX.Media.PROJECTS, this.transitionEntry.projectFile.getString(), false));
-    this.brightnessLerp = this.lx.engine.output.brightness.getValue();
+  private void startTransition(LXScheduledProject entry, File file, boolean fade) {
+    if (this.transition != null) {
+      finishTransition();
+    }
+    this.transition = new Transition(entry, file, fade);
+    this.transition.start();
   }
 
-  private void finishTransition() {
-    if (this.transitionProgress < .5) {
-      switchTransitionProject();
+  private void switchTransitionProject(Transition transition) {
+    transition.loaded = true;
+    if (transition.error != null) {
+      LX.error(transition.error, "Could not load project file: " + transition.error.getLocalizedMessage());
+      this.lx.pushError(transition.error, "Could not load project file: " + transition.error.getLocalizedMessage());
+      this.transition = null;
+      return;
+    }
+
+    final boolean fade = transition.fade && this.fade.isOn() && (this.fadeTimeSecs.getValue() > 0);
+    if (fade) {
+      // Hold onto the last frame of the outgoing project
+      transition.holdFrame = new LXEngine.Frame(this.lx);
+      this.lx.engine.getFrameNonThreadSafe(transition.holdFrame);
+    }
+
+    this.lx.openProject(transition.file, transition.obj);
+    transition.obj = null;
+
+    if (fade) {
+      if (transition.holdFrame.getMain().length != this.lx.getModel().size) {
+        // Model changed shape, there's nothing to crossfade from, fade in from black
+        transition.holdFrame = new LXEngine.Frame(this.lx);
+        Arrays.fill(transition.holdFrame.getMain(), LXColor.BLACK);
+      }
+      this.lx.engine.setHoldFrame(transition.holdFrame, 1);
     } else {
-      this.lx.engine.output.brightness.setValue(this.brightnessLerp);
+      this.transition = null;
+    }
+  }
+
+  private void finishTransition() {
+    final Transition transition = this.transition;
+    if (transition != null) {
+      if (!transition.loaded) {
+        // Still loading in the background, just skip the fade once ready
+        transition.fade = false;
+        return;
+      }
+      this.lx.engine.setHoldFrame(null, 0);
+      this.transition = null;
     }
-    this.transitionEntry = null;
-    this.transitionProgress = 0;
+  }
+
+  /**
+   * Opens a project without stalling the engine. The file is read and parsed
+   * on a background thread, then the project is swapped in at the start of a
+   * subsequent frame. If fading is enabled, output is crossfaded from the final
+   * frame of the current project into the new one.
+   *
+   * @param file Project file to open
+   */
+  public void openProject(File file) {
+    Objects.requireNonNull(file, "May not LXScheduler.openProject(null)");
+    startTransition(null, file, true);
   }
 
   protected void openEntry(LXScheduledProject entry) {
     String fileName = entry.projectFile.getString();
     if (fileName != null) {
-      if (this.transitionEntry == entry) {
+      if ((this.transition != null) && (this.transition.entry == entry)) {
         finishTransition();
-      } else if (this.enabled.isOn() && this.fade.isOn() && this.fadeTimeSecs.getValue() > 0) {
-        startTransition(entry);
       } else {
-        this.lx.openProject(this.lx.getMediaFile(LX.Media.PROJECTS, fileName, false));
+        boolean fade = this.enabled.isOn() && this.fade.isOn() && this.fadeTimeSecs.getValue() > 0;
+        startTransition(entry, this.lx.getMediaFile(LX.Media.PROJECTS, fileName, false), fade);
       }
     }
   }
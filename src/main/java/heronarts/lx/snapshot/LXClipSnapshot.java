@@ -33,6 +33,7 @@ public class LXClipSnapshot extends LXSnapshot implements LXOscComponent, LXLoop
 
   private boolean inTransition = false;
   private double transitionProgress = 0;
+  private final LXSnapshotTransition transitionPlan = new LXSnapshotTransition();
 
   public LXClipSnapshot(LX lx) {
     super(lx);
@@ -77,9 +78,10 @@ public class LXClipSnapshot extends LXSnapshot implements LXOscComponent, LXLoop
 
   public void recall() {
     boolean transitionEnabled = getSnapshotTransitionEnabledParameter().isOn();
+    this.transitionPlan.clear();
     for (View view : this.views) {
       if (transitionEnabled) {
-        view.startTransition();
+        view.startTransition(this.transitionPlan);
       } else {
         view.recall();
       }
@@ -104,16 +106,16 @@ public class LXClipSnapshot extends LXSnapshot implements LXOscComponent, LXLoop
         for (View view : this.views) {
           view.finishTransition();
         }
+        this.transitionPlan.clear();
         this.inTransition = false;
       } else {
-        for (View view : this.views) {
-          view.interpolate(this.transitionProgress);
-        }
+        this.transitionPlan.interpolate(this.transitionProgress);
       }
     }
   }
 
   public void stopTransition() {
+    this.transitionPlan.clear();
     this.inTransition = false;
   }
 
@@ -163,6 +163,18 @@ public abstract class LXSnapshot extends LXComponent {
       recall();
     }
 
+    /**
+     * Begins a transition and registers whatever needs interpolating with the
+     * compiled transition plan. By default the view is added to the plan as-is
+     * and its interpolate() method is invoked every frame.
+     *
+     * @param transition Transition plan
+     */
+    void startTransition(LXSnapshotTransition transition) {
+      startTransition();
+      transition.addView(this);
+    }
+
     /**
      * Subclasses may override, indicates the progress of a transition
      *
@@ -310,6 +322,20 @@ public abstract class LXSnapshot extends LXComponent {
       }
     }
 
+    @Override
+    void startTransition(LXSnapshotTransition transition) {
+      startTransition();
+      if (this.parameter instanceof StringParameter) {
+        // Recalled immediately, nothing to interpolate
+      } else if (this.parameter instanceof LXNormalizedParameter) {
+        transition.addNormalized((LXNormalizedParameter) this.parameter, this.fromNormalized, this.normalizedValue);
+      } else if (this.parameter instanceof DiscreteParameter) {
+        transition.addView(this);
+      } else {
+        transition.addValue(this.parameter, this.fromValue, this.value);
+      }
+    }
+
     @Override
     protected void interpolate(double amount) {
       if (this.parameter instanceof StringParameter) {
@@ -424,6 +450,12 @@ public abstract class LXSnapshot extends LXComponent {
       }
     }
 
+    @Override
+    void startTransition(LXSnapshotTransition transition) {
+      startTransition();
+      transition.addValue(this.channel.fader, this.fromFader, this.toFader);
+    }
+
     @Override
     protected void interpolate(double amount) {
       this.channel.fader.setValue(LXUtils.lerp(this.fromFader, this.toFader, amount));
@@ -483,6 +515,12 @@ public abstract class LXSnapshot extends LXComponent {
       this.channel.goPatternIndex(this.activePatternIndex);
     }
 
+    @Override
+    void startTransition(LXSnapshotTransition transition) {
+      // Pattern switch happens up front, nothing to interpolate
+      startTransition();
+    }
+
     private static final String KEY_CHANNEL_PATH = "channelPath";
     private static final String KEY_ACTIVE_PATTERN_INDEX = "activePatternIndex";
 
@@ -46,7 +46,6 @@ import heronarts.lx.parameter.EnumParameter;
 import heronarts.lx.parameter.FunctionalParameter;
 import heronarts.lx.parameter.LXParameter;
 import heronarts.lx.snapshot.LXSnapshot.View;
-import heronarts.lx.utils.LXUtils;
 
 /**
  * The snapshot engine stores snapshots in time of the state of project settings. This includes
@@ -406,6 +405,8 @@ public class LXSnapshotEngine extends LXComponent implements LXOscComponent, LXL
   private final List<LXSnapshot.View> recallViews =
     new ArrayList<LXSnapshot.View>();
 
+  private final LXSnapshotTransition transitionPlan = new LXSnapshotTransition();
+
   /**
    * Recall this snapshot, apply all of its values
    *
@@ -444,6 +445,7 @@ public class LXSnapshotEngine extends LXComponent implements LXOscComponent, LXL
     this.autoCycleCursor.setValue(snapshot.getIndex());
     this.recallViews.clear();
     this.recallViews.addAll(snapshot.views);
+    this.transitionPlan.clear();
     if (this.transitionEnabled.isOn()) {
       transition = true;
       this.inTransition = snapshot;
@@ -461,7 +463,7 @@ public class LXSnapshotEngine extends LXComponent implements LXOscComponent, LXL
     for (View view : this.recallViews) {
       if (view.activeFlag = isValidView(view, mixer, pattern, effect, modulation, output)) {
         if (transition) {
-          view.startTransition();
+          view.startTransition(this.transitionPlan);
         } else {
           view.recall();
         }
@@ -522,11 +524,7 @@ public class LXSnapshotEngine extends LXComponent implements LXOscComponent, LXL
       if (this.transition.finished()) {
         finishTransition();
       } else {
-        for (View view : this.recallViews) {
-          if (view.activeFlag) {
-            view.interpolate(this.transition.getValue());
-          }
-        }
+        this.transitionPlan.interpolate(this.transition.getValue());
       }
       this.autoCycleProgress = 0;
     } else if (this.autoCycleEnabled.isOn()) {
@@ -550,6 +548,7 @@ public class LXSnapshotEngine extends LXComponent implements LXOscComponent, LXL
           view.finishTransition();
         }
       }
+      this.transitionPlan.clear();
       this.inTransition = null;
     }
   }
@@ -589,7 +588,7 @@ public class LXSnapshotEngine extends LXComponent implements LXOscComponent, LXL
     }
     int numEligible = eligible.size();
     if (numEligible > 0) {
-      LXGlobalSnapshot random = eligible.get(LXUtils.constrain((int) LXUtils.random(0, numEligible), 0, numEligible - 1));
+      LXGlobalSnapshot random = eligible.get(getRandom().nextInt(numEligible));
       recall(random);
     }
   }
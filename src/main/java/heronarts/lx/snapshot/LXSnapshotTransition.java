@@ -0,0 +1,145 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.lx.snapshot;
+
+import java.util.Arrays;
+
+import heronarts.lx.parameter.LXNormalizedParameter;
+import heronarts.lx.parameter.LXParameter;
+
+/**
+ * Compiled plan for an interpolated snapshot transition. When a transition
+ * starts, each view resolves its target and start value once and registers a
+ * flat (parameter, from, to) entry here. Values that are already at their
+ * target are dropped at that point. Every frame of the transition is then a
+ * single pass over primitive arrays rather than a walk over all of the views.
+ *
+ * Views that have nothing to interpolate, such as an active pattern change,
+ * apply themselves when the transition starts and register nothing.
+ */
+class LXSnapshotTransition {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private LXParameter[] parameters = new LXParameter[INITIAL_CAPACITY];
+  private boolean[] normalized = new boolean[INITIAL_CAPACITY];
+  private double[] from = new double[INITIAL_CAPACITY];
+  private double[] to = new double[INITIAL_CAPACITY];
+  private int size = 0;
+
+  private LXSnapshot.View[] views = new LXSnapshot.View[0];
+  private int numViews = 0;
+
+  /**
+   * Registers a parameter to be interpolated in normalized space
+   *
+   * @param parameter Parameter
+   * @param from Normalized value at the start of the transition
+   * @param to Normalized target value
+   */
+  void addNormalized(LXNormalizedParameter parameter, double from, double to) {
+    add(parameter, true, from, to);
+  }
+
+  /**
+   * Registers a parameter to be interpolated by raw value
+   *
+   * @param parameter Parameter
+   * @param from Value at the start of the transition
+   * @param to Target value
+   */
+  void addValue(LXParameter parameter, double from, double to) {
+    add(parameter, false, from, to);
+  }
+
+  private void add(LXParameter parameter, boolean normalized, double from, double to) {
+    if (from == to) {
+      // Already there, the view's finishTransition() will still settle it
+      return;
+    }
+    if (this.size == this.parameters.length) {
+      final int capacity = this.size * 2;
+      this.parameters = Arrays.copyOf(this.parameters, capacity);
+      this.normalized = Arrays.copyOf(this.normalized, capacity);
+      this.from = Arrays.copyOf(this.from, capacity);
+      this.to = Arrays.copyOf(this.to, capacity);
+    }
+    this.parameters[this.size] = parameter;
+    this.normalized[this.size] = normalized;
+    this.from[this.size] = from;
+    this.to[this.size] = to;
+    ++this.size;
+  }
+
+  /**
+   * Registers a view that cannot be compiled, its interpolate() method
+   * will be invoked every frame.
+   *
+   * @param view View
+   */
+  void addView(LXSnapshot.View view) {
+    if (this.numViews == this.views.length) {
+      this.views = Arrays.copyOf(this.views, Math.max(4, this.numViews * 2));
+    }
+    this.views[this.numViews++] = view;
+  }
+
+  /**
+   * Number of compiled parameter entries in this transition
+   *
+   * @return Number of interpolated parameters
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Applies one frame of the transition
+   *
+   * @param amount Transition progress, from 0 to 1
+   */
+  void interpolate(double amount) {
+    final LXParameter[] parameters = this.parameters;
+    final boolean[] normalized = this.normalized;
+    final double[] from = this.from;
+    final double[] to = this.to;
+    for (int i = 0; i < this.size; ++i) {
+      final double value = from[i] + (to[i] - from[i]) * amount;
+      if (normalized[i]) {
+        ((LXNormalizedParameter) parameters[i]).setNormalized(value);
+      } else {
+        parameters[i].setValue(value);
+      }
+    }
+    for (int i = 0; i < this.numViews; ++i) {
+      this.views[i].interpolate(amount);
+    }
+  }
+
+  /**
+   * Empties the plan, releasing references to all parameters and views
+   */
+  void clear() {
+    Arrays.fill(this.parameters, 0, this.size, null);
+    Arrays.fill(this.views, 0, this.numViews, null);
+    this.size = 0;
+    this.numViews = 0;
+  }
+
+}
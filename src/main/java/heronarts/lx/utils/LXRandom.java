@@ -0,0 +1,211 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ * @author Mark C. Slee <mark@heronarts.com>
+ */
+
+package heronarts.lx.utils;
+
+/**
+ * Fast, seedable pseudo-random number generator (xoroshiro128+, seeded via
+ * splitmix64). Unlike Math.random() there is no shared state, so components
+ * rendering on different threads never contend with each other, and a fixed
+ * seed gives identical output from run to run.
+ *
+ * Instances are not thread-safe. Each component should use its own, see
+ * LXComponent.getRandom().
+ */
+public class LXRandom {
+
+  private static final double DOUBLE_UNIT = 0x1.0p-53;
+  private static final float FLOAT_UNIT = 0x1.0p-24f;
+
+  private long s0;
+  private long s1;
+
+  /**
+   * Creates a generator with an arbitrary seed
+   */
+  public LXRandom() {
+    this(System.nanoTime());
+  }
+
+  /**
+   * Creates a generator with the given seed
+   *
+   * @param seed Seed value
+   */
+  public LXRandom(long seed) {
+    setSeed(seed);
+  }
+
+  /**
+   * Resets the generator to the sequence for the given seed
+   *
+   * @param seed Seed value
+   * @return this
+   */
+  public LXRandom setSeed(long seed) {
+    this.s0 = mix(seed);
+    this.s1 = mix(seed + 0x9E3779B97F4A7C15L);
+    if ((this.s0 | this.s1) == 0) {
+      this.s1 = 1;
+    }
+    return this;
+  }
+
+  /**
+   * Scrambles a 64-bit value using the splitmix64 finalizer. Useful for deriving
+   * independent seeds from related inputs, like a base seed and a component id.
+   *
+   * @param z Input value
+   * @return Scrambled value
+   */
+  public static long mix(long z) {
+    z += 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Next random 64-bit value
+   *
+   * @return Random long
+   */
+  public long nextLong() {
+    final long s0 = this.s0;
+    long s1 = this.s1;
+    final long result = s0 + s1;
+    s1 ^= s0;
+    this.s0 = Long.rotateLeft(s0, 24) ^ s1 ^ (s1 << 16);
+    this.s1 = Long.rotateLeft(s1, 37);
+    return result;
+  }
+
+  /**
+   * Next random 32-bit value
+   *
+   * @return Random int
+   */
+  public int nextInt() {
+    return (int) (nextLong() >>> 32);
+  }
+
+  /**
+   * Random integer in the range [0, bound)
+   *
+   * @param bound Upper bound, exclusive, must be positive
+   * @return Random integer
+   */
+  public int nextInt(int bound) {
+    if (bound <= 0) {
+      throw new IllegalArgumentException("LXRandom bound must be positive: " + bound);
+    }
+    // Lemire's multiply-shift, the tiny bias is irrelevant for our purposes
+    return (int) (((nextLong() >>> 32) * bound) >>> 32);
+  }
+
+  /**
+   * Random value in the range [0, 1)
+   *
+   * @return Random double
+   */
+  public double nextDouble() {
+    return (nextLong() >>> 11) * DOUBLE_UNIT;
+  }
+
+  /**
+   * Random value in the range [0, 1)
+   *
+   * @return Random float
+   */
+  public float nextFloat() {
+    return (nextLong() >>> 40) * FLOAT_UNIT;
+  }
+
+  /**
+   * Random value in the range [min, max)
+   *
+   * @param min Minimum value
+   * @param max Maximum value
+   * @return Random double
+   */
+  public double random(double min, double max) {
+    return min + nextDouble() * (max - min);
+  }
+
+  /**
+   * Fills an array with random values in the range [0, 1)
+   *
+   * @param values Array to fill
+   * @param count Number of values to fill
+   */
+  public void fill(double[] values, int count) {
+    long s0 = this.s0, s1 = this.s1;
+    for (int i = 0; i < count; ++i) {
+      values[i] = ((s0 + s1) >>> 11) * DOUBLE_UNIT;
+      s1 ^= s0;
+      s0 = Long.rotateLeft(s0, 24) ^ s1 ^ (s1 << 16);
+      s1 = Long.rotateLeft(s1, 37);
+    }
+    this.s0 = s0;
+    this.s1 = s1;
+  }
+
+  /**
+   * Fills an array with random values in the range [min, max)
+   *
+   * @param values Array to fill
+   * @param min Minimum value
+   * @param max Maximum value
+   * @param count Number of values to fill
+   */
+  public void fill(float[] values, float min, float max, int count) {
+    final float range = max - min;
+    long s0 = this.s0, s1 = this.s1;
+    for (int i = 0; i < count; ++i) {
+      values[i] = min + range * (((s0 + s1) >>> 40) * FLOAT_UNIT);
+      s1 ^= s0;
+      s0 = Long.rotateLeft(s0, 24) ^ s1 ^ (s1 << 16);
+      s1 = Long.rotateLeft(s1, 37);
+    }
+    this.s0 = s0;
+    this.s1 = s1;
+  }
+
+  /**
+   * Fills an array with random integers in the range [0, bound)
+   *
+   * @param values Array to fill
+   * @param bound Upper bound, exclusive, must be positive
+   * @param count Number of values to fill
+   */
+  public void fill(int[] values, int bound, int count) {
+    if (bound <= 0) {
+      throw new IllegalArgumentException("LXRandom bound must be positive: " + bound);
+    }
+    long s0 = this.s0, s1 = this.s1;
+    for (int i = 0; i < count; ++i) {
+      values[i] = (int) ((((s0 + s1) >>> 32) * bound) >>> 32);
+      s1 ^= s0;
+      s0 = Long.rotateLeft(s0, 24) ^ s1 ^ (s1 << 16);
+      s1 = Long.rotateLeft(s1, 37);
+    }
+    this.s0 = s0;
+    this.s1 = s1;
+  }
+
+}
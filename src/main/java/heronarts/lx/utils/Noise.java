@@ -324,4 +324,224 @@ public class Noise {
 
     return stb__perlin_lerp(n0,n1,u);
   }
+
+  private static void stb__perlin_corner(float[] g, int offset, int grad_idx)
+  {
+    float[] grad = stb__perlin_grad_basis[grad_idx];
+    g[offset] = grad[0];
+    g[offset+1] = grad[1];
+    g[offset+2] = grad[2];
+  }
+
+  /**
+   * Evaluates noise over whole arrays of coordinates, giving the same results as
+   * the per-point functions above. Inputs are separate x, y and z arrays and
+   * output is a float array. The lattice cell hashing is only redone when a point
+   * falls in a different cell from the point before it, so ordering points
+   * spatially (as models generally are) skips most of the table lookups.
+   * Octave variants work a whole octave at a time over all points.
+   *
+   * An instance keeps scratch buffers and is not thread-safe. Each caller
+   * should hold its own.
+   */
+  public static class Batch {
+
+    private float[] fx = new float[0];
+    private float[] fy = new float[0];
+    private float[] fz = new float[0];
+    private float[] octave = new float[0];
+    private float[] prev = new float[0];
+
+    private void ensureCapacity(int count) {
+      if (this.fx.length < count) {
+        this.fx = new float[count];
+        this.fy = new float[count];
+        this.fz = new float[count];
+        this.octave = new float[count];
+        this.prev = new float[count];
+      }
+    }
+
+    /**
+     * Perlin noise, equivalent to stb_perlin_noise3_seed with no wrapping
+     *
+     * @param x X coordinates
+     * @param y Y coordinates
+     * @param z Z coordinates
+     * @param out Output values
+     * @param count Number of points to evaluate
+     * @param seed Seed value
+     */
+    public void noise3(float[] x, float[] y, float[] z, float[] out, int count, int seed) {
+      noise3_internal(x, y, z, out, count, seed);
+    }
+
+    /**
+     * Ridge noise, equivalent to stb_perlin_ridge_noise3
+     *
+     * @param x X coordinates
+     * @param y Y coordinates
+     * @param z Z coordinates
+     * @param out Output values
+     * @param count Number of points to evaluate
+     * @param lacunarity Spacing between successive octaves
+     * @param gain Relative weighting applied to each successive octave
+     * @param offset Used to invert the ridges
+     * @param octaves Number of octaves
+     */
+    public void ridge3(float[] x, float[] y, float[] z, float[] out, int count, float lacunarity, float gain, float offset, int octaves) {
+      ensureCapacity(count);
+      final float[] octave = this.octave;
+      final float[] prev = this.prev;
+      for (int i = 0; i < count; ++i) {
+        out[i] = 0;
+        prev[i] = 1.0f;
+      }
+      float frequency = 1.0f;
+      float amplitude = 0.5f;
+      for (int o = 0; o < octaves; ++o) {
+        scale(x, y, z, count, frequency);
+        noise3_internal(this.fx, this.fy, this.fz, octave, count, o);
+        for (int i = 0; i < count; ++i) {
+          float r = offset - Math.abs(octave[i]);
+          r = r*r;
+          out[i] += r*amplitude*prev[i];
+          prev[i] = r;
+        }
+        frequency *= lacunarity;
+        amplitude *= gain;
+      }
+    }
+
+    /**
+     * Fractal brownian motion noise, equivalent to stb_perlin_fbm_noise3
+     *
+     * @param x X coordinates
+     * @param y Y coordinates
+     * @param z Z coordinates
+     * @param out Output values
+     * @param count Number of points to evaluate
+     * @param lacunarity Spacing between successive octaves
+     * @param gain Relative weighting applied to each successive octave
+     * @param octaves Number of octaves
+     */
+    public void fbm3(float[] x, float[] y, float[] z, float[] out, int count, float lacunarity, float gain, int octaves) {
+      octaves(x, y, z, out, count, lacunarity, gain, octaves, false);
+    }
+
+    /**
+     * Turbulence noise, equivalent to stb_perlin_turbulence_noise3
+     *
+     * @param x X coordinates
+     * @param y Y coordinates
+     * @param z Z coordinates
+     * @param out Output values
+     * @param count Number of points to evaluate
+     * @param lacunarity Spacing between successive octaves
+     * @param gain Relative weighting applied to each successive octave
+     * @param octaves Number of octaves
+     */
+    public void turbulence3(float[] x, float[] y, float[] z, float[] out, int count, float lacunarity, float gain, int octaves) {
+      octaves(x, y, z, out, count, lacunarity, gain, octaves, true);
+    }
+
+    private void octaves(float[] x, float[] y, float[] z, float[] out, int count, float lacunarity, float gain, int octaves, boolean abs) {
+      ensureCapacity(count);
+      final float[] octave = this.octave;
+      for (int i = 0; i < count; ++i) {
+        out[i] = 0;
+      }
+      float frequency = 1.0f;
+      float amplitude = 1.0f;
+      for (int o = 0; o < octaves; ++o) {
+        scale(x, y, z, count, frequency);
+        noise3_internal(this.fx, this.fy, this.fz, octave, count, o);
+        if (abs) {
+          for (int i = 0; i < count; ++i) {
+            out[i] += Math.abs(octave[i]*amplitude);
+          }
+        } else {
+          for (int i = 0; i < count; ++i) {
+            out[i] += octave[i]*amplitude;
+          }
+        }
+        frequency *= lacunarity;
+        amplitude *= gain;
+      }
+    }
+
+    private void scale(float[] x, float[] y, float[] z, int count, float frequency) {
+      final float[] fx = this.fx, fy = this.fy, fz = this.fz;
+      for (int i = 0; i < count; ++i) {
+        fx[i] = x[i]*frequency;
+        fy[i] = y[i]*frequency;
+        fz[i] = z[i]*frequency;
+      }
+    }
+  }
+
+  private static void noise3_internal(float[] xs, float[] ys, float[] zs, float[] out, int count, int seed)
+  {
+    final int[] randtab = stb__perlin_randtab;
+    final byte[] gradtab = stb__perlin_randtab_grad_idx;
+
+    // Gradient vectors of the current lattice cell's eight corners, in
+    // x, y, z order for corners 000, 001, 010, 011, 100, 101, 110, 111
+    final float[] g = new float[24];
+    int cx = 0, cy = 0, cz = 0;
+    boolean hasCell = false;
+
+    for (int i = 0; i < count; ++i) {
+      float x = xs[i], y = ys[i], z = zs[i];
+      int px = stb__perlin_fastfloor(x);
+      int py = stb__perlin_fastfloor(y);
+      int pz = stb__perlin_fastfloor(z);
+
+      if (!hasCell || (px != cx) || (py != cy) || (pz != cz)) {
+        cx = px; cy = py; cz = pz;
+        hasCell = true;
+        int x0 = px & 0xff, x1 = (px+1) & 0xff;
+        int y0 = py & 0xff, y1 = (py+1) & 0xff;
+        int z0 = pz & 0xff, z1 = (pz+1) & 0xff;
+        int r0 = randtab[x0+seed];
+        int r1 = randtab[x1+seed];
+        int r00 = randtab[r0+y0];
+        int r01 = randtab[r0+y1];
+        int r10 = randtab[r1+y0];
+        int r11 = randtab[r1+y1];
+        stb__perlin_corner(g, 0, gradtab[r00+z0]);
+        stb__perlin_corner(g, 3, gradtab[r00+z1]);
+        stb__perlin_corner(g, 6, gradtab[r01+z0]);
+        stb__perlin_corner(g, 9, gradtab[r01+z1]);
+        stb__perlin_corner(g, 12, gradtab[r10+z0]);
+        stb__perlin_corner(g, 15, gradtab[r10+z1]);
+        stb__perlin_corner(g, 18, gradtab[r11+z0]);
+        stb__perlin_corner(g, 21, gradtab[r11+z1]);
+      }
+
+      x -= px; float u = stb__perlin_ease(x);
+      y -= py; float v = stb__perlin_ease(y);
+      z -= pz; float w = stb__perlin_ease(z);
+      float x1 = x-1, y1 = y-1, z1 = z-1;
+
+      float n000 = g[0]*x   + g[1]*y   + g[2]*z;
+      float n001 = g[3]*x   + g[4]*y   + g[5]*z1;
+      float n010 = g[6]*x   + g[7]*y1  + g[8]*z;
+      float n011 = g[9]*x   + g[10]*y1 + g[11]*z1;
+      float n100 = g[12]*x1 + g[13]*y  + g[14]*z;
+      float n101 = g[15]*x1 + g[16]*y  + g[17]*z1;
+      float n110 = g[18]*x1 + g[19]*y1 + g[20]*z;
+      float n111 = g[21]*x1 + g[22]*y1 + g[23]*z1;
+
+      float n00 = n000 + (n001-n000) * w;
+      float n01 = n010 + (n011-n010) * w;
+      float n10 = n100 + (n101-n100) * w;
+      float n11 = n110 + (n111-n110) * w;
+
+      float n0 = n00 + (n01-n00) * v;
+      float n1 = n10 + (n11-n10) * v;
+
+      out[i] = n0 + (n1-n0) * u;
+    }
+  }
 }
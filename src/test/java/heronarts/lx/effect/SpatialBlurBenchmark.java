@@ -0,0 +1,153 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ */
+
+package heronarts.lx.effect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import heronarts.lx.color.LXColor;
+import heronarts.lx.model.GridModel;
+import heronarts.lx.model.LXModel;
+import heronarts.lx.model.LXPoint;
+import heronarts.lx.model.SpatialKernel;
+
+/**
+ * Benchmark of building and applying SpatialKernels on large models, a grid
+ * and a cloud of randomly placed points, over a range of blur radii up to the
+ * maximum of the SpatialBlurEffect radius parameter. Points stacked into two
+ * coincident clusters, which no radius can separate, cover the worst case. Also checks that no
+ * kernel exceeds the per-point entry limit and that a flat color stays flat,
+ * exiting with a non-zero status if not.
+ *
+ * Usage: SpatialBlurBenchmark [numPoints]
+ */
+public class SpatialBlurBenchmark {
+
+  private static final int FRAMES = 50;
+
+  private static final double[] RADII = { .005, .02, .1, .5 };
+
+  private static int failures = 0;
+
+  private interface KernelFactory {
+    SpatialKernel build(float radius);
+  }
+
+  public static void main(String[] args) {
+    final int numPoints = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+
+    final int width = (int) Math.round(Math.sqrt(numPoints));
+    final GridModel grid = new GridModel(width, width);
+    final LXModel cloud = cloud(numPoints);
+    System.out.println("Grid " + width + "x" + width + ", cloud of " + numPoints + " points");
+
+    for (double radius : RADII) {
+      final float gridRadius = (float) radius * Math.max(grid.xRange, grid.yRange);
+      final float cloudRadius = (float) radius * Math.max(cloud.xRange, Math.max(cloud.yRange, cloud.zRange));
+      System.out.format("Radius %.3f\n", radius);
+      run("grid, radius", grid, r -> SpatialKernel.radius(grid, r), gridRadius);
+      run("grid, separable", grid, r -> SpatialKernel.grid(grid, r), gridRadius);
+      run("cloud, radius", cloud, r -> SpatialKernel.radius(cloud, r), cloudRadius);
+    }
+    System.out.println("Strip");
+    run("grid, 4 pixels", grid, r -> SpatialKernel.strip(grid, 4), 0);
+
+    final LXModel clusters = clusters(numPoints);
+    System.out.println("Coincident clusters");
+    run("clusters, radius", clusters, r -> SpatialKernel.radius(clusters, r), .1f);
+
+    if (failures > 0) {
+      System.out.println(failures + " checks failed");
+      System.exit(1);
+    }
+    System.exit(0);
+  }
+
+  private static LXModel cloud(int numPoints) {
+    final Random random = new Random(1);
+    final List<LXPoint> points = new ArrayList<LXPoint>(numPoints);
+    for (int i = 0; i < numPoints; ++i) {
+      points.add(new LXPoint(random.nextFloat(), random.nextFloat(), random.nextFloat()));
+    }
+    return new LXModel(points);
+  }
+
+  private static LXModel clusters(int numPoints) {
+    final List<LXPoint> points = new ArrayList<LXPoint>(numPoints);
+    for (int i = 0; i < numPoints; ++i) {
+      points.add(new LXPoint(i % 2, 0, 0));
+    }
+    return new LXModel(points);
+  }
+
+  private static void run(String label, LXModel model, KernelFactory factory, float radius) {
+    long start = System.nanoTime();
+    final SpatialKernel kernel = factory.build(radius);
+    final long buildNanos = System.nanoTime() - start;
+
+    // Point indices carry on from model to model, size buffers to cover them
+    int bufferSize = 0;
+    for (LXPoint p : model.points) {
+      bufferSize = Math.max(bufferSize, p.index + 1);
+    }
+    final int[] src = new int[bufferSize];
+    final int[] dst = new int[bufferSize];
+    final Random random = new Random(1);
+    for (int i = 0; i < src.length; ++i) {
+      src[i] = LXColor.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+    }
+    for (int f = 0; f < FRAMES; ++f) {
+      kernel.apply(src, dst);
+    }
+    start = System.nanoTime();
+    for (int f = 0; f < FRAMES; ++f) {
+      kernel.apply(src, dst);
+    }
+    final long applyNanos = System.nanoTime() - start;
+
+    System.out.format("  %-16s build: %8.1fms  apply: %7.2fms/frame  entries/point: %5.1f%s\n",
+      label,
+      buildNanos / 1000000.,
+      applyNanos / 1000000. / FRAMES,
+      kernel.getEntryCount() / (double) kernel.size(),
+      kernel.isSeparable() ? " (2 passes)" : ""
+    );
+
+    final int maxEntries = SpatialKernel.MAX_ENTRIES_PER_POINT * (kernel.isSeparable() ? 2 : 1);
+    check(kernel.getEntryCount() <= (long) maxEntries * kernel.size(), label + " stays within " + maxEntries + " entries per point");
+
+    final int flat = LXColor.rgb(200, 100, 50);
+    Arrays.fill(src, flat);
+    kernel.apply(src, dst);
+    for (LXPoint p : model.points) {
+      if (dst[p.index] != flat) {
+        check(false, label + " keeps a flat color flat");
+        break;
+      }
+    }
+  }
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      System.out.println("  FAIL " + message);
+      ++failures;
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ */
+
+package heronarts.lx.headless;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import heronarts.lx.LX;
+import heronarts.lx.LXOfflineRender;
+import heronarts.lx.audio.BeatTracker;
+import heronarts.lx.audio.LXAudioFileSource;
+import heronarts.lx.audio.OnsetDetect;
+import heronarts.lx.model.GridModel;
+
+/**
+ * Offline check of onset detection and beat tracking. Click tracks at known
+ * tempos are written to WAV files, then rendered through the audio engine with
+ * an LXAudioFileSource, and the detected onset times and tempo are compared to
+ * the clicks. Exits with a non-zero status if any check fails.
+ *
+ * Optionally pass WAV files with their expected BPM on the command line, as
+ * file.wav:bpm, to check the tempo detected on real recordings.
+ */
+public class OfflineBeatTracking {
+
+  private static final int SAMPLE_RATE = 44100;
+
+  // Onsets are reported at analysis hop resolution, allow two hops of error
+  private static final double ONSET_TOLERANCE_MS = 2 * 512 * 1000. / SAMPLE_RATE;
+
+  private static final double BPM_TOLERANCE = 2;
+
+  private static int failures = 0;
+
+  private static class Result {
+    private final List<Long> onsets = new ArrayList<Long>();
+    private int onsetDetectCount = 0;
+    private boolean onsetDetectShared = false;
+    private double bpm = 0;
+  }
+
+  public static void main(String[] args) throws Exception {
+    final LX lx = new LX(new GridModel(4, 4));
+    try {
+      for (double bpm : new double[] { 96, 120, 140 }) {
+        final File file = File.createTempFile("lx-clicks-" + (int) bpm, ".wav");
+        file.deleteOnExit();
+        final List<Long> clicks = writeClickTrack(file, bpm, 20);
+        final Result result = track(lx, file, false);
+        checkTempo(file.getName(), bpm, result.bpm);
+        checkOnsets(file.getName(), clicks, result.onsets);
+        check(result.onsetDetectShared, "OnsetDetect shares the engine beat tracker");
+        check(result.onsetDetectCount == result.onsets.size(), "OnsetDetect fired " + result.onsetDetectCount + " times for " + result.onsets.size() + " onsets at equal sensitivity");
+
+        // A different BPM range requires a private tracker, which must agree
+        final Result custom = track(lx, file, true);
+        check(!custom.onsetDetectShared, "OnsetDetect with custom BPM range runs its own beat tracker");
+        check(custom.onsetDetectCount == result.onsetDetectCount, "OnsetDetect with own beat tracker fired " + custom.onsetDetectCount + " times, shared fired " + result.onsetDetectCount);
+      }
+      for (String arg : args) {
+        final int separator = arg.lastIndexOf(':');
+        final File file = new File(arg.substring(0, separator));
+        final double bpm = Double.parseDouble(arg.substring(separator + 1));
+        checkTempo(file.getName(), bpm, track(lx, file, false).bpm);
+      }
+    } finally {
+      lx.dispose();
+    }
+    if (failures > 0) {
+      System.out.println(failures + " checks failed");
+      System.exit(1);
+    }
+    System.out.println("All checks passed");
+    System.exit(0);
+  }
+
+  /**
+   * Writes a mono click track, decaying noise bursts on every beat over a
+   * quiet noise floor, and returns the sample positions of the clicks
+   */
+  private static List<Long> writeClickTrack(File file, double bpm, double seconds) throws Exception {
+    final Random random = new Random(1);
+    final int numSamples = (int) (seconds * SAMPLE_RATE);
+    final double samplesPerBeat = 60. * SAMPLE_RATE / bpm;
+    final int clickSamples = SAMPLE_RATE / 20;
+    final List<Long> clicks = new ArrayList<Long>();
+    final byte[] bytes = new byte[numSamples * 2];
+    final double start = .25 * SAMPLE_RATE;
+    for (double beat = start; beat < numSamples - clickSamples; beat += samplesPerBeat) {
+      clicks.add(Math.round(beat));
+    }
+    int click = 0;
+    for (int i = 0; i < numSamples; ++i) {
+      double sample = .005 * random.nextGaussian();
+      if (click < clicks.size()) {
+        long offset = i - clicks.get(click);
+        if (offset >= clickSamples) {
+          ++click;
+        } else if (offset >= 0) {
+          sample += .5 * random.nextGaussian() * Math.exp(-offset / (.008 * SAMPLE_RATE));
+        }
+      }
+      short value = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(sample * 32767)));
+      bytes[2*i] = (byte) (value & 0xff);
+      bytes[2*i + 1] = (byte) (value >> 8);
+    }
+    final AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);
+    AudioSystem.write(
+      new AudioInputStream(new ByteArrayInputStream(bytes), format, numSamples),
+      AudioFileFormat.Type.WAVE,
+      file
+    );
+    return clicks;
+  }
+
+  private static Result track(LX lx, File file, boolean customRange) throws Exception {
+    final Result result = new Result();
+    final BeatTracker tracker = lx.engine.audio.beatTracker;
+    // Buffer positions carry on across files, make onsets relative to this one
+    final long start = lx.engine.audio.input.mix.getWritePosition();
+    final OnsetDetect onsetDetect = new OnsetDetect(lx);
+    if (customRange) {
+      onsetDetect.minBpm.setValue(60);
+    }
+    lx.engine.modulation.addModulator(onsetDetect);
+    onsetDetect.start();
+    final BeatTracker.Listener listener = new BeatTracker.Listener() {
+      @Override
+      public void onOnset(BeatTracker tracker, long position) {
+        result.onsets.add(position - start);
+      }
+    };
+    tracker.addListener(listener);
+    try {
+      final LXAudioFileSource audio = new LXAudioFileSource(file);
+      new LXOfflineRender(lx, 1000 / 60.).setAudio(audio).renderAudio((frameIndex, frame) -> {
+        if (onsetDetect.onset.isOn()) {
+          ++result.onsetDetectCount;
+        }
+      });
+      audio.close();
+      result.bpm = tracker.getBpm();
+      result.onsetDetectShared = (onsetDetect.getBeatTracker() == tracker);
+    } finally {
+      tracker.removeListener(listener);
+      lx.engine.modulation.removeModulator(onsetDetect);
+    }
+    return result;
+  }
+
+  private static void checkTempo(String name, double expected, double bpm) {
+    check(Math.abs(bpm - expected) <= BPM_TOLERANCE, String.format("%s: tracked %.2f BPM, expected %.2f", name, bpm, expected));
+  }
+
+  private static void checkOnsets(String name, List<Long> clicks, List<Long> onsets) {
+    final double tolerance = ONSET_TOLERANCE_MS * SAMPLE_RATE / 1000.;
+    int matched = 0;
+    double maxErrorMs = 0;
+    int onset = 0;
+    for (long click : clicks) {
+      while (onset < onsets.size() && onsets.get(onset) < click - tolerance) {
+        ++onset;
+      }
+      if (onset < onsets.size() && Math.abs(onsets.get(onset) - click) <= tolerance) {
+        maxErrorMs = Math.max(maxErrorMs, Math.abs(onsets.get(onset) - click) * 1000. / SAMPLE_RATE);
+        ++matched;
+        ++onset;
+      }
+    }
+    check(matched == clicks.size(), String.format("%s: matched %d of %d clicks, max error %.1fms", name, matched, clicks.size(), maxErrorMs));
+    check(onsets.size() == matched, String.format("%s: %d spurious onsets", name, onsets.size() - matched));
+  }
+
+  private static void check(boolean condition, String message) {
+    System.out.println((condition ? "PASS " : "FAIL ") + message);
+    if (!condition) {
+      ++failures;
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ */
+
+package heronarts.lx.snapshot;
+
+import java.util.Random;
+
+import heronarts.lx.LX;
+import heronarts.lx.model.GridModel;
+import heronarts.lx.parameter.CompoundParameter;
+import heronarts.lx.pattern.LXPattern;
+
+/**
+ * Benchmark of a snapshot transition over 1000 pattern parameters. Compares
+ * the compiled LXSnapshotTransition plan against walking every view and
+ * calling its interpolate() method each frame, which is how transitions ran
+ * before plans were compiled.
+ *
+ * Usage: SnapshotTransitionBenchmark [numParameters] [changedFraction]
+ */
+public class SnapshotTransitionBenchmark {
+
+  private static final int WARMUP_FRAMES = 20000;
+  private static final int FRAMES = 20000;
+
+  public static class ParameterPattern extends LXPattern {
+
+    public final CompoundParameter[] knobs;
+
+    public ParameterPattern(LX lx, int numParameters) {
+      super(lx);
+      this.knobs = new CompoundParameter[numParameters];
+      for (int i = 0; i < numParameters; ++i) {
+        this.knobs[i] = new CompoundParameter("Knob " + i, 0);
+        addParameter("knob-" + i, this.knobs[i]);
+      }
+    }
+
+    @Override
+    protected void run(double deltaMs) {}
+  }
+
+  public static void main(String[] args) {
+    final int numParameters = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+    final double changedFraction = (args.length > 1) ? Double.parseDouble(args[1]) : 1;
+
+    final LX lx = new LX(new GridModel(4, 4));
+    final ParameterPattern pattern = new ParameterPattern(lx, numParameters);
+    lx.engine.mixer.addChannel(new LXPattern[] { pattern });
+
+    final Random random = new Random(1);
+    for (CompoundParameter knob : pattern.knobs) {
+      knob.setValue(random.nextDouble());
+    }
+    final LXGlobalSnapshot snapshot = lx.engine.snapshots.addSnapshot();
+    for (CompoundParameter knob : pattern.knobs) {
+      if (random.nextDouble() < changedFraction) {
+        knob.setValue(random.nextDouble());
+      }
+    }
+
+    // Start the transition on every view, registering with a compiled plan
+    final LXSnapshotTransition plan = new LXSnapshotTransition();
+    int numViews = 0;
+    for (LXSnapshot.View view : snapshot.views) {
+      view.startTransition(plan);
+      ++numViews;
+    }
+    System.out.println(numViews + " views, " + plan.size() + " compiled entries");
+
+    long views = 0, compiled = 0;
+    for (int pass = 0; pass < 2; ++pass) {
+      final int frames = (pass == 0) ? WARMUP_FRAMES : FRAMES;
+      long start = System.nanoTime();
+      for (int f = 0; f < frames; ++f) {
+        final double amount = (f % 1000) / 1000.;
+        for (LXSnapshot.View view : snapshot.views) {
+          view.interpolate(amount);
+        }
+      }
+      views = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      for (int f = 0; f < frames; ++f) {
+        plan.interpolate((f % 1000) / 1000.);
+      }
+      compiled = System.nanoTime() - start;
+    }
+
+    System.out.format("Per-view interpolate: %8.2fus/frame\n", views / 1000. / FRAMES);
+    System.out.format("Compiled plan:        %8.2fus/frame\n", compiled / 1000. / FRAMES);
+    System.out.format("Speedup:              %8.2fx\n", views / (double) compiled);
+
+    lx.dispose();
+    System.exit(0);
+  }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright 2022- Mark C. Slee, Heron Arts LLC
+ *
+ * This file is part of the LX Studio software library. By using
+ * LX, you agree to the terms of the LX Studio Software License
+ * and Distribution Agreement, available at: http://lx.studio/license
+ *
+ * Please note that the LX license is not open-source. The license
+ * allows for free, non-commercial use.
+ *
+ * HERON ARTS MAKES NO WARRANTY, EXPRESS, IMPLIED, STATUTORY, OR
+ * OTHERWISE, AND SPECIFICALLY DISCLAIMS ANY WARRANTY OF
+ * MERCHANTABILITY, NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR
+ * PURPOSE, WITH RESPECT TO THE SOFTWARE.
+ *
+ */
+
+package heronarts.lx.utils;
+
+import java.util.Random;
+
+/**
+ * Benchmark of Noise.Batch against calling the per-point noise functions in a
+ * loop, over a grid of points in model order and again in shuffled order.
+ * Also checks that both give identical results, and exits with a non-zero
+ * status if they do not.
+ *
+ * Usage: NoiseBenchmark [numPoints]
+ */
+public class NoiseBenchmark {
+
+  private static final int WARMUP_FRAMES = 50;
+  private static final int FRAMES = 50;
+
+  private static final float SCALE = .05f;
+  private static final float LACUNARITY = 2;
+  private static final float GAIN = .5f;
+  private static final int OCTAVES = 4;
+
+  private static int failures = 0;
+
+  public static void main(String[] args) {
+    final int numPoints = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+
+    // Points on a grid, ordered row by row as a GridModel would be
+    final int width = (int) Math.ceil(Math.sqrt(numPoints));
+    final float[] x = new float[numPoints];
+    final float[] y = new float[numPoints];
+    final float[] z = new float[numPoints];
+    for (int i = 0; i < numPoints; ++i) {
+      x[i] = (i % width) * SCALE;
+      y[i] = (i / width) * SCALE;
+      z[i] = .5f;
+    }
+    run("Model order", x, y, z);
+
+    final Random random = new Random(1);
+    for (int i = numPoints - 1; i > 0; --i) {
+      final int j = random.nextInt(i + 1);
+      swap(x, i, j);
+      swap(y, i, j);
+    }
+    run("Shuffled", x, y, z);
+
+    if (failures > 0) {
+      System.out.println(failures + " checks failed");
+      System.exit(1);
+    }
+    System.exit(0);
+  }
+
+  private static void swap(float[] arr, int i, int j) {
+    final float tmp = arr[i];
+    arr[i] = arr[j];
+    arr[j] = tmp;
+  }
+
+  private static void run(String label, float[] x, float[] y, float[] z) {
+    final int count = x.length;
+    final float[] scalar = new float[count];
+    final float[] batched = new float[count];
+    final Noise.Batch batch = new Noise.Batch();
+
+    System.out.println(label + ", " + count + " points");
+
+    long scalarNanos = 0, batchNanos = 0;
+    for (int pass = 0; pass < 2; ++pass) {
+      final int frames = (pass == 0) ? WARMUP_FRAMES : FRAMES;
+      long start = System.nanoTime();
+      for (int f = 0; f < frames; ++f) {
+        for (int i = 0; i < count; ++i) {
+          scalar[i] = Noise.stb_perlin_noise3_seed(x[i], y[i], z[i], 0, 0, 0, 0);
+        }
+      }
+      scalarNanos = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      for (int f = 0; f < frames; ++f) {
+        batch.noise3(x, y, z, batched, count, 0);
+      }
+      batchNanos = System.nanoTime() - start;
+    }
+    report("noise3", scalarNanos, batchNanos);
+    check("noise3", scalar, batched);
+
+    for (int pass = 0; pass < 2; ++pass) {
+      final int frames = (pass == 0) ? WARMUP_FRAMES : FRAMES;
+      long start = System.nanoTime();
+      for (int f = 0; f < frames; ++f) {
+        for (int i = 0; i < count; ++i) {
+          scalar[i] = Noise.stb_perlin_fbm_noise3(x[i], y[i], z[i], LACUNARITY, GAIN, OCTAVES);
+        }
+      }
+      scalarNanos = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      for (int f = 0; f < frames; ++f) {
+        batch.fbm3(x, y, z, batched, count, LACUNARITY, GAIN, OCTAVES);
+      }
+      batchNanos = System.nanoTime() - start;
+    }
+    report("fbm3 x" + OCTAVES, scalarNanos, batchNanos);
+    check("fbm3", scalar, batched);
+  }
+
+  private static void report(String name, long scalarNanos, long batchNanos) {
+    System.out.format("  %-10s per-point: %8.2fms/frame  batch: %8.2fms/frame  speedup: %5.2fx\n",
+      name,
+      scalarNanos / 1000000. / FRAMES,
+      batchNanos / 1000000. / FRAMES,
+      scalarNanos / (double) batchNanos
+    );
+  }
+
+  private static void check(String name, float[] expected, float[] actual) {
+    for (int i = 0; i < expected.length; ++i) {
+      if (Float.floatToIntBits(expected[i]) != Float.floatToIntBits(actual[i])) {
+        System.out.println("  FAIL " + name + " differs at point " + i + ": " + expected[i] + " != " + actual[i]);
+        ++failures;
+        return;
+      }
+    }
+  }
+}